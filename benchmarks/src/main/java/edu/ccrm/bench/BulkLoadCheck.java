@@ -0,0 +1,188 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Student;
+import edu.ccrm.io.DataPersistenceService;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Log;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.TranscriptService;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Loads the same CSV files with the sequential loader and with the parallel bulk loader,
+ * and checks that both end in exactly the same in-memory state. The files are large
+ * enough to be split into several chunks and mix ordinary rows with the awkward ones:
+ * quoted fields holding commas, quotes and line breaks, Windows line endings, trailing
+ * empty fields, malformed numbers, and lines with more fields than any row type has.
+ *
+ * Exits with status 1 if the states differ. Runs as part of mvn test.
+ * Usage: BulkLoadCheck [students]
+ */
+public class BulkLoadCheck {
+
+    private static final int COURSES = 200;
+
+    public static void main(String[] args) throws IOException {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 40_000;
+
+        // Point the data files at a scratch directory before anything reads the configuration.
+        Path directory = Files.createTempDirectory("ccrm-bulk-check");
+        System.setProperty("ccrm.dataDir", directory.toString());
+        if (!AppConfig.getInstance().getDataDirectory().equals(directory.toString())) {
+            throw new IllegalStateException("The configuration was read before the data directory was set");
+        }
+        Log.console().setLevel(Level.OFF);
+        try {
+            writeFiles(directory, students);
+            String sequential = load(false);
+            String bulk = load(true);
+            if (!sequential.equals(bulk)) {
+                System.err.println("FAILED: the bulk loader's state differs from the sequential loader's, first at:");
+                System.err.println(firstDifference(sequential, bulk));
+                System.exit(1);
+            }
+            System.out.println("SUCCESS: " + students + " students loaded the same way by both loaders.");
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * @return The loaded state, as rendered by describe().
+     */
+    private static String load(boolean bulk) {
+        StudentService studentService = new StudentService();
+        CourseService courseService = new CourseService();
+        EnrollmentService enrollmentService = new EnrollmentService(studentService, courseService);
+        TranscriptService transcriptService = new TranscriptService(studentService);
+        DataPersistenceService persistenceService =
+                new DataPersistenceService(studentService, courseService, enrollmentService, transcriptService);
+        boolean loaded = bulk ? persistenceService.loadDataBulk() : persistenceService.loadData();
+        if (!loaded) {
+            throw new IllegalStateException("The generated files were rejected as corrupt");
+        }
+        return describe(studentService, courseService);
+    }
+
+    private static void writeFiles(Path directory, int students) throws IOException {
+        try (Writer out = Files.newBufferedWriter(directory.resolve("courses.csv"), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < COURSES; i++) {
+                String code = courseCode(i);
+                switch (i % 5) {
+                    case 0:
+                        out.write(code + ",Course " + i + "," + (2 + i % 3) + ",FALL\n");
+                        break;
+                    case 1:
+                        out.write(code + ",\"Course, with a comma\"," + (2 + i % 3) + ",SPRING,40\r\n");
+                        break;
+                    case 2:
+                        out.write(code + ",Course " + i + ",3,SUMMER,0," + (1000 + i) + ",Instructor " + i
+                                + ",teacher" + i + "@example.edu,\"Dept \"\"" + i + "\"\"\"\n");
+                        break;
+                    case 3:
+                        out.write(code + ",Course " + i + ",4,FALL,30,,,,,R" + i + ",MON 09:00-09:50;WED 09:00-09:50\n");
+                        break;
+                    default:
+                        out.write(code + ",Course " + i + ",3,FALL,x\n"); // Malformed capacity
+                }
+            }
+            out.write("WIDE,Too,many,fields,1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18\n");
+        }
+        try (Writer out = Files.newBufferedWriter(directory.resolve("students.csv"), StandardCharsets.UTF_8)) {
+            for (long id = 1; id <= students; id++) {
+                switch ((int) (id % 11)) {
+                    case 3:
+                        out.write(id + ",REG" + id + ",\"Last, First\nSecond line\",s" + id + "@example.edu\n");
+                        break;
+                    case 5:
+                        out.write(id + ",REG" + id + ",Student " + id + ",s" + id + "@example.edu,,,\r\n");
+                        break;
+                    case 7:
+                        out.write(id + ",REG" + id + ",Student " + id + ",s" + id + "@example.edu"
+                                + ",a,b,c,d,e,f,g,h,i,j,k,l,m,n,o,p,q,r\n");
+                        break;
+                    case 9:
+                        out.write(id + "x,REG" + id + ",Student " + id + ",s" + id + "@example.edu\n");
+                        break;
+                    default:
+                        out.write(id + ",REG" + id + ",Student \"" + id + "\" Name,s" + id + "@example.edu\n");
+                }
+            }
+        }
+        try (Writer out = Files.newBufferedWriter(directory.resolve("enrollments.csv"), StandardCharsets.UTF_8)) {
+            String grades = "SABCDEF";
+            for (long id = 1; id <= students; id++) {
+                for (int k = 0; k < 4; k++) {
+                    int course = (int) ((id * 7 + k * 13) % COURSES);
+                    out.write(id + "," + courseCode(course));
+                    if ((id + k) % 3 == 0) {
+                        out.write("," + grades.charAt((int) ((id + k) % grades.length())));
+                    } else if ((id + k) % 17 == 0) {
+                        out.write(",,,,,,,,,,,,,,,,,,,x");
+                    }
+                    out.write(k == 2 ? "\r\n" : "\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders everything the loaders set, in a fixed order, so two states can be compared as text.
+     */
+    private static String describe(StudentService studentService, CourseService courseService) {
+        StringBuilder text = new StringBuilder();
+        courseService.getAllCourses().stream()
+                .sorted(Comparator.comparing(Course::getCode))
+                .forEach(course -> text.append(describe(course)).append('\n'));
+        studentService.getAllStudents().stream()
+                .sorted(Comparator.comparingLong(Student::getId))
+                .forEach(student -> {
+                    text.append(student.getId()).append('|').append(student.getRegNo()).append('|')
+                            .append(student.getFullName()).append('|').append(student.getEmail()).append('|')
+                            .append(student.getTotalCredits());
+                    for (Course course : student.getEnrolledCourses()) {
+                        text.append('|').append(course.getCode()).append('=')
+                                .append(studentService.getEnrollmentTable().getGrade(student.getId(), course.getCode()));
+                    }
+                    text.append('\n');
+                });
+        text.append(studentService.getEnrollmentTable().gradeDistribution()).append('\n');
+        return text.toString();
+    }
+
+    private static String describe(Course course) {
+        return course.getCode() + "/" + course.getTitle() + "/" + course.getCredits() + "/" + course.getSemester()
+                + "/" + course.getCapacity() + "/" + course.getSeatsTaken()
+                + "/" + (course.getInstructor() == null ? "-" : course.getInstructor().getId() + " "
+                        + course.getInstructor().getFullName() + " " + course.getInstructor().getDepartment())
+                + "/" + (course.getSchedule() == null ? "-" : course.getSchedule());
+    }
+
+    private static String firstDifference(String expected, String actual) {
+        String[] expectedLines = expected.split("\n", -1);
+        String[] actualLines = actual.split("\n", -1);
+        for (int i = 0; i < Math.min(expectedLines.length, actualLines.length); i++) {
+            if (!expectedLines[i].equals(actualLines[i])) {
+                return "sequential: " + expectedLines[i] + "\nbulk:       " + actualLines[i];
+            }
+        }
+        return "sequential: " + expectedLines.length + " lines\nbulk:       " + actualLines.length + " lines";
+    }
+
+    private static String courseCode(int index) {
+        return String.format("BK%03d", index);
+    }
+}
@@ -0,0 +1,103 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.io.DataPersistenceService;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Log;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.TranscriptService;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * A generated dataset loaded into a set of services, shared by every thread of a
+ * benchmark. The sizes are JMH parameters, so a run can sweep them with -p, for
+ * example -p students=10000,100000 -p skew=0,1.2.
+ */
+@State(Scope.Benchmark)
+public class Dataset {
+
+    @Param({"10000"})
+    public int students;
+
+    @Param({"500"})
+    public int courses;
+
+    @Param({"4"})
+    public int enrollments;
+
+    @Param({"1.0"})
+    public double skew;
+
+    @Param({"0.5"})
+    public double graded;
+
+    SyntheticDataGenerator generator;
+    Path dataDirectory;
+    Services services;
+    int enrollmentCount;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void generate() throws IOException {
+        // Point the data files at a scratch directory before anything reads the configuration.
+        // Each fork runs one benchmark with one set of parameters, so this happens once per JVM.
+        dataDirectory = Files.createTempDirectory("ccrm-bench");
+        System.setProperty("ccrm.dataDir", dataDirectory.toString());
+        if (!AppConfig.getInstance().getDataDirectory().equals(dataDirectory.toString())) {
+            throw new IllegalStateException("The configuration was read before the benchmark data directory was set");
+        }
+        // The services report every change as an event; with the console off those events are
+        // never built, so they stay out of the measurements.
+        Log.console().setLevel(Level.OFF);
+
+        generator = new SyntheticDataGenerator.Builder()
+                .students(students)
+                .courses(courses)
+                .enrollmentsPerStudent(enrollments)
+                .skew(skew)
+                .gradedFraction(graded)
+                .build();
+        services = new Services();
+        enrollmentCount = generator.populate(services.studentService, services.courseService,
+                services.enrollmentService, services.transcriptService);
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(dataDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * @return A random ID of one of the generated students.
+     */
+    long randomStudentId(Random random) {
+        return 1 + random.nextInt(generator.getStudentCount());
+    }
+
+    /**
+     * The services wired together as the CLI wires them.
+     */
+    static class Services {
+        final StudentService studentService = new StudentService();
+        final CourseService courseService = new CourseService();
+        final EnrollmentService enrollmentService = new EnrollmentService(studentService, courseService);
+        final TranscriptService transcriptService = new TranscriptService(studentService);
+        final DataPersistenceService persistenceService =
+                new DataPersistenceService(studentService, courseService, enrollmentService, transcriptService);
+    }
+}
@@ -0,0 +1,171 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.exceptions.CourseFullException;
+import edu.ccrm.service.exceptions.DuplicateEnrollmentException;
+import edu.ccrm.service.exceptions.MaxCreditLimitExceededException;
+import edu.ccrm.service.exceptions.ScheduleConflictException;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EnrollmentService.enrollStudent followed by dropStudent, on courses added for the
+ * benchmark so the generated enrollments are left alone. Each thread uses its own
+ * students. With a capacity, the courses fill up and the threads compete for seats
+ * and waitlist places, which exercises the seat counters and waitlist promotion.
+ *
+ * registrationRush is the registration window itself: 256 threads, each a client with its
+ * own students, fight over the seats of one popular course. It reports throughput, with
+ * seat claims, waitlist adds and rejections counted separately. Change the number of
+ * clients with -t, for example -t 512.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnrollmentBenchmarks {
+
+    /**
+     * 64 courses without a seat limit.
+     */
+    @State(Scope.Benchmark)
+    public static class OpenCourses extends Courses {
+        @Setup
+        public void create(Dataset data) {
+            create(data, "BENCH", 64, 0);
+        }
+    }
+
+    /**
+     * Four courses of eight seats each.
+     */
+    @State(Scope.Benchmark)
+    public static class HotCourses extends Courses {
+        @Setup
+        public void create(Dataset data) {
+            create(data, "HOT", 4, 8);
+        }
+    }
+
+    /**
+     * One course of 50 seats, as every client tries to get into it at once.
+     */
+    @State(Scope.Benchmark)
+    public static class PopularCourse extends Courses {
+        @Setup
+        public void create(Dataset data) {
+            create(data, "RUSH", 1, 50);
+        }
+    }
+
+    /**
+     * What each enrollment attempt ended in, reported by JMH as a rate next to the throughput.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Claims {
+        public long seatClaims;
+        public long waitlistAdds;
+        public long rejections;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            seatClaims = 0;
+            waitlistAdds = 0;
+            rejections = 0;
+        }
+    }
+
+    abstract static class Courses {
+        String[] codes;
+
+        void create(Dataset data, String prefix, int count, int capacity) {
+            Semester[] semesters = Semester.values();
+            codes = new String[count];
+            for (int i = 0; i < count; i++) {
+                codes[i] = String.format("%s%03d", prefix, i);
+                data.services.courseService.loadCourse(new Course.Builder(codes[i], "Benchmark Course " + i)
+                        .credits(1)
+                        .semester(semesters[i % semesters.length])
+                        .capacity(capacity)
+                        .build());
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean enrollAndDrop(Dataset data, OpenCourses courses, ThreadParams thread) {
+        return enrollThenDrop(data, courses, thread);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean contention(Dataset data, HotCourses courses, ThreadParams thread) {
+        return enrollThenDrop(data, courses, thread);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(256)
+    public boolean registrationRush(Dataset data, PopularCourse course, Claims claims, ThreadParams thread) {
+        return enrollThenDrop(data, course, thread, claims);
+    }
+
+    private static boolean enrollThenDrop(Dataset data, Courses courses, ThreadParams thread) {
+        return enrollThenDrop(data, courses, thread, null);
+    }
+
+    /**
+     * @param claims Counts what the enrollment attempt ended in, or null to not count it.
+     */
+    private static boolean enrollThenDrop(Dataset data, Courses courses, ThreadParams thread, Claims claims) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        EnrollmentService enrollmentService = data.services.enrollmentService;
+        // Students are split between threads by ID, so no two threads use the same student.
+        int threads = thread.getThreadCount();
+        long studentId = data.randomStudentId(random);
+        studentId -= (studentId - 1) % threads;
+        studentId += thread.getThreadIndex();
+        if (studentId > data.generator.getStudentCount()) {
+            studentId = 1 + thread.getThreadIndex();
+        }
+        String courseCode = courses.codes[random.nextInt(courses.codes.length)];
+        try {
+            enrollmentService.enrollStudent(studentId, courseCode);
+            if (claims != null) {
+                // Without an exception the student either got a seat or joined the waitlist.
+                if (data.services.studentService.findStudentById(studentId).isEnrolledIn(courseCode)) {
+                    claims.seatClaims++;
+                } else {
+                    claims.waitlistAdds++;
+                }
+            }
+        } catch (DuplicateEnrollmentException | MaxCreditLimitExceededException | ScheduleConflictException | CourseFullException e) {
+            // Still one attempt; the benchmark measures the checks as well as the successes.
+            if (claims != null) {
+                claims.rejections++;
+            }
+        }
+        return enrollmentService.dropStudent(studentId, courseCode);
+    }
+}
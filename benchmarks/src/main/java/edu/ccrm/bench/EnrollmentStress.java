@@ -0,0 +1,315 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.EnrollmentRecord;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Log;
+import edu.ccrm.service.AnalyticsService;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.EnrollmentTable;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.TranscriptService;
+import edu.ccrm.service.exceptions.CourseFullException;
+import edu.ccrm.service.exceptions.DuplicateEnrollmentException;
+import edu.ccrm.service.exceptions.MaxCreditLimitExceededException;
+import edu.ccrm.service.exceptions.ScheduleConflictException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hammers the services from many threads at once, then checks that nothing was lost
+ * and no rule was broken. Unlike the benchmarks, the threads share the same students,
+ * so they race on one student's lock, on the last seats of small courses and on their
+ * waitlists, where drops promote waiting students.
+ *
+ * A second run only enrolls, in courses with no seat limit, and counts every enrollStudent
+ * call that succeeded: the enrollments found afterwards must match that count exactly, so
+ * no concurrent enrollment was lost or applied twice, and the credit limit must have
+ * rejected some of them without ever being exceeded.
+ *
+ * Checked afterwards:
+ * - students added concurrently all got distinct IDs and none is missing;
+ * - every course's seat count equals its roster size, which is at most its capacity,
+ *   and equals the number of students who have the course;
+ * - every student's credits, per semester and in total, equal the sum of their
+ *   courses' credits, and stay within the credit limit;
+ * - the enrollment table holds exactly the students' enrollments, with the same
+ *   grades as their transcripts, and its reports count every grade once;
+ * - grades are held only for courses the student still takes, and the CGPA is
+ *   the credit-weighted average of exactly those grades;
+ * - each course's running grade count equals the number of its students with a grade.
+ *
+ * Exits with status 1 if any check fails. Runs as part of mvn test.
+ * Usage: EnrollmentStress [threads] [operations per thread]
+ */
+public class EnrollmentStress {
+
+    private static final int STUDENTS = 24;
+    private static final int COURSES = 12;
+    private static final int CAPACITY = 5;
+    private static final int MAX_CREDITS_PER_SEMESTER = 21;
+
+    private final StudentService studentService = new StudentService();
+    private final CourseService courseService = new CourseService();
+    private final EnrollmentService enrollmentService = new EnrollmentService(studentService, courseService);
+    private final TranscriptService transcriptService = new TranscriptService(studentService);
+    private final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        Log.console().setLevel(Level.OFF);
+
+        EnrollmentStress stress = new EnrollmentStress();
+        stress.addStudents(threads);
+        stress.addCourses(CAPACITY);
+        stress.hammer(threads, operations);
+        stress.check();
+
+        EnrollmentStress enrollOnly = new EnrollmentStress();
+        enrollOnly.addStudents(threads);
+        enrollOnly.addCourses(0);
+        enrollOnly.hammerEnrollments(threads, operations);
+        enrollOnly.check();
+
+        List<String> failures = new ArrayList<>(stress.failures);
+        failures.addAll(enrollOnly.failures);
+        if (failures.isEmpty()) {
+            System.out.println("SUCCESS: " + threads + " threads x " + operations + " operations, all checks passed.");
+            return;
+        }
+        for (String failure : failures) {
+            System.err.println("FAILED: " + failure);
+        }
+        System.exit(1);
+    }
+
+    /**
+     * Adds the students from every thread at once; each must get its own ID.
+     */
+    private void addStudents(int threads) throws InterruptedException {
+        runConcurrently(threads, thread -> {
+            for (int i = thread; i < STUDENTS; i += threads) {
+                studentService.addStudent("STRESS" + i, "Stress Student " + i, "stress" + i + "@example.edu");
+            }
+        });
+        Set<Long> ids = new HashSet<>();
+        for (Student student : studentService.getAllStudents()) {
+            ids.add(student.getId());
+        }
+        expect(studentService.getStudentCount() == STUDENTS && ids.size() == STUDENTS,
+                "Added " + STUDENTS + " students concurrently but found " + studentService.getStudentCount()
+                        + " with " + ids.size() + " distinct IDs");
+    }
+
+    /**
+     * Courses in two semesters, with enough credits that students run into the credit limit.
+     * @param capacity The seats in each course; 0 for no limit.
+     */
+    private void addCourses(int capacity) {
+        for (int i = 0; i < COURSES; i++) {
+            courseService.loadCourse(new Course.Builder(courseCode(i), "Stress Course " + i)
+                    .credits(4 + i % 3)
+                    .semester(i % 2 == 0 ? Semester.FALL : Semester.SPRING)
+                    .capacity(capacity)
+                    .build());
+        }
+    }
+
+    /**
+     * Every thread enrolls random students in random courses, grades them and drops them
+     * again. Drops from full courses promote students off the waitlists.
+     */
+    private void hammer(int threads, int operations) throws InterruptedException {
+        runConcurrently(threads, thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Grade[] grades = Grade.values();
+            for (int i = 0; i < operations; i++) {
+                long studentId = 1 + random.nextInt(STUDENTS);
+                String courseCode = courseCode(random.nextInt(COURSES));
+                int operation = random.nextInt(5);
+                if (operation == 4) {
+                    transcriptService.recordGrade(studentId, courseCode, grades[random.nextInt(grades.length)]);
+                } else if (operation < 3) {
+                    try {
+                        enrollmentService.enrollStudent(studentId, courseCode);
+                    } catch (DuplicateEnrollmentException | MaxCreditLimitExceededException
+                            | ScheduleConflictException | CourseFullException e) {
+                        // Rejections are expected; the checks afterwards are what matter.
+                    }
+                } else {
+                    enrollmentService.dropStudent(studentId, courseCode);
+                }
+                if (i % 64 == 0) {
+                    // Renders and reports read the enrollments while other threads change them.
+                    transcriptService.appendTranscript(studentId, new StringBuilder());
+                    studentService.getEnrollmentTable().gpaBySemester();
+                }
+            }
+        });
+    }
+
+    /**
+     * Every thread only enrolls random students in random courses, counting the calls that
+     * succeed. The courses have no seat limit, so a call that does not throw has enrolled.
+     */
+    private void hammerEnrollments(int threads, int operations) throws InterruptedException {
+        AtomicLong enrolled = new AtomicLong();
+        AtomicLong overCreditLimit = new AtomicLong();
+        runConcurrently(threads, thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long succeeded = 0;
+            long rejected = 0;
+            for (int i = 0; i < operations; i++) {
+                try {
+                    enrollmentService.enrollStudent(1 + random.nextInt(STUDENTS), courseCode(random.nextInt(COURSES)));
+                    succeeded++;
+                } catch (MaxCreditLimitExceededException e) {
+                    rejected++;
+                } catch (DuplicateEnrollmentException | ScheduleConflictException | CourseFullException e) {
+                    // Expected once a student has taken the course.
+                }
+            }
+            enrolled.addAndGet(succeeded);
+            overCreditLimit.addAndGet(rejected);
+        });
+
+        long found = 0;
+        for (Student student : studentService.getAllStudents()) {
+            found += student.getEnrolledCourses().size();
+        }
+        expect(found == enrolled.get(),
+                enrolled.get() + " concurrent enrollments succeeded but " + found + " were kept");
+        expect(overCreditLimit.get() > 0, "No enrollment reached the credit limit, so it was never tested");
+    }
+
+    private void check() {
+        int enrollments = 0;
+        int[] holders = new int[COURSES];
+        int[] graded = new int[COURSES];
+        EnrollmentTable table = studentService.getEnrollmentTable();
+        AnalyticsService analytics = new AnalyticsService(transcriptService);
+        for (Student student : studentService.getAllStudents()) {
+            List<Course> courses = enrollmentService.getEnrolledCourses(student.getId());
+            int[] credits = new int[Semester.values().length];
+            int total = 0;
+            for (Course course : courses) {
+                credits[course.getSemester().ordinal()] += course.getCredits();
+                total += course.getCredits();
+                holders[Integer.parseInt(course.getCode().substring(2))]++;
+                Grade grade = transcriptService.getGrade(student.getId(), course.getCode());
+                if (grade != null) {
+                    graded[Integer.parseInt(course.getCode().substring(2))]++;
+                }
+                expect(table.contains(student.getId(), course.getCode()),
+                        "The enrollment table is missing student " + student.getId() + " in " + course.getCode());
+                expect(table.getGrade(student.getId(), course.getCode()) == grade, "The enrollment table has grade "
+                        + table.getGrade(student.getId(), course.getCode()) + " for student " + student.getId()
+                        + " in " + course.getCode() + " but the transcript has " + grade);
+            }
+            for (Semester semester : Semester.values()) {
+                int recorded = student.getCreditsForSemester(semester);
+                expect(recorded == credits[semester.ordinal()], "Student " + student.getId() + " has " + recorded
+                        + " credits in " + semester + " but their courses add up to " + credits[semester.ordinal()]);
+                expect(recorded <= MAX_CREDITS_PER_SEMESTER,
+                        "Student " + student.getId() + " has " + recorded + " credits in " + semester);
+            }
+            expect(student.getTotalCredits() == total, "Student " + student.getId() + " has "
+                    + student.getTotalCredits() + " credits in total but their courses add up to " + total);
+            checkGrades(student.getId(), courses);
+            enrollments += courses.size();
+        }
+        expect(table.size() == enrollments,
+                "The enrollment table has " + table.size() + " rows for " + enrollments + " enrollments");
+        long tableGrades = table.gradeDistribution().values().stream().mapToLong(Long::longValue).sum();
+        int gradedTotal = Arrays.stream(graded).sum();
+        expect(tableGrades == gradedTotal,
+                "The enrollment table's report counts " + tableGrades + " grades for " + gradedTotal + " graded enrollments");
+
+        for (int i = 0; i < COURSES; i++) {
+            Course course = courseService.findCourseByCode(courseCode(i));
+            int seats = course.getSeatsTaken();
+            int roster = enrollmentService.getRoster(course.getCode()).size();
+            expect(seats == roster && roster == enrollmentService.getEnrolledCount(course.getCode()),
+                    course.getCode() + " has " + seats + " seats taken but a roster of " + roster);
+            expect(course.getCapacity() == 0 || roster <= course.getCapacity(),
+                    course.getCode() + " has " + roster + " students for " + course.getCapacity() + " seats");
+            expect(roster == holders[i],
+                    course.getCode() + " has a roster of " + roster + " but " + holders[i] + " students taking it");
+            long counted = analytics.getCourseStatistics(course.getCode()).getGradedCount();
+            expect(counted == graded[i],
+                    course.getCode() + " counts " + counted + " grades but " + graded[i] + " of its students have one");
+        }
+    }
+
+    private void checkGrades(long studentId, List<Course> courses) {
+        double points = 0;
+        int credits = 0;
+        for (EnrollmentRecord record : transcriptService.getEnrollmentRecords(studentId)) {
+            expect(courses.contains(record.getCourse()),
+                    "Student " + studentId + " still has a grade for dropped course " + record.getCourse().getCode());
+            points += record.getGrade().getGradePoints() * record.getCourse().getCredits();
+            credits += record.getCourse().getCredits();
+        }
+        double expected = credits == 0 ? -1 : points / credits;
+        double cgpa = transcriptService.getCgpa(studentId).orElse(-1);
+        expect(Math.abs(cgpa - expected) < 1e-9,
+                "Student " + studentId + " has a CGPA of " + cgpa + " but their grades average " + expected);
+    }
+
+    private void expect(boolean condition, String failure) {
+        if (!condition) {
+            failures.add(failure);
+        }
+    }
+
+    private static String courseCode(int index) {
+        return String.format("ST%02d", index);
+    }
+
+    private interface Work {
+        void run(int thread) throws Exception;
+    }
+
+    /**
+     * Runs the work on the given number of threads, started together, and waits for all of them.
+     * @throws IllegalStateException if any thread failed.
+     */
+    private static void runConcurrently(int threads, Work work) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    work.run(thread);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "stress-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("A stress thread failed", failure.get());
+        }
+    }
+}
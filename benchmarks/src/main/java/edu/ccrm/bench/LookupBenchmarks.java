@@ -0,0 +1,57 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Student;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StudentService.findStudentById and CourseService.search over the generated data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmarks {
+
+    // Prefixes of the words course titles are made of, as someone typing a search would enter them.
+    private static final String[] QUERIES = searchQueries();
+
+    /**
+     * StudentService.findStudentById for random existing students.
+     */
+    @Benchmark
+    public Student findStudentById(Dataset data) {
+        return data.services.studentService.findStudentById(data.randomStudentId(ThreadLocalRandom.current()));
+    }
+
+    /**
+     * CourseService.search, limited to a page of results as the CLI shows them.
+     */
+    @Benchmark
+    public List<Course> searchCourses(Dataset data) {
+        return data.services.courseService.search(QUERIES[ThreadLocalRandom.current().nextInt(QUERIES.length)], 20);
+    }
+
+    private static String[] searchQueries() {
+        List<String> queries = new ArrayList<>();
+        for (String word : SyntheticDataGenerator.getTitleWords()) {
+            for (int length = 3; length <= word.length(); length += 2) {
+                queries.add(word.substring(0, length).toLowerCase());
+            }
+        }
+        return queries.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,109 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.io.SnapshotFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataPersistenceService saves, exports and loads of the whole dataset. The files are
+ * read back from the page cache, so loads measure parsing and indexing rather than the disk.
+ *
+ * load is the cold start. The default dataset has about 40k enrollments; for the 1M+
+ * enrollments a registrar export has, run it with 300k students and a larger heap:
+ *     java -jar benchmarks.jar PersistenceBenchmarks.load -p students=300000 -p enrollments=4 -jvmArgs -Xmx4g
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class SaveFormat {
+        @Param({"CSV", "BINARY"})
+        public SnapshotFormat format;
+    }
+
+    /**
+     * The saved files to load, and how to load them: CSV line by line, CSV with the
+     * parallel bulk loader, or the binary snapshot.
+     */
+    @State(Scope.Benchmark)
+    public static class SavedFiles {
+        @Param({"csv", "csvBulk", "binary"})
+        public String loader;
+
+        @Setup
+        public void save(Dataset data) {
+            SnapshotFormat format = loader.equals("binary") ? SnapshotFormat.BINARY : SnapshotFormat.CSV;
+            if (!data.services.persistenceService.saveData(format)) {
+                throw new IllegalStateException("Could not save the data to load");
+            }
+            System.out.println("Loading " + data.enrollmentCount + " enrollments of " + data.students
+                    + " students from the " + format + " files");
+        }
+    }
+
+    /**
+     * DataPersistenceService.saveData, from the snapshot copy to the committed files.
+     */
+    @Benchmark
+    public SnapshotFormat save(Dataset data, SaveFormat save) {
+        if (!data.services.persistenceService.saveData(save.format)) {
+            throw new IllegalStateException("Save failed");
+        }
+        return save.format;
+    }
+
+    /**
+     * DataPersistenceService.exportCsv, which streams over the services instead of
+     * copying them first. Run with -prof gc to compare its allocation with save.
+     */
+    @Benchmark
+    public long exportCsv(Dataset data) {
+        Path directory = data.dataDirectory.resolve("export");
+        long rows = data.services.persistenceService.exportCsv(directory);
+        if (rows < 0) {
+            throw new IllegalStateException("Export failed");
+        }
+        return rows;
+    }
+
+    /**
+     * Loads the saved files into empty services, as on startup.
+     */
+    @Benchmark
+    public Dataset.Services load(SavedFiles files) {
+        Dataset.Services services = new Dataset.Services();
+        boolean loaded;
+        switch (files.loader) {
+            case "csvBulk":
+                loaded = services.persistenceService.loadDataBulk();
+                break;
+            case "binary":
+                loaded = services.persistenceService.loadData(SnapshotFormat.BINARY);
+                break;
+            default:
+                loaded = services.persistenceService.loadData(SnapshotFormat.CSV);
+                break;
+        }
+        if (!loaded) {
+            throw new IllegalStateException("Load failed");
+        }
+        return services;
+    }
+}
@@ -0,0 +1,118 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.EnrollmentRecord;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.service.AnalyticsService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registrar reports over the whole dataset, each next to the object-model scan it replaces.
+ * For 10M graded enrollments, run with -p students=2500000 -p graded=1.0.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class Analytics {
+        AnalyticsService service;
+
+        @Setup
+        public void create(Dataset data) {
+            service = new AnalyticsService(data.services.transcriptService);
+        }
+    }
+
+    /**
+     * The credit-weighted GPA of every semester, from the columns of the EnrollmentTable.
+     */
+    @Benchmark
+    public Map<Semester, Double> gpaBySemesterColumnar(Dataset data) {
+        return data.services.studentService.getEnrollmentTable().gpaBySemester();
+    }
+
+    /**
+     * The same figures as gpaBySemesterColumnar, computed the way the object model allows:
+     * every student's enrolled courses, with each grade looked up in the transcripts.
+     */
+    @Benchmark
+    public Map<Semester, Double> gpaBySemesterObjects(Dataset data) {
+        double[] points = new double[Semester.values().length];
+        long[] credits = new long[points.length];
+        data.services.studentService.streamStudents().forEach(student -> {
+            for (Course course : data.services.enrollmentService.getEnrolledCourses(student.getId())) {
+                Grade grade = data.services.transcriptService.getGrade(student.getId(), course.getCode());
+                if (grade != null && course.getSemester() != null) {
+                    points[course.getSemester().ordinal()] += grade.getGradePoints() * course.getCredits();
+                    credits[course.getSemester().ordinal()] += course.getCredits();
+                }
+            }
+        });
+        Map<Semester, Double> gpa = new EnumMap<>(Semester.class);
+        for (Semester semester : Semester.values()) {
+            if (credits[semester.ordinal()] > 0) {
+                gpa.put(semester, points[semester.ordinal()] / credits[semester.ordinal()]);
+            }
+        }
+        return gpa;
+    }
+
+    @Benchmark
+    public Object cgpaHistogram(Analytics analytics) {
+        return analytics.service.cgpaHistogram(10);
+    }
+
+    @Benchmark
+    public Object passRateBySemester(Analytics analytics) {
+        return analytics.service.passRateBySemester();
+    }
+
+    @Benchmark
+    public Object topStudents(Analytics analytics) {
+        return analytics.service.topStudentsByCgpa(100);
+    }
+
+    /**
+     * Per-course grade statistics, read from the running counts.
+     */
+    @Benchmark
+    public Object courseStatistics(Analytics analytics) {
+        return analytics.service.getAllCourseStatistics();
+    }
+
+    /**
+     * The grade counts behind courseStatistics, recomputed from every student's
+     * transcript records instead of read from the running counts.
+     */
+    @Benchmark
+    public Map<String, long[]> courseStatisticsScan(Dataset data) {
+        Map<String, long[]> counts = new HashMap<>();
+        data.services.studentService.streamStudents().forEach(student -> {
+            for (EnrollmentRecord record : data.services.transcriptService.getEnrollmentRecords(student.getId())) {
+                counts.computeIfAbsent(record.getCourse().getCode(), code -> new long[Grade.values().length])
+                        [record.getGrade().ordinal()]++;
+            }
+        });
+        return counts;
+    }
+}
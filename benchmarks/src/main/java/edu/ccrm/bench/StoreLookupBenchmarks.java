@@ -0,0 +1,90 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.LongKeyedStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups by random student ID in the ID-keyed store the services use, compared with
+ * the boxed-key maps they used before it. Building the store also measures the heap
+ * it retains, not counting the students themselves, and prints it with the run's
+ * output, so the stores can be compared in size as well as speed. At millions of
+ * students, run with -p enrollments=0 and a large enough -jvmArgs -Xmx.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoreLookupBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class Store {
+
+        @Param({"longKeyed", "hashMap", "concurrentHashMap"})
+        public String store;
+
+        LongKeyedStore<Student> longKeyed;
+        Map<Long, Student> map;
+
+        @Setup
+        public void build(Dataset data) {
+            // The list stays reachable until both measurements are taken, so only the store is counted.
+            List<Student> students = data.services.studentService.getAllStudents();
+            long before = usedHeapAfterGc();
+            if (store.equals("longKeyed")) {
+                longKeyed = new LongKeyedStore<>();
+                for (Student student : students) {
+                    longKeyed.put(student.getId(), student);
+                }
+            } else {
+                map = store.equals("hashMap") ? new HashMap<>() : new ConcurrentHashMap<>();
+                for (Student student : students) {
+                    map.put(student.getId(), student);
+                }
+            }
+            long retained = usedHeapAfterGc() - before;
+            System.out.println("Heap retained by the " + store + " store of " + students.size() + " students: "
+                    + retained + " bytes");
+        }
+
+        @TearDown
+        public void clear() {
+            longKeyed = null;
+            map = null;
+        }
+
+        private static long usedHeapAfterGc() {
+            Runtime runtime = Runtime.getRuntime();
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+            }
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+
+    @Benchmark
+    public Student lookup(Dataset data, Store store) {
+        long id = data.randomStudentId(ThreadLocalRandom.current());
+        return store.longKeyed != null ? store.longKeyed.get(id) : store.map.get(id);
+    }
+}
@@ -0,0 +1,234 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentBatch;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.TranscriptService;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Fills the services with reproducible, made-up data for benchmarks.
+ *
+ * Course popularity follows a Zipf distribution: with a skew of 0 every course is
+ * equally likely, and the higher the skew, the more enrollments pile into the first
+ * few courses, as they do for popular introductory courses. The same seed always
+ * produces the same data.
+ */
+public class SyntheticDataGenerator {
+
+    private static final String[] FIRST_NAMES = {
+            "Aarav", "Ana", "Ben", "Chen", "Diya", "Elena", "Farah", "George", "Hana", "Ivan",
+            "Jia", "Kofi", "Lena", "Mateo", "Nia", "Omar", "Priya", "Quinn", "Rosa", "Sven"
+    };
+    private static final String[] LAST_NAMES = {
+            "Smith", "Garcia", "Kumar", "Nguyen", "Okafor", "Rossi", "Tanaka", "Muller", "Silva", "Khan",
+            "Cohen", "Ivanova", "Haddad", "Larsen", "Moreau", "Novak", "Park", "Reyes", "Sato", "Walker"
+    };
+    private static final String[] TITLE_WORDS = {
+            "Introduction", "Advanced", "Applied", "Theory", "Systems", "Data", "Structures", "Algorithms",
+            "Networks", "Databases", "Physics", "Chemistry", "Biology", "Calculus", "Statistics", "Ethics",
+            "History", "Design", "Machine", "Learning", "Security", "Economics", "Literature", "Signals"
+    };
+    private static final Grade[] GRADES = Grade.values();
+    private static final Semester[] SEMESTERS = Semester.values();
+
+    private final int studentCount;
+    private final int courseCount;
+    private final int enrollmentsPerStudent;
+    private final double skew;
+    private final double gradedFraction;
+    private final long seed;
+    private final double[] cumulativePopularity;
+
+    private SyntheticDataGenerator(Builder builder) {
+        this.studentCount = builder.studentCount;
+        this.courseCount = builder.courseCount;
+        this.enrollmentsPerStudent = Math.min(builder.enrollmentsPerStudent, builder.courseCount);
+        this.skew = builder.skew;
+        this.gradedFraction = builder.gradedFraction;
+        this.seed = builder.seed;
+        this.cumulativePopularity = zipfCumulative(courseCount, skew);
+    }
+
+    /**
+     * Adds the students, courses, enrollments and grades to empty services.
+     * Uses the load methods, so nothing is printed and no listeners are told.
+     * @return The number of enrollments made; a few may be rejected by the credit limit.
+     */
+    public int populate(StudentService studentService, CourseService courseService,
+                        EnrollmentService enrollmentService, TranscriptService transcriptService) {
+        Random random = new Random(seed);
+        for (int i = 0; i < courseCount; i++) {
+            courseService.loadCourse(new Course.Builder(courseCode(i), courseTitle(random))
+                    .credits(1 + random.nextInt(4))
+                    .semester(SEMESTERS[i % SEMESTERS.length])
+                    .build());
+        }
+        for (int i = 0; i < studentCount; i++) {
+            long id = i + 1;
+            String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            studentService.loadStudent(id, String.format("REG%07d", id), firstName + " " + lastName,
+                    firstName.toLowerCase() + "." + lastName.toLowerCase() + id + "@example.edu");
+        }
+
+        EnrollmentBatch batch = new EnrollmentBatch(studentCount * enrollmentsPerStudent);
+        int[] chosen = new int[enrollmentsPerStudent];
+        for (int i = 0; i < studentCount; i++) {
+            for (int j = 0; j < enrollmentsPerStudent; j++) {
+                chosen[j] = pickDistinctCourse(random, chosen, j);
+                batch.add(i + 1, courseCode(chosen[j]));
+            }
+        }
+        int enrolled = enrollmentService.replayEnrollments(batch).getEnrolledCount();
+
+        for (int row = 0; row < batch.size(); row++) {
+            if (random.nextDouble() < gradedFraction) {
+                transcriptService.loadGrade(batch.getStudentId(row), batch.getCourseCode(row),
+                        GRADES[random.nextInt(GRADES.length)]);
+            }
+        }
+        return enrolled;
+    }
+
+    /**
+     * Picks a course following the popularity distribution.
+     * @return The index of the course, from 0 to getCourseCount() - 1.
+     */
+    public int pickCourse(Random random) {
+        int index = Arrays.binarySearch(cumulativePopularity, random.nextDouble());
+        return Math.min(courseCount - 1, index >= 0 ? index : -index - 1);
+    }
+
+    private int pickDistinctCourse(Random random, int[] chosen, int count) {
+        int course = pickCourse(random);
+        if (!contains(chosen, count, course)) {
+            return course;
+        }
+        // Heavy skew makes repeats likely; fall back to uniform picks to keep generation quick.
+        do {
+            course = random.nextInt(courseCount);
+        } while (contains(chosen, count, course));
+        return course;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The cumulative probability of picking each course, where course i has weight 1 / (i + 1)^skew.
+     */
+    private static double[] zipfCumulative(int count, double skew) {
+        double[] cumulative = new double[count];
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            total += 1.0 / Math.pow(i + 1, skew);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < count; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+
+    private static String courseTitle(Random random) {
+        return TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " " + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]
+                + " " + (100 + random.nextInt(400));
+    }
+
+    public static String courseCode(int index) {
+        return String.format("C%05d", index);
+    }
+
+    /**
+     * @return The words course titles are made from, for building search queries.
+     */
+    public static String[] getTitleWords() {
+        return TITLE_WORDS.clone();
+    }
+
+    public int getStudentCount() {
+        return studentCount;
+    }
+
+    public int getCourseCount() {
+        return courseCount;
+    }
+
+    public int getEnrollmentsPerStudent() {
+        return enrollmentsPerStudent;
+    }
+
+    public double getSkew() {
+        return skew;
+    }
+
+    public double getGradedFraction() {
+        return gradedFraction;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Builder for SyntheticDataGenerator.
+     */
+    public static class Builder {
+        private int studentCount = 10_000;
+        private int courseCount = 500;
+        private int enrollmentsPerStudent = 4;
+        private double skew = 1.0;
+        private double gradedFraction = 0.5;
+        private long seed = 42;
+
+        public Builder students(int studentCount) {
+            this.studentCount = studentCount;
+            return this;
+        }
+
+        public Builder courses(int courseCount) {
+            this.courseCount = courseCount;
+            return this;
+        }
+
+        public Builder enrollmentsPerStudent(int enrollmentsPerStudent) {
+            this.enrollmentsPerStudent = enrollmentsPerStudent;
+            return this;
+        }
+
+        public Builder skew(double skew) {
+            this.skew = skew;
+            return this;
+        }
+
+        public Builder gradedFraction(double gradedFraction) {
+            this.gradedFraction = gradedFraction;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public SyntheticDataGenerator build() {
+            if (studentCount < 1 || courseCount < 1 || enrollmentsPerStudent < 0 || skew < 0) {
+                throw new IllegalArgumentException("Counts must be positive and the skew must not be negative");
+            }
+            return new SyntheticDataGenerator(this);
+        }
+    }
+}
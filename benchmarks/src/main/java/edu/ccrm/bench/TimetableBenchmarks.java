@@ -0,0 +1,62 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.Room;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.service.Timetable;
+import edu.ccrm.service.TimetableService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TimetableService.generate for the fall courses: the conflict graph over every
+ * student's enrollments, then the parallel placements. The timetable is not applied.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimetableBenchmarks {
+
+    private static final int ROOM_SIZES = 10;
+
+    @State(Scope.Benchmark)
+    public static class Rooms {
+        TimetableService timetableService;
+        final List<Room> rooms = new ArrayList<>();
+
+        @Setup
+        public void create(Dataset data) {
+            Dataset.Services services = data.services;
+            timetableService = new TimetableService(services.studentService, services.courseService,
+                    services.enrollmentService);
+            // Rooms from a tenth of the largest course up to all of it, four of each size.
+            int largest = services.courseService.streamCourses()
+                    .mapToInt(course -> Math.max(course.getCapacity(), course.getSeatsTaken()))
+                    .max().orElse(1);
+            for (int size = 1; size <= ROOM_SIZES; size++) {
+                for (int copy = 0; copy < 4; copy++) {
+                    rooms.add(new Room("R" + size + "-" + copy, Math.max(1, largest * size / ROOM_SIZES)));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Timetable generate(Rooms rooms) {
+        return rooms.timetableService.generate(Semester.FALL, rooms.rooms);
+    }
+}
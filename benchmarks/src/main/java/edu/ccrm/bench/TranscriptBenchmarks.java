@@ -0,0 +1,55 @@
+package edu.ccrm.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transcript rendering, with and without the transcript cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranscriptBenchmarks {
+
+    /**
+     * A buffer reused by one thread, as generateTranscript reuses its own on a cache miss.
+     */
+    @State(Scope.Thread)
+    public static class Buffer {
+        final StringBuilder text = new StringBuilder();
+    }
+
+    /**
+     * TranscriptService.generateTranscript for random students. Once warmed up, most calls
+     * are served from the transcript cache when it can hold every student.
+     */
+    @Benchmark
+    public String generateTranscript(Dataset data) {
+        return data.services.transcriptService.generateTranscript(data.randomStudentId(ThreadLocalRandom.current()));
+    }
+
+    /**
+     * Renders the transcripts of random students without the cache, as generateTranscript
+     * does on a miss.
+     */
+    @Benchmark
+    public void appendTranscript(Dataset data, Buffer buffer, Blackhole blackhole) {
+        buffer.text.setLength(0);
+        blackhole.consume(data.services.transcriptService.appendTranscript(
+                data.randomStudentId(ThreadLocalRandom.current()), buffer.text));
+        blackhole.consume(buffer.text.length());
+    }
+}
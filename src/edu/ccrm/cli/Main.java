@@ -1,34 +1,84 @@
 package edu.ccrm.cli;
 
+import edu.ccrm.config.AppConfig;
 import edu.ccrm.domain.*;
+import edu.ccrm.io.AutosaveScheduler;
+import edu.ccrm.io.BackupStore;
 import edu.ccrm.io.DataPersistenceService;
+import edu.ccrm.io.Journal;
+import edu.ccrm.io.TranscriptBatchWriter;
+import edu.ccrm.log.AsyncFileAppender;
+import edu.ccrm.log.EventLogger;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Log;
+import edu.ccrm.log.Outcome;
+import edu.ccrm.metrics.Metrics;
+import edu.ccrm.metrics.MetricsDumper;
 import edu.ccrm.service.*;
+import edu.ccrm.service.exceptions.CourseFullException;
 import edu.ccrm.service.exceptions.DuplicateEnrollmentException;
 import edu.ccrm.service.exceptions.MaxCreditLimitExceededException;
+import edu.ccrm.service.exceptions.ScheduleConflictException;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 public class Main {
 
+    private static final EventLogger JOURNAL_LOG = Log.logger("journal");
+
     public static void main(String[] args) {
+        // 0. Write the services' events to the log file as well as the console
+        openLogFile();
         // 1. Instantiate all services
         StudentService studentService = new StudentService();
         CourseService courseService = new CourseService();
         EnrollmentService enrollmentService = new EnrollmentService(studentService, courseService);
         TranscriptService transcriptService = new TranscriptService(studentService);
-        DataPersistenceService persistenceService = new DataPersistenceService(studentService, courseService, enrollmentService);
+        TimetableService timetableService = new TimetableService(studentService, courseService, enrollmentService);
+        DataPersistenceService persistenceService = new DataPersistenceService(studentService, courseService, enrollmentService, transcriptService);
         // 2. Load data on startup
-        persistenceService.loadData();
+        boolean loaded = AppConfig.getInstance().isBulkLoadEnabled()
+                ? persistenceService.loadDataBulk()
+                : persistenceService.loadData();
+        if (!loaded) {
+            // Starting empty would overwrite the damaged files on the next save.
+            System.err.println("Restore the data files from a backup and restart CCRM.");
+            Log.shutdown();
+            return;
+        }
+        // 3. Replay changes made since the last snapshot, then journal new ones
+        Journal journal = openJournal(persistenceService, studentService, courseService, enrollmentService, transcriptService);
+        // 4. Save in the background after changes. With a journal, the changes are already in it,
+        //    so autosave only makes sure they are synced; the journal compacts itself once it is large.
+        AppConfig config = AppConfig.getInstance();
+        AutosaveScheduler autosave = new AutosaveScheduler(
+                journal != null ? () -> flushJournal(journal) : persistenceService::saveData,
+                config.getAutosaveQuietMillis(), config.getAutosaveMaxDelayMillis());
+        studentService.addChangeListener(autosave);
+        courseService.addChangeListener(autosave);
+        enrollmentService.addChangeListener(autosave);
+        transcriptService.addChangeListener(autosave);
+        autosave.start();
+        // 5. Publish metrics: shown by the Stats menu entry and written to a file periodically
+        Metrics.gauge("students", studentService::getStudentCount);
+        Metrics.gauge("courses", courseService::getCourseCount);
+        Metrics.gauge("jvm.heapUsedBytes", () -> Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+        MetricsDumper metricsDumper = new MetricsDumper(Paths.get(config.getMetricsFile()), config.getMetricsDumpIntervalSeconds());
 
         Scanner scanner = new Scanner(System.in);
 
-        // 3. Start the main application loop
+        // 6. Start the main application loop
         while (true) {
             printMainMenu();
             int choice = scanner.nextInt();
@@ -39,7 +89,7 @@ public class Main {
                     handleStudentManagement(studentService, scanner);
                     break;
                 case 2:
-                    handleCourseManagement(courseService, scanner);
+                    handleCourseManagement(courseService, timetableService, scanner);
                     break;
                 case 3:
                     handleEnrollmentManagement(enrollmentService, studentService, courseService, scanner);
@@ -48,24 +98,33 @@ public class Main {
                     handleGradesAndTranscripts(transcriptService, studentService, scanner);
                     break;
                 case 5: //case for backup
+                    // Back up a snapshot that includes every change so far
+                    if (journal != null) {
+                        compactJournal(journal);
+                    } else {
+                        autosave.saveNow();
+                    }
                     persistenceService.backupData();
                     break;
-                case 6: //case for recursion
-                    try {
-                        Path backupPath = Paths.get("backups");
-                        if (Files.exists(backupPath)) {
-                            long totalSize = persistenceService.calculateDirectorySize(backupPath);
-                            System.out.printf("Total size of all backups is: %.2f KB\n", totalSize / 1024.0);
-                        } else {
-                            System.out.println("No backup directory found. Create a backup first.");
-                        }
-                    } catch (IOException e) {
-                        System.err.println("ERROR: Could not calculate backup size. " + e.getMessage());
-                    }
+                case 6:
+                    printBackupSummary(persistenceService);
+                    break;
+                case 7:
+                    handleRestoreBackup(persistenceService, scanner);
+                    break;
+                case 8:
+                    System.out.println(Metrics.report());
                     break;
                 case 0:
                     System.out.println("Saving data before exiting...");
-                    persistenceService.saveData(); // Save data on exit
+                    if (journal != null) {
+                        autosave.cancel();
+                        closeJournal(journal); // Changes are already in the journal; just make sure they are on disk
+                    } else {
+                        autosave.close(); // Saves any changes the background saver has not written yet
+                    }
+                    metricsDumper.close();
+                    Log.shutdown();
                     System.out.println("Exiting CCRM. Goodbye!");
                     scanner.close();
                     return; // Exit the main method, which terminates the program
@@ -76,6 +135,124 @@ public class Main {
         }
     }
 
+    private static void printBackupSummary(DataPersistenceService persistenceService) {
+        try {
+            BackupStore store = persistenceService.getBackupStore();
+            if (store.getBackupCount() == 0) {
+                System.out.println("No backups found. Create a backup first.");
+                return;
+            }
+            // Sizes come from the backup catalog, so this does not scan the backups directory.
+            System.out.printf("%d backups, %.2f KB of data, stored in %.2f KB after deduplication and compression.%n",
+                    store.getBackupCount(), store.getLogicalBytes() / 1024.0, store.getStoredBytes() / 1024.0);
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not read the backup catalog. " + e.getMessage());
+        }
+    }
+
+    private static void handleRestoreBackup(DataPersistenceService persistenceService, Scanner scanner) {
+        List<BackupStore.BackupInfo> backups;
+        try {
+            backups = persistenceService.getBackupStore().listBackups();
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not read the backup catalog. " + e.getMessage());
+            return;
+        }
+        if (backups.isEmpty()) {
+            System.out.println("No backups found. Create a backup first.");
+            return;
+        }
+        System.out.println("\n--- Backups ---");
+        backups.forEach(System.out::println);
+        System.out.print("Restore as of (yyyy-MM-dd HH:mm, blank for the latest): ");
+        String input = scanner.nextLine().trim();
+        Instant pointInTime;
+        try {
+            pointInTime = input.isEmpty() ? Instant.now()
+                    : LocalDateTime.parse(input, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"))
+                            .plusMinutes(1).minusNanos(1) // Include backups taken during that minute
+                            .atZone(ZoneId.systemDefault()).toInstant();
+        } catch (DateTimeParseException e) {
+            System.out.println("ERROR: Invalid date. Use the format yyyy-MM-dd HH:mm.");
+            return;
+        }
+        if (persistenceService.restoreBackup(pointInTime) != null) {
+            System.out.println("To roll back, exit CCRM and copy these files over the data files.");
+        }
+    }
+
+    /**
+     * Registers the asynchronous log file sink, unless disabled with -Dccrm.log.file=
+     * (an empty value). The console keeps printing events either way.
+     */
+    private static void openLogFile() {
+        AppConfig config = AppConfig.getInstance();
+        if (config.getLogFile().isEmpty()) {
+            return;
+        }
+        try {
+            Log.addSink(new AsyncFileAppender(Paths.get(config.getLogFile()),
+                    Log.parseLevel(config.getLogFileLevel()), config.getLogBufferCapacity()));
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not open the log file; events will only be shown on the console. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays the journal into the services and starts journaling new changes.
+     * @return The open journal, or null if it could not be opened.
+     */
+    private static Journal openJournal(DataPersistenceService persistenceService, StudentService studentService,
+                                       CourseService courseService, EnrollmentService enrollmentService,
+                                       TranscriptService transcriptService) {
+        AppConfig config = AppConfig.getInstance();
+        Journal journal = new Journal(Paths.get(config.getJournalDirectory()), persistenceService::saveData,
+                config.getJournalGroupCommitMillis(), config.getJournalCompactionThresholdBytes());
+        try {
+            journal.recover(studentService, courseService, enrollmentService, transcriptService);
+            journal.open();
+        } catch (IOException e) {
+            JOURNAL_LOG.at(Level.ERROR, Outcome.JOURNAL_OPEN_FAILED)
+                    .log(() -> "ERROR: Could not open the journal; changes will only be saved by autosave. " + e.getMessage());
+            return null;
+        }
+        studentService.addChangeListener(journal);
+        courseService.addChangeListener(journal);
+        enrollmentService.addChangeListener(journal);
+        transcriptService.addChangeListener(journal);
+        return journal;
+    }
+
+    private static boolean flushJournal(Journal journal) {
+        try {
+            journal.flush();
+            return true;
+        } catch (IOException e) {
+            JOURNAL_LOG.at(Level.ERROR, Outcome.JOURNAL_WRITE_FAILED)
+                    .log(() -> "ERROR: Could not write to the journal. " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean compactJournal(Journal journal) {
+        try {
+            return journal.compact();
+        } catch (IOException e) {
+            JOURNAL_LOG.at(Level.ERROR, Outcome.COMPACTION_FAILED)
+                    .log(() -> "ERROR: Could not compact the journal. " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void closeJournal(Journal journal) {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            JOURNAL_LOG.at(Level.ERROR, Outcome.JOURNAL_WRITE_FAILED)
+                    .log(() -> "ERROR: Could not flush the journal. " + e.getMessage());
+        }
+    }
+
     private static void printMainMenu() {
         System.out.println("\n--- Campus Course & Records Manager ---");
         System.out.println("1. Manage Students");
@@ -83,7 +260,9 @@ public class Main {
         System.out.println("3. Manage Enrollment");
         System.out.println("4. Manage Grades & Transcripts");
         System.out.println("5. Backup Data");
-        System.out.println("6. Show Backup Size (Recursive)");
+        System.out.println("6. Show Backup Size");
+        System.out.println("7. Restore Backup");
+        System.out.println("8. Show Stats");
         System.out.println("0. Exit");
         System.out.print("Enter your choice: ");
     }
@@ -94,6 +273,7 @@ public class Main {
             System.out.println("1. Add New Student");
             System.out.println("2. Find Student by ID");
             System.out.println("3. List All Students");
+            System.out.println("4. Search Students (name, reg no or email)");
             System.out.println("0. Back to Main Menu");
             System.out.print("Enter your choice: ");
 
@@ -131,6 +311,16 @@ public class Main {
                         students.forEach(student -> System.out.println(student.getDetails() + "\n"));
                     }
                     break;
+                case 4:
+                    System.out.print("Enter search text: ");
+                    String query = scanner.nextLine();
+                    List<Student> matches = studentService.search(query, 20);
+                    if (matches.isEmpty()) {
+                        System.out.println("No matching students found.");
+                    } else {
+                        matches.forEach(student -> System.out.println(student.getDetails() + "\n"));
+                    }
+                    break;
                 case 0:
                     return;
                 default:
@@ -140,12 +330,16 @@ public class Main {
         }
     }
     
-    private static void handleCourseManagement(CourseService courseService, Scanner scanner) {
+    private static void handleCourseManagement(CourseService courseService, TimetableService timetableService, Scanner scanner) {
         while (true) {
             System.out.println("\n-- Course Management --");
             System.out.println("1. Add New Course");
             System.out.println("2. Find Course by Code");
             System.out.println("3. List All Courses");
+            System.out.println("4. Search Courses by Title");
+            System.out.println("5. Assign Instructor to Course");
+            System.out.println("6. Show Instructor Teaching Load");
+            System.out.println("7. Generate Timetable");
             System.out.println("0. Back to Main Menu");
             System.out.print("Enter your choice: ");
 
@@ -161,7 +355,10 @@ public class Main {
                     System.out.print("Enter Credits: ");
                     int credits = scanner.nextInt();
                     scanner.nextLine(); // consume newline
-                    Course newCourse = new Course.Builder(code, title).credits(credits).semester(Semester.FALL).build();
+                    System.out.print("Enter Capacity (0 for unlimited): ");
+                    int capacity = scanner.nextInt();
+                    scanner.nextLine(); // consume newline
+                    Course newCourse = new Course.Builder(code, title).credits(credits).semester(Semester.FALL).capacity(capacity).build();
                     courseService.addCourse(newCourse);
                     break;
                 case 2:
@@ -184,6 +381,47 @@ public class Main {
                         courses.forEach(System.out::println);
                     }
                     break;
+                case 4:
+                    System.out.print("Enter part of the title: ");
+                    String query = scanner.nextLine();
+                    List<Course> matches = courseService.search(query, 20);
+                    if (matches.isEmpty()) {
+                        System.out.println("No matching courses found.");
+                    } else {
+                        matches.forEach(System.out::println);
+                    }
+                    break;
+                case 5:
+                    System.out.print("Enter Course Code: ");
+                    String assignCode = scanner.nextLine().trim();
+                    if (courseService.findCourseByCode(assignCode) == null) {
+                        System.out.println("ERROR: Course with code " + assignCode + " not found.");
+                        break;
+                    }
+                    System.out.print("Enter Instructor ID: ");
+                    long instructorId = scanner.nextLong();
+                    scanner.nextLine(); // consume newline
+                    Instructor instructor = courseService.findInstructorById(instructorId);
+                    if (instructor == null) {
+                        System.out.print("New instructor. Enter Full Name: ");
+                        String fullName = scanner.nextLine();
+                        System.out.print("Enter Email: ");
+                        String email = scanner.nextLine();
+                        System.out.print("Enter Department: ");
+                        String department = scanner.nextLine();
+                        instructor = new Instructor(instructorId, fullName, email, department);
+                    }
+                    courseService.assignInstructorToCourse(assignCode, instructor);
+                    break;
+                case 6:
+                    System.out.print("Enter Instructor ID: ");
+                    long loadId = scanner.nextLong();
+                    scanner.nextLine(); // consume newline
+                    printTeachingLoad(courseService, loadId);
+                    break;
+                case 7:
+                    generateTimetable(timetableService, scanner);
+                    break;
                 case 0:
                     return;
                 default:
@@ -193,31 +431,222 @@ public class Main {
     }
 
     private static void handleEnrollmentManagement(EnrollmentService enrollmentService, StudentService studentService, CourseService courseService, Scanner scanner) {
-        System.out.println("\n-- Enroll Student in Course --");
-        System.out.println("Available Students:");
-        studentService.getAllStudents().forEach(s -> System.out.println("  ID: " + s.getId() + ", Name: " + s.getFullName()));
-        System.out.println("\nAvailable Courses:");
-        courseService.getAllCourses().forEach(c -> System.out.println("  Code: " + c.getCode() + ", Title: " + c.getTitle()));
+        while (true) {
+            System.out.println("\n-- Enrollment Management --");
+            System.out.println("1. Enroll Student in Course");
+            System.out.println("2. Drop Student from Course");
+            System.out.println("3. View Course Roster");
+            System.out.println("0. Back to Main Menu");
+            System.out.print("Enter your choice: ");
+
+            int choice = scanner.nextInt();
+            scanner.nextLine(); // Consume newline
+
+            switch (choice) {
+                case 1:
+                    System.out.println("\n-- Enroll Student in Course --");
+                    System.out.println("Available Students:");
+                    studentService.getAllStudents().forEach(s -> System.out.println("  ID: " + s.getId() + ", Name: " + s.getFullName()));
+                    System.out.println("\nAvailable Courses:");
+                    courseService.getAllCourses().forEach(c -> System.out.println("  Code: " + c.getCode() + ", Title: " + c.getTitle()
+                            + (c.isFull() ? " (FULL, " + enrollmentService.getWaitlistSize(c.getCode()) + " waitlisted)" : "")));
+
+                    try {
+                        System.out.print("\nEnter the Student ID: ");
+                        long studentId = scanner.nextLong();
+                        scanner.nextLine();
+                        System.out.print("Enter the Course Code: ");
+                        String courseCode = scanner.nextLine();
+                        enrollmentService.enrollStudent(studentId, courseCode);
+                    } catch (DuplicateEnrollmentException | MaxCreditLimitExceededException | ScheduleConflictException | CourseFullException e) {
+                        System.out.println("ERROR: " + e.getMessage());
+                    } catch (Exception e) {
+                        System.out.println("An unexpected error occurred. Please check your input and try again.");
+                    }
+                    break;
+                case 2:
+                    try {
+                        System.out.print("\nEnter the Student ID: ");
+                        long studentId = scanner.nextLong();
+                        scanner.nextLine();
+                        Student student = studentService.findStudentById(studentId);
+                        if (student != null) {
+                            System.out.println("Enrolled courses for " + student.getFullName() + ":");
+                            enrollmentService.getEnrolledCourses(studentId).forEach(c -> System.out.println("  Code: " + c.getCode() + ", Title: " + c.getTitle()));
+                        }
+                        System.out.print("Enter the Course Code: ");
+                        String courseCode = scanner.nextLine();
+                        enrollmentService.dropStudent(studentId, courseCode);
+                    } catch (Exception e) {
+                        System.out.println("An unexpected error occurred. Please check your input and try again.");
+                    }
+                    break;
+                case 3:
+                    System.out.print("\nEnter the Course Code: ");
+                    printRoster(enrollmentService, courseService, scanner.nextLine().trim(), scanner);
+                    break;
+                case 0:
+                    return;
+                default:
+                    System.out.println("Invalid choice. Please try again.");
+            }
+        }
+    }
 
+    /**
+     * Prints the courses an instructor teaches and their credits per semester.
+     */
+    private static void printTeachingLoad(CourseService courseService, long instructorId) {
+        Instructor instructor = courseService.findInstructorById(instructorId);
+        if (instructor == null) {
+            System.out.println("ERROR: Instructor with ID " + instructorId + " not found.");
+            return;
+        }
+        List<Course> courses = courseService.getCoursesTaughtBy(instructorId);
+        System.out.println(instructor.getFullName() + " (" + instructor.getDepartment() + ") teaches "
+                + courses.size() + " course(s):");
+        courses.forEach(course -> System.out.println("  " + course));
+        courseService.getTeachingLoad(instructorId).forEach((semester, credits) ->
+                System.out.println("  " + semester.getDisplayName() + ": " + credits + " credits"));
+        System.out.println("  Total: " + courseService.getTeachingCredits(instructorId, null) + " credits");
+    }
+
+    /**
+     * Asks for a semester and the rooms available, prints the proposed timetable and
+     * applies it if the user confirms.
+     */
+    private static void generateTimetable(TimetableService timetableService, Scanner scanner) {
+        Semester semester;
+        List<Room> rooms = new ArrayList<>();
         try {
-            System.out.print("\nEnter the Student ID: ");
-            long studentId = scanner.nextLong();
-            scanner.nextLine();
-            System.out.print("Enter the Course Code: ");
-            String courseCode = scanner.nextLine();
-            enrollmentService.enrollStudent(studentId, courseCode);
-        } catch (DuplicateEnrollmentException | MaxCreditLimitExceededException e) {
+            System.out.print("Enter Semester (FALL, SPRING or SUMMER): ");
+            semester = Semester.valueOf(scanner.nextLine().trim().toUpperCase());
+            System.out.print("Enter Rooms as name:seats, separated by commas (e.g., R101:40, LH1:200): ");
+            for (String entry : scanner.nextLine().split(",")) {
+                String[] parts = entry.split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Expected name:seats, got '" + entry.trim() + "'");
+                }
+                rooms.add(new Room(parts[0], Integer.parseInt(parts[1].trim())));
+            }
+        } catch (IllegalArgumentException e) {
             System.out.println("ERROR: " + e.getMessage());
-        } catch (Exception e) {
-            System.out.println("An unexpected error occurred. Please check your input and try again.");
+            return;
+        }
+        Timetable timetable = timetableService.generate(semester, rooms);
+        System.out.println("Timetable for " + semester.getDisplayName() + " (" + timetable.getConflictCount()
+                + " course pairs kept apart, best of " + timetable.getAttemptCount() + " attempts):");
+        timetable.getSchedules().forEach((code, schedule) -> System.out.println("  " + code + ": " + schedule));
+        if (!timetable.getUnscheduled().isEmpty()) {
+            System.out.println("  Could not be placed: " + String.join(", ", timetable.getUnscheduled()));
+        }
+        if (timetable.getSchedules().isEmpty() && timetable.getUnscheduled().isEmpty()) {
+            System.out.println("  No courses in this semester.");
+            return;
+        }
+        System.out.print("Apply this timetable? (y/n): ");
+        if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+            timetableService.apply(timetable);
+            System.out.println("Timetable applied.");
         }
     }
 
+    /**
+     * Prints a course's roster a page at a time, asking before each further page.
+     */
+    private static void printRoster(EnrollmentService enrollmentService, CourseService courseService,
+                                    String courseCode, Scanner scanner) {
+        final int pageSize = 20;
+        Course course = courseService.findCourseByCode(courseCode);
+        if (course == null) {
+            System.out.println("ERROR: Course with code " + courseCode + " not found.");
+            return;
+        }
+        int enrolled = enrollmentService.getEnrolledCount(courseCode);
+        System.out.println("Roster for " + course.getTitle() + " (" + enrolled + " enrolled, "
+                + enrollmentService.getWaitlistSize(courseCode) + " waitlisted):");
+        long lastStudentId = Long.MIN_VALUE;
+        int shown = 0;
+        while (true) {
+            List<Student> page = enrollmentService.getRoster(courseCode, lastStudentId, pageSize);
+            for (Student student : page) {
+                System.out.println("  ID: " + student.getId() + ", Reg No: " + student.getRegNo() + ", Name: " + student.getFullName());
+            }
+            shown += page.size();
+            if (page.size() < pageSize) {
+                return;
+            }
+            lastStudentId = page.get(page.size() - 1).getId();
+            System.out.print("Shown " + shown + ". Press Enter for more, or q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Prints cohort figures computed from the columnar enrollment table.
+     */
+    private static void printGradeReport(EnrollmentTable table) {
+        System.out.println("\n--- Grade Report (" + table.size() + " enrollments) ---");
+        System.out.println("Grade distribution:");
+        table.gradeDistribution().forEach((grade, count) -> System.out.println("  " + grade + ": " + count));
+        System.out.println("GPA by semester:");
+        table.gpaBySemester().forEach((semester, gpa) ->
+                System.out.printf("  %s: %.2f%n", semester.getDisplayName(), gpa));
+        System.out.println("Average grade points by course:");
+        table.averageGradePointsByCourse().forEach((code, average) -> System.out.printf("  %s: %.2f%n", code, average));
+        for (Semester semester : Semester.values()) {
+            int[] load = table.creditLoadDistribution(semester);
+            if (load.length == 0) {
+                continue;
+            }
+            System.out.println("Credit load in " + semester.getDisplayName() + " (credits: students):");
+            for (int credits = 1; credits < load.length; credits++) {
+                if (load[credits] > 0) {
+                    System.out.println("  " + credits + ": " + load[credits]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the registrar's reports over every academic record.
+     */
+    private static void printRegistrarReport(AnalyticsService analytics, StudentService studentService) {
+        final int bins = 10;
+        System.out.println("\n--- Registrar Report ---");
+        System.out.println("Students by CGPA:");
+        long[] histogram = analytics.cgpaHistogram(bins);
+        for (int i = 0; i < bins; i++) {
+            System.out.printf("  %4.1f - %4.1f: %d%n", i * 10.0 / bins, (i + 1) * 10.0 / bins, histogram[i]);
+        }
+        System.out.println("Pass rate by semester:");
+        analytics.passRateBySemester().forEach((semester, rate) ->
+                System.out.printf("  %s: %.1f%%%n", semester.getDisplayName(), rate * 100));
+        System.out.println("Grade distribution by semester:");
+        analytics.gradeDistributionBySemester().forEach((semester, distribution) ->
+                System.out.println("  " + semester.getDisplayName() + ": " + distribution));
+        System.out.println("Top 10 students by CGPA:");
+        analytics.topStudentsByCgpa(10).forEach((studentId, cgpa) -> {
+            Student student = studentService.findStudentById(studentId);
+            System.out.printf("  %.2f  %d %s%n", cgpa, studentId, student == null ? "" : student.getFullName());
+        });
+        System.out.println("Courses (graded, mean grade points, pass rate):");
+        analytics.getAllCourseStatistics().forEach((code, statistics) ->
+                System.out.printf("  %s: %d, %.2f, %.1f%%%n", code, statistics.getGradedCount(),
+                        statistics.getMeanGradePoints().orElse(0), statistics.getPassRate().orElse(0) * 100));
+    }
+
     private static void handleGradesAndTranscripts(TranscriptService transcriptService, StudentService studentService, Scanner scanner) {
         while (true) {
             System.out.println("\n-- Grades & Transcripts --");
             System.out.println("1. Record Grade for Student");
             System.out.println("2. Generate Student Transcript");
+            System.out.println("3. Export All Transcripts to One File");
+            System.out.println("4. Export All Transcripts as Per-Student Files");
+            System.out.println("5. Show Grade Report");
+            System.out.println("6. Show Registrar Report");
             System.out.println("0. Back to Main Menu");
             System.out.print("Enter your choice: ");
 
@@ -260,6 +689,30 @@ public class Main {
                     String transcript = transcriptService.generateTranscript(transcriptStudentId);
                     System.out.println(transcript);
                     break;
+                case 3:
+                    try {
+                        Path file = Paths.get(AppConfig.getInstance().getTranscriptsFile());
+                        new TranscriptBatchWriter(studentService, transcriptService).writeAllToFile(file);
+                        System.out.println("SUCCESS: Transcripts exported to " + file);
+                    } catch (IOException e) {
+                        System.err.println("ERROR: Could not export transcripts. " + e.getMessage());
+                    }
+                    break;
+                case 4:
+                    try {
+                        Path directory = Paths.get(AppConfig.getInstance().getTranscriptsDirectory());
+                        new TranscriptBatchWriter(studentService, transcriptService).writeAllPerStudent(directory);
+                        System.out.println("SUCCESS: Transcripts exported to " + directory);
+                    } catch (IOException e) {
+                        System.err.println("ERROR: Could not export transcripts. " + e.getMessage());
+                    }
+                    break;
+                case 5:
+                    printGradeReport(studentService.getEnrollmentTable());
+                    break;
+                case 6:
+                    printRegistrarReport(new AnalyticsService(transcriptService), studentService);
+                    break;
                 case 0:
                     return;
                 default:
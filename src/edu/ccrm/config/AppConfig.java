@@ -1,5 +1,7 @@
 package edu.ccrm.config;
 
+import java.nio.file.Paths;
+
 /**
  * A Singleton class to manage global application configuration.
  */
@@ -9,10 +11,44 @@ public class AppConfig {
     private static final AppConfig INSTANCE = new AppConfig();
 
     // Configuration properties
+    // Directory holding every data file below; the working directory unless set (run with -Dccrm.dataDir=path).
+    private final String dataDirectory = System.getProperty("ccrm.dataDir", "");
     private final String studentsFile = "students.csv";
     private final String coursesFile = "courses.csv";
     private final String enrollmentsFile = "enrollments.csv";
     private final String backupsDirectory = "backups";
+    private final int backupRetentionCount = 48; // Newest backups kept; older ones are pruned after each backup
+    private final String transcriptsFile = "transcripts.txt";
+    private final String transcriptsDirectory = "transcripts";
+    private final int waitlistCapacity = 50; // Max students waiting for a seat in one full course
+    // Use the parallel, memory-mapped loader on startup (run with -Dccrm.bulkLoad=true).
+    private final boolean bulkLoadEnabled = Boolean.getBoolean("ccrm.bulkLoad");
+    private final String binarySnapshotFile = "ccrm.snapshot";
+    // Manifests list the files of the last completed save with their checksums.
+    private final String csvManifestFile = "data.manifest";
+    private final String binaryManifestFile = "ccrm.snapshot.manifest";
+    // Format used by saveData() and loadData(): "csv" or "binary" (run with -Dccrm.snapshotFormat=binary).
+    private final String snapshotFormat = System.getProperty("ccrm.snapshotFormat", "csv");
+    // Autosave runs once the data has been unchanged for the quiet period, and at the latest
+    // after the maximum delay (override with -Dccrm.autosave.quietMillis / -Dccrm.autosave.maxDelayMillis).
+    private final long autosaveQuietMillis = Long.getLong("ccrm.autosave.quietMillis", 5_000);
+    private final long autosaveMaxDelayMillis = Long.getLong("ccrm.autosave.maxDelayMillis", 60_000);
+    private final String journalDirectory = "journal";
+    private final long journalGroupCommitMillis = 2; // How long a journal write waits to share its sync with others
+    private final long journalCompactionThresholdBytes = 8L * 1024 * 1024; // Journal size that triggers a snapshot
+    // Latency and throughput metrics; disable with -Dccrm.metrics=false to remove their cost entirely.
+    private final boolean metricsEnabled = Boolean.parseBoolean(System.getProperty("ccrm.metrics", "true"));
+    private final String metricsFile = "metrics.txt";
+    private final long metricsDumpIntervalSeconds = Long.getLong("ccrm.metrics.dumpSeconds", 60); // 0 writes only on exit
+    // Events from the services: the console shows ccrm.log.level and above, the log file ccrm.log.fileLevel and above.
+    private final String logLevel = System.getProperty("ccrm.log.level", "INFO");
+    private final String logFile = System.getProperty("ccrm.log.file", "ccrm.log"); // Empty disables the log file
+    private final String logFileLevel = System.getProperty("ccrm.log.fileLevel", "INFO");
+    private final int logBufferCapacity = 8192; // Events the log file's writer can fall behind by before dropping them
+    // Rendered transcripts kept for repeat reads, capped by count and by total characters
+    // (run with -Dccrm.transcriptCache.entries=0 to disable the cache).
+    private final int transcriptCacheEntries = Integer.getInteger("ccrm.transcriptCache.entries", 10_000);
+    private final long transcriptCacheMaxChars = Long.getLong("ccrm.transcriptCache.maxChars", 8L * 1024 * 1024);
 
     // 2. A private constructor to prevent anyone else from creating an instance
     private AppConfig() {
@@ -25,19 +61,122 @@ public class AppConfig {
 
     // --- Getters for configuration properties ---
 
+    public String getDataDirectory() {
+        return dataDirectory;
+    }
+
+    private String inDataDirectory(String file) {
+        return dataDirectory.isEmpty() ? file : Paths.get(dataDirectory, file).toString();
+    }
+
     public String getStudentsFile() {
-        return studentsFile;
+        return inDataDirectory(studentsFile);
     }
 
     public String getCoursesFile() {
-        return coursesFile;
+        return inDataDirectory(coursesFile);
     }
 
     public String getEnrollmentsFile() {
-        return enrollmentsFile;
+        return inDataDirectory(enrollmentsFile);
     }
 
     public String getBackupsDirectory() {
-        return backupsDirectory;
+        return inDataDirectory(backupsDirectory);
+    }
+
+    public int getBackupRetentionCount() {
+        return backupRetentionCount;
+    }
+
+    public String getTranscriptsFile() {
+        return inDataDirectory(transcriptsFile);
+    }
+
+    public String getTranscriptsDirectory() {
+        return inDataDirectory(transcriptsDirectory);
+    }
+
+    public int getWaitlistCapacity() {
+        return waitlistCapacity;
+    }
+
+    public boolean isBulkLoadEnabled() {
+        return bulkLoadEnabled;
+    }
+
+    public String getBinarySnapshotFile() {
+        return inDataDirectory(binarySnapshotFile);
+    }
+
+    public String getCsvManifestFile() {
+        return inDataDirectory(csvManifestFile);
+    }
+
+    public String getBinaryManifestFile() {
+        return inDataDirectory(binaryManifestFile);
+    }
+
+    public String getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public long getAutosaveQuietMillis() {
+        return autosaveQuietMillis;
+    }
+
+    public long getAutosaveMaxDelayMillis() {
+        return autosaveMaxDelayMillis;
+    }
+
+    public String getJournalDirectory() {
+        return inDataDirectory(journalDirectory);
+    }
+
+    public long getJournalGroupCommitMillis() {
+        return journalGroupCommitMillis;
+    }
+
+    public long getJournalCompactionThresholdBytes() {
+        return journalCompactionThresholdBytes;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public String getMetricsFile() {
+        return inDataDirectory(metricsFile);
+    }
+
+    public long getMetricsDumpIntervalSeconds() {
+        return metricsDumpIntervalSeconds;
+    }
+
+    public String getLogLevel() {
+        return logLevel;
+    }
+
+    /**
+     * @return The log file's path, or an empty string if events are not written to a file.
+     */
+    public String getLogFile() {
+        return logFile.isEmpty() ? logFile : inDataDirectory(logFile);
+    }
+
+    public String getLogFileLevel() {
+        return logFileLevel;
+    }
+
+    public int getLogBufferCapacity() {
+        return logBufferCapacity;
+    }
+
+    public int getTranscriptCacheEntries() {
+        return transcriptCacheEntries;
+    }
+
+    public long getTranscriptCacheMaxChars() {
+        return transcriptCacheMaxChars;
     }
 }
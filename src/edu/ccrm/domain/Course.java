@@ -1,5 +1,7 @@
 package edu.ccrm.domain;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Represents a course in the institution.
  * This class uses the Builder pattern for object creation.
@@ -10,7 +12,13 @@ public class Course {
     private final String title;
     private final int credits;
     private final Semester semester;
-    private Instructor instructor;
+    private final int capacity; // 0 means no seat limit
+    // Written by CourseService under its assignment lock; read without it by saves.
+    private volatile Instructor instructor;
+    // Null until the course is timetabled. Written by CourseService; read without a lock.
+    private volatile CourseSchedule schedule;
+    // Seats currently taken. Claimed and released with atomic updates, no lock needed.
+    private final AtomicInteger seatsTaken = new AtomicInteger();
 
     // The constructor is private to force the use of the Builder.
     private Course(Builder builder) {
@@ -18,7 +26,9 @@ public class Course {
         this.title = builder.title;
         this.credits = builder.credits;
         this.semester = builder.semester;
+        this.capacity = builder.capacity;
         this.instructor = builder.instructor;
+        this.schedule = builder.schedule;
     }
 
     @Override
@@ -28,6 +38,8 @@ public class Course {
                ", title='" + title + '\'' +
                ", credits=" + credits +
                ", semester=" + semester.getDisplayName() +
+               ", seats=" + seatsTaken.get() + "/" + (capacity > 0 ? String.valueOf(capacity) : "unlimited") +
+               (schedule != null ? ", schedule=" + schedule : "") +
                '}';
     }
 
@@ -50,6 +62,13 @@ public class Course {
         return semester;
     }
 
+    /**
+     * @return The maximum number of enrolled students, or 0 if the course has no seat limit.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
     public Instructor getInstructor() {
         return instructor;
     }
@@ -58,6 +77,51 @@ public class Course {
         this.instructor = instructor;
     }
 
+    /**
+     * @return When and where the course meets, or null if it has not been timetabled.
+     */
+    public CourseSchedule getSchedule() {
+        return schedule;
+    }
+
+    public void setSchedule(CourseSchedule schedule) {
+        this.schedule = schedule;
+    }
+
+    // --- Seat bookkeeping ---
+    // The seat count is the only state that changes after creation, apart from the instructor and schedule.
+
+    /**
+     * Claims a seat if one is available.
+     * @return true if a seat was claimed, false if the course is full.
+     */
+    public boolean tryReserveSeat() {
+        while (true) {
+            int taken = seatsTaken.get();
+            if (capacity > 0 && taken >= capacity) {
+                return false;
+            }
+            if (seatsTaken.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a seat claimed with tryReserveSeat().
+     */
+    public void releaseSeat() {
+        seatsTaken.decrementAndGet();
+    }
+
+    public int getSeatsTaken() {
+        return seatsTaken.get();
+    }
+
+    public boolean isFull() {
+        return capacity > 0 && seatsTaken.get() >= capacity;
+    }
+
     // --- The static nested Builder class ---
 
     public static class Builder {
@@ -65,7 +129,9 @@ public class Course {
         private String title;
         private int credits;
         private Semester semester;
+        private int capacity;
         private Instructor instructor;
+        private CourseSchedule schedule;
 
         public Builder(String code, String title) {
             this.code = code;
@@ -82,11 +148,27 @@ public class Course {
             return this;
         }
 
+        /**
+         * Sets the maximum number of students. 0 (the default) means no limit.
+         */
+        public Builder capacity(int capacity) {
+            if (capacity < 0) {
+                throw new IllegalArgumentException("Capacity cannot be negative");
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
         public Builder instructor(Instructor instructor) {
             this.instructor = instructor;
             return this;
         }
 
+        public Builder schedule(CourseSchedule schedule) {
+            this.schedule = schedule;
+            return this;
+        }
+
         public Course build() {
             // Create the Course object using the private constructor
             return new Course(this);
@@ -0,0 +1,92 @@
+package edu.ccrm.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * When and where a course meets each week: its meetings and the room they are held in.
+ * Immutable; a course is rescheduled by giving it a new schedule.
+ */
+public class CourseSchedule {
+
+    private final String room;
+    private final List<MeetingSlot> meetings;
+
+    /**
+     * @param room The room every meeting is held in.
+     * @param meetings At least one meeting, none overlapping another.
+     */
+    public CourseSchedule(String room, List<MeetingSlot> meetings) {
+        if (room == null || room.trim().isEmpty()) {
+            throw new IllegalArgumentException("A schedule needs a room");
+        }
+        if (meetings.isEmpty()) {
+            throw new IllegalArgumentException("A schedule needs at least one meeting");
+        }
+        for (int i = 0; i < meetings.size(); i++) {
+            for (int j = i + 1; j < meetings.size(); j++) {
+                if (meetings.get(i).overlaps(meetings.get(j))) {
+                    throw new IllegalArgumentException("Meetings overlap: " + meetings.get(i) + " and " + meetings.get(j));
+                }
+            }
+        }
+        this.room = room.trim();
+        this.meetings = Collections.unmodifiableList(new ArrayList<>(meetings));
+    }
+
+    /**
+     * Parses meetings written by formatMeetings(), such as "MON 09:00-09:50;WED 09:00-09:50".
+     * @throws IllegalArgumentException if any meeting is not a valid slot.
+     */
+    public static List<MeetingSlot> parseMeetings(String text) {
+        List<MeetingSlot> meetings = new ArrayList<>();
+        for (String slot : text.split(";")) {
+            if (!slot.trim().isEmpty()) {
+                meetings.add(MeetingSlot.parse(slot));
+            }
+        }
+        return meetings;
+    }
+
+    public String getRoom() {
+        return room;
+    }
+
+    public List<MeetingSlot> getMeetings() {
+        return meetings;
+    }
+
+    /**
+     * @return true if any meeting of this schedule overlaps one of the other's, whatever the rooms.
+     */
+    public boolean overlaps(CourseSchedule other) {
+        for (MeetingSlot meeting : meetings) {
+            for (MeetingSlot otherMeeting : other.meetings) {
+                if (meeting.overlaps(otherMeeting)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The meetings separated by semicolons, as read by parseMeetings().
+     */
+    public String formatMeetings() {
+        StringBuilder text = new StringBuilder();
+        for (MeetingSlot meeting : meetings) {
+            if (text.length() > 0) {
+                text.append(';');
+            }
+            text.append(meeting);
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return formatMeetings().replace(";", ", ") + " in " + room;
+    }
+}
@@ -23,4 +23,11 @@ public enum Grade {
     public double getGradePoints() {
         return gradePoints;
     }
+
+    /**
+     * @return true for every grade except F.
+     */
+    public boolean isPassing() {
+        return this != F;
+    }
 }
@@ -0,0 +1,131 @@
+package edu.ccrm.domain;
+
+import java.time.DayOfWeek;
+import java.util.Locale;
+
+/**
+ * One weekly meeting of a course: a day and a time range, in minutes after midnight.
+ * The end is exclusive, so back-to-back meetings (9:00-9:50 and 9:50-10:40) do not overlap.
+ * Written and parsed as e.g. "MON 09:00-09:50".
+ */
+public class MeetingSlot {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private final DayOfWeek day;
+    private final int startMinute;
+    private final int endMinute;
+
+    /**
+     * @param startMinute Minutes after midnight the meeting starts.
+     * @param endMinute Minutes after midnight it ends; after the start and no later than midnight.
+     */
+    public MeetingSlot(DayOfWeek day, int startMinute, int endMinute) {
+        if (day == null) {
+            throw new IllegalArgumentException("A meeting needs a day");
+        }
+        if (startMinute < 0 || endMinute <= startMinute || endMinute > MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Invalid meeting time: " + startMinute + "-" + endMinute);
+        }
+        this.day = day;
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+    }
+
+    /**
+     * Parses a slot written by toString(), such as "MON 09:00-09:50".
+     * @throws IllegalArgumentException if the text is not a valid slot.
+     */
+    public static MeetingSlot parse(String text) {
+        String[] parts = text.trim().split("\\s+");
+        int dash = parts.length == 2 ? parts[1].indexOf('-') : -1;
+        if (dash < 0) {
+            throw new IllegalArgumentException("Expected a slot like MON 09:00-09:50, got: " + text);
+        }
+        return new MeetingSlot(parseDay(parts[0]), parseTime(parts[1].substring(0, dash)),
+                parseTime(parts[1].substring(dash + 1)));
+    }
+
+    public DayOfWeek getDay() {
+        return day;
+    }
+
+    public int getStartMinute() {
+        return startMinute;
+    }
+
+    public int getEndMinute() {
+        return endMinute;
+    }
+
+    /**
+     * @return The start as minutes after midnight on Monday.
+     */
+    public int getWeekStartMinute() {
+        return (day.getValue() - 1) * MINUTES_PER_DAY + startMinute;
+    }
+
+    /**
+     * @return The end as minutes after midnight on Monday.
+     */
+    public int getWeekEndMinute() {
+        return (day.getValue() - 1) * MINUTES_PER_DAY + endMinute;
+    }
+
+    /**
+     * @return true if both meetings are on the same day and their times overlap.
+     */
+    public boolean overlaps(MeetingSlot other) {
+        return day == other.day && startMinute < other.endMinute && other.startMinute < endMinute;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MeetingSlot)) {
+            return false;
+        }
+        MeetingSlot other = (MeetingSlot) o;
+        return day == other.day && startMinute == other.startMinute && endMinute == other.endMinute;
+    }
+
+    @Override
+    public int hashCode() {
+        return getWeekStartMinute() * 31 + endMinute;
+    }
+
+    @Override
+    public String toString() {
+        return day.name().substring(0, 3) + " " + formatTime(startMinute) + "-" + formatTime(endMinute);
+    }
+
+    private static DayOfWeek parseDay(String text) {
+        String prefix = text.toUpperCase(Locale.ROOT);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (prefix.length() >= 3 && day.name().startsWith(prefix)) {
+                return day;
+            }
+        }
+        throw new IllegalArgumentException("Unknown day: " + text);
+    }
+
+    private static int parseTime(String text) {
+        int colon = text.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Expected a time like 09:00, got: " + text);
+        }
+        int hours = Integer.parseInt(text.substring(0, colon));
+        int minutes = Integer.parseInt(text.substring(colon + 1));
+        if (hours < 0 || hours > 24 || minutes < 0 || minutes > 59) {
+            throw new IllegalArgumentException("Invalid time: " + text);
+        }
+        return hours * 60 + minutes;
+    }
+
+    private static String formatTime(int minute) {
+        return String.format("%02d:%02d", minute / 60, minute % 60);
+    }
+}
@@ -0,0 +1,37 @@
+package edu.ccrm.domain;
+
+/**
+ * A teaching room the timetable can place courses in.
+ */
+public class Room {
+
+    private final String name;
+    private final int capacity;
+
+    /**
+     * @param capacity The number of seats; a course is only placed in a room that seats all its students.
+     */
+    public Room(String name, int capacity) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("A room needs a name");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Room capacity must be positive");
+        }
+        this.name = name.trim();
+        this.capacity = capacity;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + capacity + " seats)";
+    }
+}
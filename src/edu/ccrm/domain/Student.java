@@ -1,8 +1,11 @@
 package edu.ccrm.domain;
 
-import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Represents a student, inheriting common properties from Person.
@@ -10,9 +13,24 @@ import java.util.List;
  */
 public class Student extends Person {
 
+    // One slot per Semester, plus a last slot for courses with no semester set.
+    private static final int UNSCHEDULED_SLOT = Semester.values().length;
+    private static final AtomicIntegerFieldUpdater<Student> REVISION =
+            AtomicIntegerFieldUpdater.newUpdater(Student.class, "revision");
+
     private String regNo;
     private String status; // e.g., "Active", "Inactive", "Graduated"
-    private List<Course> enrolledCourses;
+    // Keyed by course code, in enrollment order, so membership checks are O(1).
+    private final Map<String, Course> enrolledCourses;
+    private final Collection<Course> enrolledCoursesView;
+    // Running credit totals, kept in step with enrolledCourses.
+    private final int[] creditsBySemester;
+    private int totalCredits;
+    // Notified when a profile field changes; set by the service that stores this student.
+    private volatile StudentChangeListener changeListener;
+    // Bumped by every change that shows on the student's transcript: profile fields,
+    // enrollments and grades. Caches of rendered views compare it to spot stale entries.
+    private volatile int revision;
 
     public Student(long id, String regNo, String fullName, String email) {
         // Call the constructor of the parent class (Person) first.
@@ -21,7 +39,9 @@ public class Student extends Person {
         // Now, initialize the fields specific to the Student class.
         this.regNo = regNo;
         this.status = "Active"; // Default status for a new student
-        this.enrolledCourses = new ArrayList<>();
+        this.enrolledCourses = new LinkedHashMap<>();
+        this.enrolledCoursesView = Collections.unmodifiableCollection(enrolledCourses.values());
+        this.creditsBySemester = new int[UNSCHEDULED_SLOT + 1];
     }
 
     /**
@@ -45,7 +65,9 @@ public class Student extends Person {
     }
 
     public void setRegNo(String regNo) {
+        String oldValue = this.regNo;
         this.regNo = regNo;
+        fireProfileChanged(StudentChangeListener.Field.REG_NO, oldValue, regNo);
     }
 
     public String getStatus() {
@@ -53,10 +75,123 @@ public class Student extends Person {
     }
 
     public void setStatus(String status) {
+        String oldValue = this.status;
         this.status = status;
+        fireProfileChanged(StudentChangeListener.Field.STATUS, oldValue, status);
+    }
+
+    @Override
+    public void setFullName(String fullName) {
+        String oldValue = this.fullName;
+        super.setFullName(fullName);
+        fireProfileChanged(StudentChangeListener.Field.FULL_NAME, oldValue, fullName);
+    }
+
+    @Override
+    public void setEmail(String email) {
+        String oldValue = this.email;
+        super.setEmail(email);
+        fireProfileChanged(StudentChangeListener.Field.EMAIL, oldValue, email);
+    }
+
+    public void setChangeListener(StudentChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    private void fireProfileChanged(StudentChangeListener.Field field, String oldValue, String newValue) {
+        markRevised();
+        StudentChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.onProfileChanged(this, field, oldValue, newValue);
+        }
+    }
+
+    /**
+     * @return A number that changes whenever the student's profile, enrollments or grades change.
+     */
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Records that something shown on the student's transcript has changed. The setters and
+     * enrollment methods call this themselves; TranscriptService calls it when a grade changes.
+     */
+    public void markRevised() {
+        REVISION.incrementAndGet(this);
     }
 
+    /**
+     * Returns a read-only copy of the enrolled courses, in the order they were enrolled.
+     * Use enrollInCourse() and dropCourse() to change enrollments.
+     */
     public List<Course> getEnrolledCourses() {
-        return enrolledCourses;
+        return List.copyOf(enrolledCourses.values());
+    }
+
+    /**
+     * Returns a read-only live view of the enrolled courses, in the order they were enrolled,
+     * without copying them. Callers must hold the student's lock while iterating it.
+     */
+    public Collection<Course> getEnrolledCoursesView() {
+        return enrolledCoursesView;
+    }
+
+    // --- Enrollment bookkeeping ---
+    // These methods are not synchronized themselves; EnrollmentService
+    // serializes changes per student with its lock stripes.
+
+    /**
+     * Adds a course to this student's enrollments and updates the credit totals.
+     * @return false if the student is already enrolled in a course with the same code.
+     */
+    public boolean enrollInCourse(Course course) {
+        if (enrolledCourses.putIfAbsent(course.getCode(), course) != null) {
+            return false;
+        }
+        creditsBySemester[slotOf(course.getSemester())] += course.getCredits();
+        totalCredits += course.getCredits();
+        markRevised();
+        return true;
+    }
+
+    /**
+     * Removes a course from this student's enrollments and updates the credit totals.
+     * @return The dropped Course, or null if the student was not enrolled in it.
+     */
+    public Course dropCourse(String courseCode) {
+        Course course = enrolledCourses.remove(courseCode);
+        if (course != null) {
+            creditsBySemester[slotOf(course.getSemester())] -= course.getCredits();
+            totalCredits -= course.getCredits();
+            markRevised();
+        }
+        return course;
+    }
+
+    public boolean isEnrolledIn(String courseCode) {
+        return enrolledCourses.containsKey(courseCode);
+    }
+
+    /**
+     * @return The enrolled course with the given code, or null if not enrolled.
+     */
+    public Course getEnrolledCourse(String courseCode) {
+        return enrolledCourses.get(courseCode);
+    }
+
+    /**
+     * @return The credits enrolled in the given semester (null means courses with no semester set).
+     */
+    public int getCreditsForSemester(Semester semester) {
+        return creditsBySemester[slotOf(semester)];
+    }
+
+    public int getTotalCredits() {
+        return totalCredits;
+    }
+
+    private static int slotOf(Semester semester) {
+        return semester == null ? UNSCHEDULED_SLOT : semester.ordinal();
     }
 }
@@ -0,0 +1,20 @@
+package edu.ccrm.domain;
+
+/**
+ * Receives a callback whenever one of a student's profile fields is changed
+ * through its setters, so indexes over those fields can be kept up to date.
+ */
+public interface StudentChangeListener {
+
+    /**
+     * The profile fields that report changes.
+     */
+    enum Field {
+        REG_NO,
+        FULL_NAME,
+        EMAIL,
+        STATUS
+    }
+
+    void onProfileChanged(Student student, Field field, String oldValue, String newValue);
+}
@@ -0,0 +1,126 @@
+package edu.ccrm.io;
+
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Outcome;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Saves a set of files as one all-or-nothing snapshot.
+ * Each file is written to a temp file next to it and synced. commit() then
+ * publishes them together: the manifest is renamed into place first (the commit
+ * point), followed by the data files. Until the commit the live files are untouched,
+ * so a crash or error at any time leaves either the old snapshot or the new one.
+ *
+ * Usage:
+ *   try (AtomicSnapshotWriter snapshot = new AtomicSnapshotWriter(manifest, format)) {
+ *       write to snapshot.create(file) for each file...
+ *       snapshot.commit();
+ *   }
+ * Closing without committing discards the temp files.
+ */
+class AtomicSnapshotWriter implements Closeable {
+
+    private final Path manifestFile;
+    private final SnapshotFormat format;
+    private final Map<Path, ChecksummedFileOutput> outputs = new LinkedHashMap<>();
+    private final Map<Path, Long> recordCounts = new LinkedHashMap<>();
+    private boolean committed;
+
+    AtomicSnapshotWriter(Path manifestFile, SnapshotFormat format) {
+        this.manifestFile = manifestFile;
+        this.format = format;
+    }
+
+    /**
+     * Opens the temp file that will replace the given file on commit.
+     */
+    OutputStream create(Path file) throws IOException {
+        ChecksummedFileOutput output = new ChecksummedFileOutput(SnapshotManifest.tempFor(file));
+        outputs.put(file, output);
+        return output;
+    }
+
+    /**
+     * @return The number of bytes written so far to the temp file for the given file.
+     */
+    long getBytesWritten(Path file) {
+        ChecksummedFileOutput output = outputs.get(file);
+        return output == null ? 0 : output.getBytes();
+    }
+
+    /**
+     * Sets the record count written to the manifest for a file. By default it is the number of lines.
+     */
+    void setRecordCount(Path file, long records) {
+        recordCounts.put(file, records);
+    }
+
+    /**
+     * Syncs every file, then publishes the manifest and the files.
+     */
+    void commit() throws IOException {
+        SnapshotManifest manifest = new SnapshotManifest(format);
+        for (Map.Entry<Path, ChecksummedFileOutput> entry : outputs.entrySet()) {
+            ChecksummedFileOutput output = entry.getValue();
+            output.close();
+            long records = recordCounts.getOrDefault(entry.getKey(), output.getLines());
+            manifest.add(new SnapshotManifest.Entry(entry.getKey().toString(), output.getBytes(), records, output.getChecksum()));
+        }
+        Path manifestTemp = SnapshotManifest.tempFor(manifestFile);
+        manifest.write(manifestTemp);
+
+        Files.move(manifestTemp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true; // From here on, loading rolls the remaining renames forward.
+        Set<Path> directories = new LinkedHashSet<>();
+        directories.add(manifestFile.toAbsolutePath().getParent());
+        for (Path file : outputs.keySet()) {
+            Files.move(SnapshotManifest.tempFor(file), file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            directories.add(file.toAbsolutePath().getParent());
+        }
+        for (Path directory : directories) {
+            syncDirectory(directory);
+        }
+    }
+
+    /**
+     * Makes the renames durable. Not every platform can sync a directory, so failures are ignored.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort only.
+        }
+    }
+
+    /**
+     * Discards the temp files if the snapshot was not committed.
+     */
+    @Override
+    public void close() {
+        if (committed) {
+            return;
+        }
+        for (Map.Entry<Path, ChecksummedFileOutput> entry : outputs.entrySet()) {
+            try {
+                entry.getValue().close();
+                Files.deleteIfExists(SnapshotManifest.tempFor(entry.getKey()));
+            } catch (IOException e) {
+                DataPersistenceService.LOG.at(Level.WARN, Outcome.CLEANUP_FAILED).with("file", entry.getKey())
+                        .log(() -> "Could not remove temp file for " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseSchedule;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Instructor;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.DataChangeListener;
+
+import java.io.Closeable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Saves the data in the background whenever it has changed, so the CLI thread
+ * never waits for disk I/O and a crash loses at most a few seconds of work.
+ *
+ * Register it as a DataChangeListener on the services. A save runs once the data
+ * has been quiet for a short while, so a burst of edits is saved once rather than
+ * once per edit, but never later than a maximum delay after the first unsaved
+ * change, so a steady stream of edits is still saved regularly. Saves run on a
+ * single background thread; a shutdown hook saves any remaining changes when the
+ * JVM exits.
+ */
+public class AutosaveScheduler implements DataChangeListener, Closeable {
+
+    private final BooleanSupplier saveAction;
+    private final long quietNanos;
+    private final long maxDelayNanos;
+    private final ScheduledThreadPoolExecutor executor =
+            new ScheduledThreadPoolExecutor(1, Journal.daemonThreadFactory("ccrm-autosave"));
+
+    // Every change bumps changeCount; a save records how far it got in savedChangeCount.
+    private final AtomicLong changeCount = new AtomicLong();
+    private volatile long savedChangeCount;
+    private volatile long lastChangeNanos;
+    private final AtomicLong firstUnsavedNanos = new AtomicLong(); // 0 when everything is saved
+    private final AtomicBoolean checkScheduled = new AtomicBoolean();
+    private final Object saveLock = new Object();
+    private final Thread shutdownHook = new Thread(this::saveNow, "ccrm-autosave-shutdown");
+    private volatile boolean closed;
+
+    /**
+     * @param saveAction Saves all data, returning true on success (normally DataPersistenceService::saveData,
+     *                   or Journal.flush() when a journal already records every change).
+     * @param quietMillis How long the data must go unchanged before it is saved.
+     * @param maxDelayMillis The longest a change may stay unsaved while edits keep coming.
+     */
+    public AutosaveScheduler(BooleanSupplier saveAction, long quietMillis, long maxDelayMillis) {
+        this.saveAction = saveAction;
+        this.quietNanos = TimeUnit.MILLISECONDS.toNanos(quietMillis);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(quietMillis, maxDelayMillis));
+        // On close, drop the pending checks but let a save that has started finish.
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Registers the shutdown hook. Call once, after the data has been loaded.
+     */
+    public void start() {
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * @return true if there are changes that have not been saved yet.
+     */
+    public boolean isDirty() {
+        return changeCount.get() != savedChangeCount;
+    }
+
+    private void markDirty() {
+        long now = System.nanoTime();
+        lastChangeNanos = now;
+        firstUnsavedNanos.compareAndSet(0, now);
+        changeCount.incrementAndGet();
+        // One pending check covers any number of changes.
+        if (!closed && checkScheduled.compareAndSet(false, true)) {
+            schedule(quietNanos);
+        }
+    }
+
+    private void schedule(long delayNanos) {
+        try {
+            executor.schedule(this::check, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            checkScheduled.set(false); // Closing; close() saves whatever is left.
+        }
+    }
+
+    /**
+     * Runs on the background thread: saves if the data has been quiet long enough or a
+     * change has waited too long, otherwise checks again when one of those will be true.
+     */
+    private void check() {
+        if (isDirty()) {
+            long now = System.nanoTime();
+            long quietLeft = quietNanos - (now - lastChangeNanos);
+            long first = firstUnsavedNanos.get();
+            long maxDelayLeft = first == 0 ? 0 : maxDelayNanos - (now - first);
+            if (quietLeft > 0 && maxDelayLeft > 0) {
+                schedule(Math.min(quietLeft, maxDelayLeft));
+                return;
+            }
+            saveNow();
+        }
+        checkScheduled.set(false);
+        // A change made during the save, or a failed save, needs another check.
+        if (isDirty() && !closed && checkScheduled.compareAndSet(false, true)) {
+            schedule(quietNanos);
+        }
+    }
+
+    /**
+     * Saves immediately if there are unsaved changes, on the calling thread.
+     * @return false if a save was needed and failed.
+     */
+    public boolean saveNow() {
+        synchronized (saveLock) {
+            long savingUpTo = changeCount.get();
+            if (savingUpTo == savedChangeCount) {
+                return true;
+            }
+            long first = firstUnsavedNanos.getAndSet(0);
+            boolean saved = saveAction.getAsBoolean();
+            if (saved) {
+                // Changes made while saving may or may not be included, so they still count as unsaved.
+                savedChangeCount = savingUpTo;
+            } else {
+                firstUnsavedNanos.compareAndSet(0, first);
+            }
+            return saved;
+        }
+    }
+
+    /**
+     * Stops the background thread and saves any remaining changes.
+     */
+    @Override
+    public void close() {
+        stop();
+        saveNow();
+    }
+
+    /**
+     * Stops the background thread without saving. Use when the changes are already
+     * durable elsewhere, for example in the journal.
+     */
+    public void cancel() {
+        stop();
+    }
+
+    private void stop() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            // Already shutting down, or start() was never called.
+        }
+    }
+
+    // --- DataChangeListener ---
+
+    @Override
+    public void studentAdded(Student student) {
+        markDirty();
+    }
+
+    @Override
+    public void studentUpdated(Student student) {
+        markDirty();
+    }
+
+    @Override
+    public void courseAdded(Course course) {
+        markDirty();
+    }
+
+    @Override
+    public void instructorAssigned(String courseCode, Instructor instructor) {
+        markDirty();
+    }
+
+    @Override
+    public void courseScheduled(String courseCode, CourseSchedule schedule) {
+        markDirty();
+    }
+
+    @Override
+    public void studentEnrolled(long studentId, String courseCode) {
+        markDirty();
+    }
+
+    @Override
+    public void studentDropped(long studentId, String courseCode) {
+        markDirty();
+    }
+
+    @Override
+    public void gradeRecorded(long studentId, String courseCode, Grade grade) {
+        markDirty();
+    }
+}
@@ -0,0 +1,502 @@
+package edu.ccrm.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A deduplicating backup store. Each backed-up file is split into content-defined
+ * chunks (see ContentChunker); every chunk is compressed and stored once under
+ * chunks/, named by its SHA-256 hash. A backup is then just a list of chunk hashes
+ * per file, so a backup of files that barely changed writes only the changed chunks.
+ *
+ * A catalog file records every backup and every stored chunk with its size, so the
+ * total size of the backups is known without walking the directory. Old backups can
+ * be pruned, after which chunks no longer used by any backup are deleted.
+ *
+ * Layout of the backups directory:
+ *   catalog.txt                  the catalog, rewritten atomically on every change
+ *   chunks/ab/abcdef0123...      one compressed chunk per file
+ */
+public class BackupStore {
+
+    private static final String CATALOG_FILE = "catalog.txt";
+    private static final String CATALOG_HEADER = "ccrm-backup-catalog 1";
+    private static final String CHUNKS_DIRECTORY = "chunks";
+    private static final DateTimeFormatter ID_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+    // First byte of a chunk file: how the rest of it is stored.
+    private static final int STORED_RAW = 0;
+    private static final int STORED_DEFLATED = 1;
+
+    private final Path directory;
+    private final List<Backup> backups = new ArrayList<>(); // Oldest first
+    private final Map<String, StoredChunk> chunks = new HashMap<>();
+    // Running totals, so size reports need no directory walk.
+    private long storedBytes;
+    private long logicalBytes;
+
+    private BackupStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the store in the given directory, reading its catalog if there is one.
+     */
+    public static BackupStore open(Path directory) throws IOException {
+        BackupStore store = new BackupStore(directory);
+        Path catalog = directory.resolve(CATALOG_FILE);
+        if (Files.exists(catalog)) {
+            store.readCatalog(catalog);
+        }
+        return store;
+    }
+
+    /**
+     * A summary of one backup.
+     */
+    public static class BackupInfo {
+        private final String id;
+        private final Instant createdAt;
+        private final int fileCount;
+        private final long logicalBytes;
+        private final long newBytes;
+
+        BackupInfo(String id, Instant createdAt, int fileCount, long logicalBytes, long newBytes) {
+            this.id = id;
+            this.createdAt = createdAt;
+            this.fileCount = fileCount;
+            this.logicalBytes = logicalBytes;
+            this.newBytes = newBytes;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Instant getCreatedAt() {
+            return createdAt;
+        }
+
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        /**
+         * @return The total size of the files in the backup, before deduplication and compression.
+         */
+        public long getLogicalBytes() {
+            return logicalBytes;
+        }
+
+        /**
+         * @return The bytes this backup added to the store when it was created (0 when read from the catalog).
+         */
+        public long getNewBytes() {
+            return newBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s  %d files  %.1f KB", id, fileCount, logicalBytes / 1024.0);
+        }
+    }
+
+    // --- Backing up ---
+
+    /**
+     * Backs up the given files, storing only the chunks the store does not already have.
+     * Files that do not exist are skipped.
+     */
+    public synchronized BackupInfo createBackup(List<Path> files) throws IOException {
+        Files.createDirectories(directory.resolve(CHUNKS_DIRECTORY));
+        Instant now = Instant.now();
+        Backup backup = new Backup(uniqueId(now), now);
+        long newBytes = 0;
+        MessageDigest digest = sha256();
+        for (Path file : files) {
+            if (!Files.exists(file)) {
+                continue;
+            }
+            BackedUpFile entry = new BackedUpFile(file.toString(), Files.size(file));
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+                ContentChunker chunker = new ContentChunker(in);
+                byte[] chunk;
+                while ((chunk = chunker.next()) != null) {
+                    String hash = toHex(digest.digest(chunk));
+                    if (!chunks.containsKey(hash)) {
+                        long stored = writeChunk(hash, chunk);
+                        chunks.put(hash, new StoredChunk(stored));
+                        storedBytes += stored;
+                        newBytes += stored;
+                    }
+                    entry.chunkHashes.add(hash);
+                }
+            }
+            backup.files.add(entry);
+            backup.logicalBytes += entry.size;
+        }
+        backups.add(backup);
+        logicalBytes += backup.logicalBytes;
+        writeCatalog();
+        return backup.toInfo(newBytes);
+    }
+
+    private String uniqueId(Instant time) {
+        String base = LocalDateTime.ofInstant(time, ZoneId.systemDefault()).format(ID_FORMAT);
+        String id = base;
+        for (int n = 2; findBackup(id) != null; n++) {
+            id = base + "-" + n;
+        }
+        return id;
+    }
+
+    /**
+     * Compresses a chunk and writes it under its hash, unless an identical file is already there.
+     * @return The number of bytes stored.
+     */
+    private long writeChunk(String hash, byte[] chunk) throws IOException {
+        Path file = chunkPath(hash);
+        byte[] compressed = deflate(chunk);
+        boolean useCompressed = compressed.length < chunk.length;
+        long stored = 1L + (useCompressed ? compressed.length : chunk.length);
+        if (Files.exists(file) && Files.size(file) == stored) {
+            return stored; // Left over from a backup whose catalog update did not complete.
+        }
+        Files.createDirectories(file.getParent());
+        Path temp = SnapshotManifest.tempFor(file);
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            out.write(useCompressed ? STORED_DEFLATED : STORED_RAW);
+            out.write(useCompressed ? compressed : chunk);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return stored;
+    }
+
+    // --- Restoring ---
+
+    /**
+     * @return The newest backup taken at or before the given time, or null if there is none.
+     */
+    public synchronized BackupInfo findBackupAsOf(Instant pointInTime) {
+        for (int i = backups.size() - 1; i >= 0; i--) {
+            if (!backups.get(i).createdAt.isAfter(pointInTime)) {
+                return backups.get(i).toInfo(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Restores the files of one backup into the given directory, checking every chunk's hash.
+     * @return The files written.
+     */
+    public synchronized List<Path> restore(String backupId, Path targetDirectory) throws IOException {
+        Backup backup = findBackup(backupId);
+        if (backup == null) {
+            throw new IOException("No backup named " + backupId);
+        }
+        MessageDigest digest = sha256();
+        List<Path> restored = new ArrayList<>();
+        for (BackedUpFile file : backup.files) {
+            Path target = restoreTarget(targetDirectory, file.name);
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(target)) {
+                for (String hash : file.chunkHashes) {
+                    byte[] chunk = readChunk(hash);
+                    if (!toHex(digest.digest(chunk)).equals(hash)) {
+                        throw new IOException("Backup chunk " + hash + " is corrupt");
+                    }
+                    out.write(chunk);
+                }
+            }
+            restored.add(target);
+        }
+        return restored;
+    }
+
+    /**
+     * Maps a backed-up file name into the target directory. Absolute names and names
+     * that would climb out of it are reduced to their last component.
+     */
+    private static Path restoreTarget(Path targetDirectory, String name) {
+        Path relative = Paths.get(name).normalize();
+        if (relative.isAbsolute() || relative.startsWith("..")) {
+            relative = relative.getFileName();
+        }
+        return targetDirectory.resolve(relative);
+    }
+
+    private byte[] readChunk(String hash) throws IOException {
+        byte[] stored = Files.readAllBytes(chunkPath(hash));
+        if (stored.length == 0) {
+            throw new IOException("Backup chunk " + hash + " is empty");
+        }
+        if (stored[0] == STORED_RAW) {
+            return Arrays.copyOfRange(stored, 1, stored.length);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored, 1, stored.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(ContentChunker.MAX_CHUNK);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Backup chunk " + hash + " is truncated");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Backup chunk " + hash + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // --- Retention ---
+
+    /**
+     * Deletes all but the newest backups, then deletes the chunks no remaining backup uses.
+     * @param keepLatest How many of the newest backups to keep.
+     * @return The number of backups removed.
+     */
+    public synchronized int prune(int keepLatest) throws IOException {
+        int remove = backups.size() - Math.max(0, keepLatest);
+        if (remove <= 0) {
+            return 0;
+        }
+        for (Backup backup : backups.subList(0, remove)) {
+            logicalBytes -= backup.logicalBytes;
+        }
+        backups.subList(0, remove).clear();
+
+        Set<String> inUse = new HashSet<>();
+        for (Backup backup : backups) {
+            for (BackedUpFile file : backup.files) {
+                inUse.addAll(file.chunkHashes);
+            }
+        }
+        List<String> unused = new ArrayList<>();
+        for (Map.Entry<String, StoredChunk> entry : chunks.entrySet()) {
+            if (!inUse.contains(entry.getKey())) {
+                unused.add(entry.getKey());
+            }
+        }
+        // The catalog is updated first, so a crash can only leave unused chunk files behind.
+        for (String hash : unused) {
+            storedBytes -= chunks.remove(hash).storedBytes;
+        }
+        writeCatalog();
+        for (String hash : unused) {
+            Files.deleteIfExists(chunkPath(hash));
+        }
+        return remove;
+    }
+
+    // --- Reporting ---
+
+    /**
+     * @return The backups in the store, oldest first.
+     */
+    public synchronized List<BackupInfo> listBackups() {
+        List<BackupInfo> infos = new ArrayList<>(backups.size());
+        for (Backup backup : backups) {
+            infos.add(backup.toInfo(0));
+        }
+        return Collections.unmodifiableList(infos);
+    }
+
+    public synchronized int getBackupCount() {
+        return backups.size();
+    }
+
+    /**
+     * @return The disk space used by the stored chunks.
+     */
+    public synchronized long getStoredBytes() {
+        return storedBytes;
+    }
+
+    /**
+     * @return The total size of all backed-up files, as if each backup were a full copy.
+     */
+    public synchronized long getLogicalBytes() {
+        return logicalBytes;
+    }
+
+    // --- Catalog ---
+
+    private void readCatalog(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!CATALOG_HEADER.equals(reader.readLine())) {
+                throw new IOException("Unrecognized backup catalog " + file);
+            }
+            Backup current = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                switch (parts[0]) {
+                    case "chunk":
+                        long stored = Long.parseLong(parts[2]);
+                        chunks.put(parts[1], new StoredChunk(stored));
+                        storedBytes += stored;
+                        break;
+                    case "backup":
+                        current = new Backup(parts[1], Instant.ofEpochMilli(Long.parseLong(parts[2])));
+                        backups.add(current);
+                        break;
+                    case "file":
+                        if (current == null) {
+                            throw new IOException("Backup catalog lists a file outside any backup");
+                        }
+                        BackedUpFile entry = new BackedUpFile(parts[1], Long.parseLong(parts[2]));
+                        if (parts.length > 3 && !parts[3].isEmpty()) {
+                            Collections.addAll(entry.chunkHashes, parts[3].split(","));
+                        }
+                        current.files.add(entry);
+                        current.logicalBytes += entry.size;
+                        logicalBytes += entry.size;
+                        break;
+                    default:
+                        throw new IOException("Unrecognized backup catalog line '" + line + "'");
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Backup catalog " + file + " is corrupt", e);
+        }
+    }
+
+    /**
+     * Rewrites the catalog through a synced temp file and an atomic rename.
+     */
+    private void writeCatalog() throws IOException {
+        StringBuilder text = new StringBuilder(CATALOG_HEADER).append('\n');
+        for (Map.Entry<String, StoredChunk> entry : chunks.entrySet()) {
+            text.append("chunk\t").append(entry.getKey()).append('\t').append(entry.getValue().storedBytes).append('\n');
+        }
+        for (Backup backup : backups) {
+            text.append("backup\t").append(backup.id).append('\t').append(backup.createdAt.toEpochMilli()).append('\n');
+            for (BackedUpFile file : backup.files) {
+                text.append("file\t").append(file.name).append('\t').append(file.size).append('\t')
+                    .append(String.join(",", file.chunkHashes)).append('\n');
+            }
+        }
+        Path catalog = directory.resolve(CATALOG_FILE);
+        Path temp = SnapshotManifest.tempFor(catalog);
+        try (ChecksummedFileOutput out = new ChecksummedFileOutput(temp)) {
+            out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        Files.move(temp, catalog, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // --- Helpers ---
+
+    private Backup findBackup(String id) {
+        for (Backup backup : backups) {
+            if (backup.id.equals(id)) {
+                return backup;
+            }
+        }
+        return null;
+    }
+
+    private Path chunkPath(String hash) {
+        return directory.resolve(CHUNKS_DIRECTORY).resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Every JVM must provide it.
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static class StoredChunk {
+        final long storedBytes;
+
+        StoredChunk(long storedBytes) {
+            this.storedBytes = storedBytes;
+        }
+    }
+
+    private static class BackedUpFile {
+        final String name;
+        final long size;
+        final List<String> chunkHashes = new ArrayList<>();
+
+        BackedUpFile(String name, long size) {
+            this.name = name;
+            this.size = size;
+        }
+    }
+
+    private static class Backup {
+        final String id;
+        final Instant createdAt;
+        final List<BackedUpFile> files = new ArrayList<>();
+        long logicalBytes;
+
+        Backup(String id, Instant createdAt) {
+            this.id = id;
+            this.createdAt = createdAt;
+        }
+
+        BackupInfo toInfo(long newBytes) {
+            return new BackupInfo(id, createdAt, files.size(), logicalBytes, newBytes);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseSchedule;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Instructor;
+import edu.ccrm.domain.MeetingSlot;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Outcome;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentBatch;
+import edu.ccrm.service.EnrollmentReplayReport;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.TranscriptService;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes all application data as a single compact binary file.
+ * Loading it needs no text parsing: numbers are stored as binary, semesters and grades
+ * as enum ordinals, and every distinct string (course codes, titles, statuses and so on)
+ * is stored once in a dictionary and referred to by its index. The file is read through
+ * a memory-mapped FileChannel.
+ *
+ * Layout (all numbers big-endian):
+ *   header:      int MAGIC, int VERSION
+ *   dictionary:  int count, then per string: int byteLength, UTF-8 bytes
+ *   3 sections:  byte tag, int count, then per record: unsigned short length, fields
+ *     students:    long id, int regNo, int fullName, int email, int status  (dictionary indexes)
+ *     courses:     int code, int title, int credits, byte semester, int capacity,
+ *                  then if it has an instructor or a schedule: long id, int fullName, int email, int department
+ *                  (all -1 if it has no instructor),
+ *                  then if it has a schedule: int room, byte meetings, per meeting: byte day (1 = Monday),
+ *                  short startMinute, short endMinute
+ *     enrollments: long studentId, int courseCode, byte grade
+ * A missing semester or grade is stored as -1. Each record carries its length so a reader
+ * can skip fields added by a newer version, and can tell whether optional fields follow.
+ */
+public class BinarySnapshot {
+
+    private static final int MAGIC = 0x4343524D; // "CCRM"
+    private static final int VERSION = 1;
+    private static final byte STUDENTS = 1;
+    private static final byte COURSES = 2;
+    private static final byte ENROLLMENTS = 3;
+    private static final int NONE = -1;
+
+    private static final Semester[] SEMESTERS = Semester.values();
+    private static final Grade[] GRADES = Grade.values();
+    private static final DayOfWeek[] DAYS = DayOfWeek.values();
+
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final EnrollmentService enrollmentService;
+    private final TranscriptService transcriptService;
+
+    public BinarySnapshot(StudentService studentService, CourseService courseService,
+                          EnrollmentService enrollmentService, TranscriptService transcriptService) {
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.enrollmentService = enrollmentService;
+        this.transcriptService = transcriptService;
+    }
+
+    // --- Writing ---
+
+    /**
+     * Writes every student, course, enrollment and grade to the given file, replacing it.
+     */
+    public void write(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the current data to a stream.
+     * @return The number of records written.
+     */
+    public long write(OutputStream target) throws IOException {
+        return write(DataSnapshot.capture(studentService, courseService, enrollmentService, transcriptService), target);
+    }
+
+    /**
+     * Writes a captured snapshot to a stream. The records are encoded first, since the
+     * dictionary they refer to must come before them in the file.
+     * @return The number of records written.
+     */
+    static long write(DataSnapshot data, OutputStream target) throws IOException {
+        StringDictionary dictionary = new StringDictionary();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 16);
+        DataOutputStream out = new DataOutputStream(body);
+        RecordBuffer record = new RecordBuffer();
+
+        out.writeByte(STUDENTS);
+        out.writeInt(data.studentCount);
+        for (int i = 0; i < data.studentCount; i++) {
+            record.reset();
+            record.data.writeLong(data.studentIds[i]);
+            record.data.writeInt(dictionary.indexOf(data.regNos[i]));
+            record.data.writeInt(dictionary.indexOf(data.fullNames[i]));
+            record.data.writeInt(dictionary.indexOf(data.emails[i]));
+            record.data.writeInt(dictionary.indexOf(data.statuses[i]));
+            record.writeTo(out);
+        }
+
+        out.writeByte(COURSES);
+        out.writeInt(data.courses.size());
+        for (int i = 0; i < data.courses.size(); i++) {
+            Course course = data.courses.get(i);
+            Instructor instructor = data.courseInstructors[i];
+            record.reset();
+            record.data.writeInt(dictionary.indexOf(course.getCode()));
+            record.data.writeInt(dictionary.indexOf(course.getTitle()));
+            record.data.writeInt(course.getCredits());
+            record.data.writeByte(course.getSemester() == null ? NONE : course.getSemester().ordinal());
+            record.data.writeInt(course.getCapacity());
+            CourseSchedule schedule = data.courseSchedules[i];
+            if (instructor != null) {
+                record.data.writeLong(instructor.getId());
+                record.data.writeInt(dictionary.indexOf(instructor.getFullName()));
+                record.data.writeInt(dictionary.indexOf(instructor.getEmail()));
+                record.data.writeInt(dictionary.indexOf(instructor.getDepartment()));
+            } else if (schedule != null) {
+                record.data.writeLong(NONE);
+                record.data.writeInt(NONE);
+                record.data.writeInt(NONE);
+                record.data.writeInt(NONE);
+            }
+            if (schedule != null) {
+                record.data.writeInt(dictionary.indexOf(schedule.getRoom()));
+                record.data.writeByte(schedule.getMeetings().size());
+                for (MeetingSlot meeting : schedule.getMeetings()) {
+                    record.data.writeByte(meeting.getDay().getValue());
+                    record.data.writeShort(meeting.getStartMinute());
+                    record.data.writeShort(meeting.getEndMinute());
+                }
+            }
+            record.writeTo(out);
+        }
+
+        out.writeByte(ENROLLMENTS);
+        out.writeInt(data.enrollmentCount);
+        for (int i = 0; i < data.enrollmentCount; i++) {
+            Grade grade = data.enrollmentGrades[i];
+            record.reset();
+            record.data.writeLong(data.enrollmentStudentIds[i]);
+            record.data.writeInt(dictionary.indexOf(data.enrollmentCourseCodes[i]));
+            record.data.writeByte(grade == null ? NONE : grade.ordinal());
+            record.writeTo(out);
+        }
+        out.flush();
+
+        DataOutputStream file = new DataOutputStream(new BufferedOutputStream(target, 1 << 16));
+        file.writeInt(MAGIC);
+        file.writeInt(VERSION);
+        dictionary.writeTo(file);
+        body.writeTo(file);
+        file.flush();
+        return (long) data.studentCount + data.courses.size() + data.enrollmentCount;
+    }
+
+    // --- Reading ---
+
+    /**
+     * Loads a snapshot into the services, as loadData() does for the CSV files.
+     * @return The number of records read: students, courses and enrollments.
+     * @throws IOException if the file cannot be read or is not a valid snapshot.
+     */
+    public long read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to map: " + channel.size() + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("Snapshot " + file + " is truncated or corrupt", e);
+        }
+    }
+
+    private long read(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a CCRM snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        String[] strings = readDictionary(buffer);
+
+        int studentCount = expectSection(buffer, STUDENTS);
+        for (int i = 0; i < studentCount; i++) {
+            int end = recordEnd(buffer);
+            long id = buffer.getLong();
+            String regNo = strings[buffer.getInt()];
+            String fullName = strings[buffer.getInt()];
+            String email = strings[buffer.getInt()];
+            String status = strings[buffer.getInt()];
+            buffer.position(end);
+            studentService.loadStudent(id, regNo, fullName, email);
+            if (!"Active".equals(status)) { // New students start out Active
+                studentService.findStudentById(id).setStatus(status);
+            }
+        }
+        DataPersistenceService.LOG.at(Level.INFO, Outcome.DATA_LOADED).with("data", "students").with("rows", studentCount)
+                .log("Student data loaded.");
+
+        int courseCount = expectSection(buffer, COURSES);
+        for (int i = 0; i < courseCount; i++) {
+            int end = recordEnd(buffer);
+            String code = strings[buffer.getInt()];
+            String title = strings[buffer.getInt()];
+            int credits = buffer.getInt();
+            byte semester = buffer.get();
+            int capacity = buffer.getInt();
+            Instructor instructor = null;
+            if (buffer.position() < end) {
+                long instructorId = buffer.getLong();
+                int fullName = buffer.getInt();
+                int email = buffer.getInt();
+                int department = buffer.getInt();
+                if (fullName != NONE) {
+                    instructor = new Instructor(instructorId, strings[fullName], strings[email], strings[department]);
+                }
+            }
+            CourseSchedule schedule = null;
+            if (buffer.position() < end) {
+                String room = strings[buffer.getInt()];
+                List<MeetingSlot> meetings = new ArrayList<>();
+                for (int meetingCount = buffer.get(); meetingCount > 0; meetingCount--) {
+                    meetings.add(new MeetingSlot(DAYS[buffer.get() - 1], buffer.getShort(), buffer.getShort()));
+                }
+                schedule = new CourseSchedule(room, meetings);
+            }
+            buffer.position(end);
+            courseService.loadCourse(new Course.Builder(code, title)
+                    .credits(credits)
+                    .semester(semester == NONE ? null : SEMESTERS[semester])
+                    .capacity(capacity)
+                    .instructor(instructor)
+                    .schedule(schedule)
+                    .build());
+        }
+        DataPersistenceService.LOG.at(Level.INFO, Outcome.DATA_LOADED).with("data", "courses").with("rows", courseCount)
+                .log("Course data loaded.");
+
+        int enrollmentCount = expectSection(buffer, ENROLLMENTS);
+        EnrollmentBatch batch = new EnrollmentBatch(enrollmentCount);
+        // Grades are kept by row and restored once the enrollments exist.
+        byte[] grades = new byte[enrollmentCount];
+        for (int i = 0; i < enrollmentCount; i++) {
+            int end = recordEnd(buffer);
+            batch.add(buffer.getLong(), strings[buffer.getInt()]);
+            grades[i] = buffer.get();
+            buffer.position(end);
+        }
+        EnrollmentReplayReport report = enrollmentService.replayEnrollments(batch);
+        DataPersistenceService.logReplayReport(report);
+        for (int i = 0; i < enrollmentCount; i++) {
+            if (grades[i] != NONE) {
+                transcriptService.loadGrade(batch.getStudentId(i), batch.getCourseCode(i), GRADES[grades[i]]);
+            }
+        }
+        DataPersistenceService.LOG.at(Level.INFO, Outcome.DATA_LOADED).with("data", "enrollments").with("rows", enrollmentCount)
+                .log("Enrollment data loaded.");
+        return (long) studentCount + courseCount + enrollmentCount;
+    }
+
+    private static String[] readDictionary(ByteBuffer buffer) {
+        String[] strings = new String[buffer.getInt()];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getInt();
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static int expectSection(ByteBuffer buffer, byte tag) throws IOException {
+        byte found = buffer.get();
+        if (found != tag) {
+            throw new IOException("Expected snapshot section " + tag + " but found " + found);
+        }
+        return buffer.getInt();
+    }
+
+    /**
+     * Reads a record's length prefix.
+     * @return The buffer position just past the record.
+     */
+    private static int recordEnd(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        return buffer.position() + length;
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Assigns each distinct string an index, in the order first seen.
+     * Null is stored as the empty string.
+     */
+    private static class StringDictionary {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 12);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        int indexOf(String value) throws IOException {
+            String key = value == null ? "" : value;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                index = indexes.size();
+                indexes.put(key, index);
+                byte[] utf8 = key.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+            }
+            return index;
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            target.writeInt(indexes.size());
+            bytes.writeTo(target);
+        }
+    }
+
+    /**
+     * A reusable buffer that one record is encoded into, so its length can be written first.
+     */
+    private static class RecordBuffer {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        final DataOutputStream data = new DataOutputStream(bytes);
+
+        void reset() {
+            bytes.reset();
+        }
+
+        void writeTo(OutputStream target) throws IOException {
+            int length = bytes.size();
+            target.write(length >>> 8);
+            target.write(length);
+            bytes.writeTo(target);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseSchedule;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Instructor;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.log.EventLogger;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Outcome;
+import edu.ccrm.metrics.Metrics;
+import edu.ccrm.metrics.Throughput;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentBatch;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.TranscriptService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads the CSV data files in parallel, for datasets too large for the line-by-line loader.
+ * Each file is memory-mapped, split into line-aligned chunks, and the chunks are parsed
+ * on a fork-join pool. The parsed rows are then applied to the services in file order,
+ * so the resulting in-memory state is the same as with the sequential loader.
+ */
+public class BulkCsvLoader {
+
+    private static final long MIN_CHUNK_SIZE = 1L << 20;         // 1 MB
+    private static final long MAX_CHUNK_SIZE = 256L << 20;       // 256 MB, well below the 2 GB mapping limit
+    private static final int BOUNDARY_SCAN_SIZE = 1 << 20;       // 1 MB per read while finding boundaries
+    private static final Throughput LOAD_STUDENTS = Metrics.throughput("persistence.loadBulk.students");
+    private static final Throughput LOAD_COURSES = Metrics.throughput("persistence.loadBulk.courses");
+    private static final Throughput LOAD_ENROLLMENTS = Metrics.throughput("persistence.loadBulk.enrollments");
+    private static final EventLogger LOG = DataPersistenceService.LOG;
+
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final EnrollmentService enrollmentService;
+    private final TranscriptService transcriptService;
+    private final ForkJoinPool pool;
+
+    public BulkCsvLoader(StudentService studentService, CourseService courseService,
+                         EnrollmentService enrollmentService, TranscriptService transcriptService) {
+        this(studentService, courseService, enrollmentService, transcriptService, ForkJoinPool.commonPool());
+    }
+
+    public BulkCsvLoader(StudentService studentService, CourseService courseService,
+                         EnrollmentService enrollmentService, TranscriptService transcriptService, ForkJoinPool pool) {
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.enrollmentService = enrollmentService;
+        this.transcriptService = transcriptService;
+        this.pool = pool;
+    }
+
+    /**
+     * Loads students, courses and enrollments, in that order.
+     */
+    public void loadAll() {
+        loadStudents();
+        loadCourses();
+        loadEnrollments(); // Must be loaded last!
+    }
+
+    public void loadStudents() {
+        Path file = Paths.get(AppConfig.getInstance().getStudentsFile());
+        long start = System.nanoTime();
+        try {
+            List<StudentRow> rows = parse(file, tokenizer -> {
+                if (tokenizer.fieldCount() != 4) {
+                    return null;
+                }
+                return new StudentRow(tokenizer.longField(0), tokenizer.field(1), tokenizer.field(2), tokenizer.field(3));
+            });
+            for (StudentRow row : rows) {
+                studentService.loadStudent(row.id, row.regNo, row.fullName, row.email);
+            }
+            report("Student", LOAD_STUDENTS, file, rows.size(), start);
+        } catch (NoSuchFileException e) {
+            LOG.at(Level.INFO, Outcome.NO_DATA).with("data", "students").log("No existing student data found.");
+        } catch (IOException e) {
+            LOG.at(Level.ERROR, Outcome.LOAD_FAILED).with("data", "students")
+                    .log(() -> "Error loading student data: " + e.getMessage());
+        }
+    }
+
+    public void loadCourses() {
+        Path file = Paths.get(AppConfig.getInstance().getCoursesFile());
+        long start = System.nanoTime();
+        try {
+            List<Course> rows = parse(file, tokenizer -> {
+                int fields = tokenizer.fieldCount();
+                if (fields != 4 && fields != 5 && fields != 9 && fields != 11) {
+                    return null;
+                }
+                return new Course.Builder(tokenizer.field(0), tokenizer.field(1))
+                        .credits(tokenizer.intField(2))
+                        .semester(Semester.valueOf(tokenizer.field(3)))
+                        .capacity(fields >= 5 ? tokenizer.intField(4) : 0)
+                        .instructor(fields >= 9 && !tokenizer.field(5).isEmpty() ? new Instructor(tokenizer.longField(5),
+                                tokenizer.field(6), tokenizer.field(7), tokenizer.field(8)) : null)
+                        .schedule(fields == 11 ? new CourseSchedule(tokenizer.field(9),
+                                CourseSchedule.parseMeetings(tokenizer.field(10))) : null)
+                        .build();
+            });
+            for (Course course : rows) {
+                courseService.loadCourse(course);
+            }
+            report("Course", LOAD_COURSES, file, rows.size(), start);
+        } catch (NoSuchFileException e) {
+            LOG.at(Level.INFO, Outcome.NO_DATA).with("data", "courses").log("No existing course data found.");
+        } catch (IOException e) {
+            LOG.at(Level.ERROR, Outcome.LOAD_FAILED).with("data", "courses")
+                    .log(() -> "Error loading course data: " + e.getMessage());
+        }
+    }
+
+    public void loadEnrollments() {
+        Path file = Paths.get(AppConfig.getInstance().getEnrollmentsFile());
+        long start = System.nanoTime();
+        try {
+            List<EnrollmentRow> rows = parse(file, tokenizer -> {
+                int fields = tokenizer.fieldCount();
+                if (fields != 2 && fields != 3) {
+                    return null;
+                }
+                Grade grade = fields == 3 ? Grade.valueOf(tokenizer.field(2)) : null;
+                return new EnrollmentRow(tokenizer.longField(0), tokenizer.field(1), grade);
+            });
+            // Rows are replayed in file order, since enrollment rules depend on earlier enrollments.
+            EnrollmentBatch batch = new EnrollmentBatch(rows.size());
+            for (EnrollmentRow row : rows) {
+                batch.add(row.studentId, row.courseCode);
+            }
+            DataPersistenceService.logReplayReport(enrollmentService.replayEnrollments(batch));
+            // Grades can only be restored once the enrollments they belong to exist.
+            for (EnrollmentRow row : rows) {
+                if (row.grade != null && !transcriptService.loadGrade(row.studentId, row.courseCode, row.grade)) {
+                    DataPersistenceService.rejectGrade(row.studentId, row.courseCode, row.grade);
+                }
+            }
+            report("Enrollment", LOAD_ENROLLMENTS, file, rows.size(), start);
+        } catch (NoSuchFileException e) {
+            LOG.at(Level.INFO, Outcome.NO_DATA).with("data", "enrollments").log("No existing enrollment data found.");
+        } catch (IOException e) {
+            LOG.at(Level.ERROR, Outcome.LOAD_FAILED).with("data", "enrollments")
+                    .log(() -> "Error loading enrollment data: " + e.getMessage());
+        }
+    }
+
+    private void report(String kind, Throughput throughput, Path file, int rows, long startNanos) throws IOException {
+        long nanos = System.nanoTime() - startNanos;
+        throughput.record(nanos, rows, Files.size(file));
+        double seconds = nanos / 1_000_000_000.0;
+        double rate = seconds > 0 ? rows / seconds : rows;
+        LOG.at(Level.INFO, Outcome.DATA_LOADED).with("data", kind.toLowerCase() + "s").with("rows", rows).with("nanos", nanos)
+                .log(() -> String.format("%s data loaded (bulk): %d rows in %.3f s (%.0f rows/sec).", kind, rows, seconds, rate));
+    }
+
+    /**
+     * Splits a file into line-aligned chunks, parses them in parallel, and returns the rows in file order.
+     */
+    private <T> List<T> parse(Path file, RowParser<T> parser) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> chunks = splitIntoChunks(channel);
+            List<ChunkParseTask<T>> tasks = new ArrayList<>(chunks.size());
+            for (long[] chunk : chunks) {
+                ChunkParseTask<T> task = new ChunkParseTask<>(channel, chunk[0], chunk[1], parser);
+                tasks.add(task);
+                pool.execute(task);
+            }
+            List<T> rows = new ArrayList<>();
+            for (ChunkParseTask<T> task : tasks) {
+                rows.addAll(task.join());
+            }
+            return rows;
+        } catch (UncheckedChunkException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Picks chunk boundaries so every chunk starts at the beginning of a line and ends after a newline.
+     * A newline inside a quoted field does not end a line, and only a scan from the start of the
+     * file can tell which quotes are open, so the file is read once sequentially to find boundaries.
+     * @return A list of {start, length} pairs covering the whole file.
+     */
+    private List<long[]> splitIntoChunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long target = size / (pool.getParallelism() * 4L);
+        long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, target));
+
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        long start = 0;
+        long position = 0;
+        boolean inQuotes = false;
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = scan.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes; // A doubled quote toggles twice, so it cancels out.
+                } else if (b == '\n' && !inQuotes && position + i + 1 - start >= chunkSize) {
+                    long end = position + i + 1;
+                    chunks.add(new long[] { start, end - start });
+                    start = end;
+                }
+            }
+            position += read;
+        }
+        if (start < size) {
+            chunks.add(new long[] { start, size - start });
+        }
+        return chunks;
+    }
+
+    /**
+     * Turns the current line of a tokenizer into a row object, or returns null to skip the line.
+     */
+    private interface RowParser<T> {
+        T parse(CsvFieldTokenizer tokenizer);
+    }
+
+    /**
+     * Parses one mapped chunk of a file into rows.
+     */
+    private static class ChunkParseTask<T> extends RecursiveTask<List<T>> {
+        private final FileChannel channel;
+        private final long start;
+        private final long length;
+        private final RowParser<T> parser;
+
+        ChunkParseTask(FileChannel channel, long start, long length, RowParser<T> parser) {
+            this.channel = channel;
+            this.start = start;
+            this.length = length;
+            this.parser = parser;
+        }
+
+        @Override
+        protected List<T> compute() {
+            MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            } catch (IOException e) {
+                throw new UncheckedChunkException(e);
+            }
+            List<T> rows = new ArrayList<>();
+            CsvFieldTokenizer tokenizer = new CsvFieldTokenizer(buffer);
+            while (tokenizer.nextLine()) {
+                try {
+                    T row = parser.parse(tokenizer);
+                    if (row != null) {
+                        rows.add(row);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Covers NumberFormatException and unknown Semester names.
+                    String line = tokenizer.line();
+                    LOG.at(Level.WARN, Outcome.ROW_REJECTED)
+                            .log(() -> "Skipping malformed line '" + line + "': " + e.getMessage());
+                }
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Carries an IOException out of a fork-join task.
+     */
+    private static class UncheckedChunkException extends RuntimeException {
+        UncheckedChunkException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    private static class StudentRow {
+        final long id;
+        final String regNo;
+        final String fullName;
+        final String email;
+
+        StudentRow(long id, String regNo, String fullName, String email) {
+            this.id = id;
+            this.regNo = regNo;
+            this.fullName = fullName;
+            this.email = email;
+        }
+    }
+
+    private static class EnrollmentRow {
+        final long studentId;
+        final String courseCode;
+        final Grade grade; // null if no grade has been recorded
+
+        EnrollmentRow(long studentId, String courseCode, Grade grade) {
+            this.studentId = studentId;
+            this.courseCode = courseCode;
+            this.grade = grade;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Splits a stream into content-defined chunks using a rolling "gear" hash.
+ * A chunk ends wherever the hash of the last few bytes matches a bit pattern,
+ * so boundaries depend on the content rather than on offsets: inserting a line
+ * near the start of a file only changes the chunks around the insertion, and
+ * the rest of the file still produces the same chunks as before.
+ */
+class ContentChunker {
+
+    static final int MIN_CHUNK = 2 * 1024;
+    static final int MAX_CHUNK = 64 * 1024;
+    // A boundary needs the top 13 bits of the hash to be zero: about 8 KB chunks on average.
+    // The top bits are used because they depend on the last 64 bytes, the low bits on only a few.
+    private static final long BOUNDARY_MASK = ((1L << 13) - 1) << (64 - 13);
+
+    // Random values per byte; a fixed seed keeps boundaries the same between runs.
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x43435242L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[MAX_CHUNK];
+    private final byte[] readAhead = new byte[MAX_CHUNK];
+    private int readAheadStart;
+    private int readAheadEnd;
+    private boolean endOfStream;
+
+    ContentChunker(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * @return The next chunk, or null at the end of the stream.
+     */
+    byte[] next() throws IOException {
+        int length = 0;
+        long hash = 0;
+        while (length < MAX_CHUNK) {
+            if (readAheadStart == readAheadEnd && !fill()) {
+                break;
+            }
+            int b = readAhead[readAheadStart++] & 0xFF;
+            buffer[length++] = (byte) b;
+            hash = (hash << 1) + GEAR[b];
+            if (length >= MIN_CHUNK && (hash & BOUNDARY_MASK) == 0) {
+                break;
+            }
+        }
+        return length == 0 ? null : Arrays.copyOf(buffer, length);
+    }
+
+    private boolean fill() throws IOException {
+        if (endOfStream) {
+            return false;
+        }
+        int read = in.read(readAhead);
+        if (read <= 0) {
+            endOfStream = true;
+            return false;
+        }
+        readAheadStart = 0;
+        readAheadEnd = read;
+        return true;
+    }
+}
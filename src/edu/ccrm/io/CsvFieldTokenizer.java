@@ -0,0 +1,213 @@
+package edu.ccrm.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A split-free tokenizer for comma-separated lines held in a ByteBuffer.
+ * Instead of creating a String[] per line, it records the start and end
+ * offset of each field and only decodes the fields that are asked for.
+ * Quoted fields may contain commas, line breaks and doubled quotes, as written by CsvWriter.
+ */
+class CsvFieldTokenizer {
+
+    private static final int MAX_FIELDS = 16;
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private final int[] fieldStarts = new int[MAX_FIELDS];
+    private final int[] fieldEnds = new int[MAX_FIELDS];
+    private final boolean[] fieldEscaped = new boolean[MAX_FIELDS]; // Contains doubled quotes
+    private final boolean[] fieldQuoted = new boolean[MAX_FIELDS];
+    private int position;
+    private int fieldCount;
+    private int lineStart;
+    private int lineEnd;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * @param buffer The buffer to read from. Lines are read from its position up to its limit.
+     */
+    CsvFieldTokenizer(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * Advances to the next line and records its field boundaries.
+     * A trailing '\r' is dropped so files with Windows line endings parse the same way.
+     * @return false once the end of the buffer has been reached.
+     */
+    boolean nextLine() {
+        if (position >= limit) {
+            return false;
+        }
+        lineStart = position;
+        fieldCount = 0;
+        int i = position;
+        while (true) {
+            int stop;
+            if (i < limit && buffer.get(i) == '"') {
+                i = quotedField(i);
+                stop = skipToSeparator(i);
+            } else {
+                stop = skipToSeparator(i);
+                int end = stop;
+                if (end > i && (stop == limit || buffer.get(stop) == '\n') && buffer.get(end - 1) == '\r') {
+                    end--;
+                }
+                addField(i, end, false, false);
+            }
+            if (stop < limit && buffer.get(stop) == ',') {
+                i = stop + 1;
+                continue;
+            }
+            lineEnd = stop > lineStart && buffer.get(stop - 1) == '\r' ? stop - 1 : stop;
+            position = stop + 1;
+            break;
+        }
+
+        // Mirror String.split(","), which drops trailing empty fields.
+        while (fieldCount > 0 && fieldCount <= MAX_FIELDS && !fieldQuoted[fieldCount - 1]
+                && fieldStarts[fieldCount - 1] == fieldEnds[fieldCount - 1]) {
+            fieldCount--;
+        }
+        return true;
+    }
+
+    /**
+     * Records a quoted field starting at its opening quote.
+     * @return The offset just past the closing quote.
+     */
+    private int quotedField(int openingQuote) {
+        int i = openingQuote + 1;
+        boolean escaped = false;
+        while (i < limit) {
+            if (buffer.get(i) == '"') {
+                if (i + 1 < limit && buffer.get(i + 1) == '"') {
+                    escaped = true;
+                    i += 2;
+                    continue;
+                }
+                break;
+            }
+            i++;
+        }
+        addField(openingQuote + 1, Math.min(i, limit), escaped, true);
+        return Math.min(i + 1, limit);
+    }
+
+    /**
+     * @return The offset of the next ',' or '\n' at or after from, or the limit.
+     * Stray characters after a closing quote are skipped, as they are not valid CSV.
+     */
+    private int skipToSeparator(int from) {
+        int i = from;
+        while (i < limit) {
+            byte b = buffer.get(i);
+            if (b == ',' || b == '\n') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private void addField(int start, int end, boolean escaped, boolean quoted) {
+        // Lines with more fields than we track are still counted so callers can reject them.
+        if (fieldCount < MAX_FIELDS) {
+            fieldStarts[fieldCount] = start;
+            fieldEnds[fieldCount] = end;
+            fieldEscaped[fieldCount] = escaped;
+            fieldQuoted[fieldCount] = quoted;
+        }
+        fieldCount++;
+    }
+
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Decodes a field as a UTF-8 String.
+     */
+    String field(int index) {
+        int start = fieldStarts[index];
+        int length = fieldEnds[index] - start;
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        if (fieldEscaped[index]) {
+            // Collapse each doubled quote into one.
+            int out = 0;
+            for (int i = 0; i < length; i++) {
+                scratch[out++] = scratch[i];
+                if (scratch[i] == '"') {
+                    i++;
+                }
+            }
+            length = out;
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a field as a decimal long without creating an intermediate String.
+     * @throws NumberFormatException if the field is not a valid number.
+     */
+    long longField(int index) {
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        if (start == end) {
+            throw new NumberFormatException("Empty numeric field");
+        }
+        boolean negative = buffer.get(start) == '-';
+        int i = negative || buffer.get(start) == '+' ? start + 1 : start;
+        if (i == end) {
+            throw new NumberFormatException("Sign without digits");
+        }
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid digit in numeric field");
+            }
+            // Accumulate as a negative number so Long.MIN_VALUE can be represented.
+            if (result < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("Numeric field out of range");
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative) {
+            if (result == Long.MIN_VALUE) {
+                throw new NumberFormatException("Numeric field out of range");
+            }
+            return -result;
+        }
+        return result;
+    }
+
+    /**
+     * Parses a field as a decimal int.
+     * @throws NumberFormatException if the field is not a valid int.
+     */
+    int intField(int index) {
+        long value = longField(index);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Numeric field out of range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Returns the raw text of the current line, used for error messages.
+     */
+    String line() {
+        int length = lineEnd - lineStart;
+        byte[] bytes = new byte[length];
+        buffer.get(lineStart, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,216 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads CSV rows into one reusable buffer. Instead of a String[] per line, it records
+ * where each field starts and ends, and only creates Strings for the fields asked for.
+ * Quoted fields are handled as described in RFC 4180: they may contain commas, line
+ * breaks and doubled quotes. A '\r' before a line break is dropped, and as with
+ * String.split(","), trailing empty fields are not counted.
+ */
+class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader in;
+    private final char[] input = new char[BUFFER_SIZE];
+    private int inputPosition;
+    private int inputLimit;
+
+    // The current row: unescaped field contents, one after another.
+    private char[] row = new char[256];
+    private int rowLength;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private boolean[] fieldQuoted = new boolean[16];
+    private int fieldCount;
+
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next row.
+     * @return false at the end of the input.
+     */
+    boolean nextRow() throws IOException {
+        rowLength = 0;
+        fieldCount = 0;
+        int c = read();
+        if (c < 0) {
+            return false;
+        }
+        int fieldStart = 0;
+        boolean quoted = false;
+        boolean inQuotes = false;
+        boolean atFieldStart = true;
+        while (c >= 0) {
+            if (inQuotes) {
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        put('"'); // An escaped quote
+                    } else {
+                        inQuotes = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    put((char) c);
+                }
+            } else if (c == ',') {
+                addField(fieldStart, quoted);
+                fieldStart = rowLength;
+                quoted = false;
+                atFieldStart = true;
+                c = read();
+                continue;
+            } else if (c == '\n') {
+                break;
+            } else if (c == '"' && atFieldStart) {
+                quoted = true;
+                inQuotes = true;
+            } else if (c != '\r' || !lineBreakFollows()) {
+                put((char) c);
+            }
+            atFieldStart = false;
+            c = read();
+        }
+        addField(fieldStart, quoted);
+
+        // Mirror String.split(","), which drops trailing empty fields.
+        while (fieldCount > 0 && !fieldQuoted[fieldCount - 1] && fieldStarts[fieldCount - 1] == fieldEnds[fieldCount - 1]) {
+            fieldCount--;
+        }
+        return true;
+    }
+
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    String field(int index) {
+        checkIndex(index);
+        return new String(row, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+    }
+
+    /**
+     * Parses a field as a decimal long without creating an intermediate String.
+     * @throws NumberFormatException if the field is not a valid number.
+     */
+    long longField(int index) {
+        checkIndex(index);
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        if (start == end) {
+            throw new NumberFormatException("Empty numeric field");
+        }
+        boolean negative = row[start] == '-';
+        int i = negative || row[start] == '+' ? start + 1 : start;
+        if (i == end) {
+            throw new NumberFormatException("Sign without digits");
+        }
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = row[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid digit in numeric field '" + field(index) + "'");
+            }
+            // Accumulate as a negative number so Long.MIN_VALUE can be represented.
+            if (result < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("Numeric field out of range");
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative) {
+            if (result == Long.MIN_VALUE) {
+                throw new NumberFormatException("Numeric field out of range");
+            }
+            return -result;
+        }
+        return result;
+    }
+
+    int intField(int index) {
+        long value = longField(index);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Numeric field out of range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Returns the fields of the current row joined with commas, used for error messages.
+     */
+    String rowText() {
+        StringBuilder text = new StringBuilder(rowLength + fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(row, fieldStarts[i], fieldEnds[i] - fieldStarts[i]);
+        }
+        return text.toString();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of a row with " + fieldCount + " fields");
+        }
+    }
+
+    private void addField(int start, boolean quoted) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            fieldQuoted = Arrays.copyOf(fieldQuoted, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = rowLength;
+        fieldQuoted[fieldCount] = quoted;
+        fieldCount++;
+    }
+
+    private void put(char c) {
+        if (rowLength == row.length) {
+            row = Arrays.copyOf(row, row.length * 2);
+        }
+        row[rowLength++] = c;
+    }
+
+    private int read() throws IOException {
+        if (inputPosition == inputLimit && !fill()) {
+            return -1;
+        }
+        return input[inputPosition++];
+    }
+
+    /**
+     * @return true if the next character is a line break or the end of the input, without consuming it.
+     */
+    private boolean lineBreakFollows() throws IOException {
+        if (inputPosition == inputLimit && !fill()) {
+            return true;
+        }
+        return input[inputPosition] == '\n';
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(input, 0, input.length);
+        if (read <= 0) {
+            return false;
+        }
+        inputPosition = 0;
+        inputLimit = read;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,142 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes CSV rows field by field into one reusable buffer, so writing a row creates
+ * no Strings. Fields containing a comma, a double quote or a line break are quoted
+ * as described in RFC 4180, with embedded quotes doubled, so names and titles with
+ * commas survive a save and load unchanged. Rows end with '\n'.
+ */
+class CsvWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final char[] digits = new char[20];
+    private int length;
+    private boolean rowStarted;
+    private long rows;
+
+    CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a text field, quoting it if needed. Null is written as an empty field.
+     */
+    CsvWriter field(CharSequence value) throws IOException {
+        separate();
+        if (value == null) {
+            return this;
+        }
+        if (!needsQuotes(value)) {
+            append(value);
+            return this;
+        }
+        put('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                put('"');
+            }
+            put(c);
+        }
+        put('"');
+        return this;
+    }
+
+    /**
+     * Writes a number field without going through a String.
+     */
+    CsvWriter field(long value) throws IOException {
+        separate();
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value)); // Cannot be negated below.
+            return this;
+        }
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            put(digits[--count]);
+        }
+        return this;
+    }
+
+    /**
+     * Ends the current row.
+     */
+    void endRow() throws IOException {
+        put('\n');
+        rowStarted = false;
+        rows++;
+    }
+
+    /**
+     * @return The number of rows written so far.
+     */
+    long getRowCount() {
+        return rows;
+    }
+
+    private static boolean needsQuotes(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void separate() throws IOException {
+        if (rowStarted) {
+            put(',');
+        }
+        rowStarted = true;
+    }
+
+    private void append(CharSequence value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            put(value.charAt(i));
+        }
+    }
+
+    private void put(char c) throws IOException {
+        if (length == buffer.length) {
+            drain();
+        }
+        buffer[length++] = c;
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -2,182 +2,604 @@ package edu.ccrm.io;
 
 import edu.ccrm.config.AppConfig;
 import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseSchedule;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Instructor;
 import edu.ccrm.domain.Semester;
 import edu.ccrm.domain.Student;
+import edu.ccrm.log.EventLogger;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Log;
+import edu.ccrm.log.Outcome;
+import edu.ccrm.metrics.LatencyHistogram;
+import edu.ccrm.metrics.Metrics;
+import edu.ccrm.metrics.Throughput;
 import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentBatch;
+import edu.ccrm.service.EnrollmentReplayReport;
 import edu.ccrm.service.EnrollmentService;
 import edu.ccrm.service.StudentService;
+import edu.ccrm.service.TranscriptService;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.stream.Stream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Handles saving and loading application data to and from files.
  */
 public class DataPersistenceService {
 
+    private static final LatencyHistogram CAPTURE_LATENCY = Metrics.histogram("persistence.capture");
+    private static final LatencyHistogram COMMIT_LATENCY = Metrics.histogram("persistence.commit");
+    private static final LatencyHistogram VERIFY_LATENCY = Metrics.histogram("persistence.verify");
+    private static final Throughput SAVE_STUDENTS = Metrics.throughput("persistence.save.students");
+    private static final Throughput SAVE_COURSES = Metrics.throughput("persistence.save.courses");
+    private static final Throughput SAVE_ENROLLMENTS = Metrics.throughput("persistence.save.enrollments");
+    private static final Throughput SAVE_BINARY = Metrics.throughput("persistence.save.binary");
+    private static final Throughput LOAD_STUDENTS = Metrics.throughput("persistence.load.students");
+    private static final Throughput LOAD_COURSES = Metrics.throughput("persistence.load.courses");
+    private static final Throughput LOAD_ENROLLMENTS = Metrics.throughput("persistence.load.enrollments");
+    private static final Throughput LOAD_BINARY = Metrics.throughput("persistence.load.binary");
+    private static final Throughput EXPORT = Metrics.throughput("persistence.export");
+    static final EventLogger LOG = Log.logger("persistence");
+
     private final StudentService studentService;
     private final CourseService courseService;
     private final EnrollmentService enrollmentService;
+    private final TranscriptService transcriptService;
+    private BackupStore backupStore; // Opened on first use
+    private final Object saveLock = new Object();
 
-    public DataPersistenceService(StudentService studentService, CourseService courseService, EnrollmentService enrollmentService) {
+    public DataPersistenceService(StudentService studentService, CourseService courseService,
+                                  EnrollmentService enrollmentService, TranscriptService transcriptService) {
         this.studentService = studentService;
         this.courseService = courseService;
         this.enrollmentService = enrollmentService;
+        this.transcriptService = transcriptService;
+    }
+
+    /**
+     * Writes all data in the configured snapshot format.
+     * @return true if every file was written successfully.
+     */
+    public boolean saveData() {
+        return saveData(configuredFormat());
+    }
+
+    /**
+     * Writes all data in the given format. The files are written to temp files and
+     * published together under a manifest, so a failed or interrupted save leaves
+     * the previous save intact.
+     * @return true if every file was written successfully.
+     */
+    public boolean saveData(SnapshotFormat format) {
+        return saveSnapshot(captureSnapshot(), format);
+    }
+
+    /**
+     * Takes a consistent copy of the data for a later saveSnapshot() call.
+     * Enrollment changes wait while the copy is taken, so keep the two steps apart
+     * and write from a background thread when the copy is large.
+     */
+    DataSnapshot captureSnapshot() {
+        long start = Metrics.startTimer();
+        DataSnapshot snapshot = DataSnapshot.capture(studentService, courseService, enrollmentService, transcriptService);
+        CAPTURE_LATENCY.recordSince(start);
+        return snapshot;
     }
 
-    public void saveData() {
-        saveStudents();
-        saveCourses();
-        saveEnrollments();
+    /**
+     * Writes a captured copy of the data in the given format. Saves from different
+     * threads (autosave, journal compaction, exit) run one at a time.
+     * @return true if every file was written successfully.
+     */
+    boolean saveSnapshot(DataSnapshot data, SnapshotFormat format) {
+        synchronized (saveLock) {
+            return writeSnapshot(data, format);
+        }
+    }
+
+    private boolean writeSnapshot(DataSnapshot data, SnapshotFormat format) {
+        try (AtomicSnapshotWriter snapshot = new AtomicSnapshotWriter(manifestFor(format), format)) {
+            if (format == SnapshotFormat.BINARY) {
+                saveBinarySnapshot(data, snapshot);
+            } else {
+                saveStudents(data, snapshot);
+                saveCourses(data, snapshot);
+                saveEnrollments(data, snapshot);
+            }
+            long start = Metrics.startTimer();
+            snapshot.commit();
+            COMMIT_LATENCY.recordSince(start);
+        } catch (IOException e) {
+            LOG.at(Level.ERROR, Outcome.SAVE_FAILED).with("format", format)
+                    .log(() -> "Error saving data: " + e.getMessage() + ". The previous save is unchanged.");
+            return false;
+        }
+        if (format == SnapshotFormat.BINARY) {
+            LOG.at(Level.INFO, Outcome.DATA_SAVED).with("data", "snapshot")
+                    .log(() -> "Snapshot saved to " + AppConfig.getInstance().getBinarySnapshotFile() + ".");
+        } else {
+            LOG.at(Level.INFO, Outcome.DATA_SAVED).with("data", "students").log("Student data saved.");
+            LOG.at(Level.INFO, Outcome.DATA_SAVED).with("data", "courses").log("Course data saved.");
+            LOG.at(Level.INFO, Outcome.DATA_SAVED).with("data", "enrollments").log("Enrollment data saved.");
+        }
+        return true;
     }
 
-    public void loadData() {
+    /**
+     * Loads all data in the configured snapshot format.
+     * @return false if the saved data is torn or corrupt and was not loaded.
+     */
+    public boolean loadData() {
+        return loadData(configuredFormat());
+    }
+
+    /**
+     * Loads all data in the given format, after checking the files against their manifest.
+     * @return false if the saved data is torn or corrupt and was not loaded.
+     */
+    public boolean loadData(SnapshotFormat format) {
+        if (format == SnapshotFormat.BINARY) {
+            Path snapshotFile = Paths.get(AppConfig.getInstance().getBinarySnapshotFile());
+            boolean snapshotSaved = Files.exists(snapshotFile) || Files.exists(manifestFor(SnapshotFormat.BINARY));
+            if (snapshotSaved || !Files.exists(Paths.get(AppConfig.getInstance().getStudentsFile()))) {
+                if (!prepareForLoad(SnapshotFormat.BINARY)) {
+                    return false;
+                }
+                return loadBinarySnapshot(snapshotFile);
+            }
+            // Switching to the binary format: start from the CSV files; the next save writes the snapshot.
+            LOG.at(Level.INFO, Outcome.NO_DATA).with("data", "snapshot")
+                    .log("No binary snapshot found; loading the CSV files instead.");
+        }
+        if (!prepareForLoad(SnapshotFormat.CSV)) {
+            return false;
+        }
         loadStudents();
         loadCourses();
         loadEnrollments(); // Must be loaded last!
+        return true;
     }
 
-    private void saveStudents() {
-        String studentsFile = AppConfig.getInstance().getStudentsFile();
-        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(studentsFile))) {
-            for (Student student : studentService.getAllStudents()) {
-                String line = String.join(",", String.valueOf(student.getId()), student.getRegNo(), student.getFullName(), student.getEmail());
-                writer.write(line);
-                writer.newLine();
-            }
-            System.out.println("Student data saved.");
+    /**
+     * Loads the same files as loadData(), but parses them in parallel.
+     * Intended for large datasets where startup is dominated by parsing.
+     * @return false if the saved data is torn or corrupt and was not loaded.
+     */
+    public boolean loadDataBulk() {
+        if (!prepareForLoad(SnapshotFormat.CSV)) {
+            return false;
+        }
+        new BulkCsvLoader(studentService, courseService, enrollmentService, transcriptService).loadAll();
+        return true;
+    }
+
+    private static SnapshotFormat configuredFormat() {
+        String name = AppConfig.getInstance().getSnapshotFormat();
+        try {
+            return SnapshotFormat.fromName(name);
+        } catch (IllegalArgumentException e) {
+            LOG.at(Level.WARN, Outcome.CONFIG_INVALID).with("snapshotFormat", name)
+                    .log(() -> "Unknown snapshot format '" + name + "', using CSV.");
+            return SnapshotFormat.CSV;
+        }
+    }
+
+    private static Path manifestFor(SnapshotFormat format) {
+        AppConfig config = AppConfig.getInstance();
+        return Paths.get(format == SnapshotFormat.BINARY ? config.getBinaryManifestFile() : config.getCsvManifestFile());
+    }
+
+    /**
+     * Finishes an interrupted save and checks every file against the manifest.
+     * @return false if the files are torn or corrupt.
+     */
+    private static boolean prepareForLoad(SnapshotFormat format) {
+        long start = Metrics.startTimer();
+        try {
+            SnapshotManifest.prepareForLoad(manifestFor(format));
+            VERIFY_LATENCY.recordSince(start);
+            return true;
         } catch (IOException e) {
-            System.err.println("Error saving student data: " + e.getMessage());
+            LOG.at(Level.ERROR, Outcome.DATA_CORRUPT).with("format", format)
+                    .log(() -> "ERROR: The saved data is incomplete or corrupt (" + e.getMessage() + "). Refusing to load it.");
+            return false;
         }
     }
 
-    private void saveCourses() {
-        String coursesFile = AppConfig.getInstance().getCoursesFile();
-        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(coursesFile))) {
-            for (Course course : courseService.getAllCourses()) {
-                String line = String.join(",", course.getCode(), course.getTitle(), String.valueOf(course.getCredits()), course.getSemester().name());
-                writer.write(line);
-                writer.newLine();
-            }
-            System.out.println("Course data saved.");
+    private void saveBinarySnapshot(DataSnapshot data, AtomicSnapshotWriter snapshot) throws IOException {
+        Path snapshotFile = Paths.get(AppConfig.getInstance().getBinarySnapshotFile());
+        long start = Metrics.startTimer();
+        long records;
+        try (OutputStream out = snapshot.create(snapshotFile)) {
+            records = BinarySnapshot.write(data, out);
+            snapshot.setRecordCount(snapshotFile, records);
+        }
+        SAVE_BINARY.recordSince(start, records, snapshot.getBytesWritten(snapshotFile));
+    }
+
+    private boolean loadBinarySnapshot(Path snapshotFile) {
+        if (!Files.exists(snapshotFile)) {
+            LOG.at(Level.INFO, Outcome.NO_DATA).with("data", "snapshot").log("No existing snapshot found.");
+            return true;
+        }
+        long start = Metrics.startTimer();
+        try {
+            long records = new BinarySnapshot(studentService, courseService, enrollmentService, transcriptService).read(snapshotFile);
+            LOAD_BINARY.recordSince(start, records, Files.size(snapshotFile));
+            return true;
         } catch (IOException e) {
-            System.err.println("Error saving course data: " + e.getMessage());
+            LOG.at(Level.ERROR, Outcome.LOAD_FAILED).with("data", "snapshot")
+                    .log(() -> "Error loading snapshot: " + e.getMessage());
+            return false;
         }
     }
 
-    private void saveEnrollments() {
-        String enrollmentsFile = AppConfig.getInstance().getEnrollmentsFile();
-        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(enrollmentsFile))) {
-            for (Student student : studentService.getAllStudents()) {
-                for (Course course : student.getEnrolledCourses()) {
-                    String line = student.getId() + "," + course.getCode();
-                    writer.write(line);
-                    writer.newLine();
+    private static CsvWriter newWriter(AtomicSnapshotWriter snapshot, Path file) throws IOException {
+        return new CsvWriter(new OutputStreamWriter(snapshot.create(file), StandardCharsets.UTF_8));
+    }
+
+    private void saveStudents(DataSnapshot data, AtomicSnapshotWriter snapshot) throws IOException {
+        Path file = Paths.get(AppConfig.getInstance().getStudentsFile());
+        long start = Metrics.startTimer();
+        try (CsvWriter writer = newWriter(snapshot, file)) {
+            for (int i = 0; i < data.studentCount; i++) {
+                writeStudent(writer, data.studentIds[i], data.regNos[i], data.fullNames[i], data.emails[i]);
+            }
+        }
+        SAVE_STUDENTS.recordSince(start, data.studentCount, snapshot.getBytesWritten(file));
+    }
+
+    private void saveCourses(DataSnapshot data, AtomicSnapshotWriter snapshot) throws IOException {
+        Path file = Paths.get(AppConfig.getInstance().getCoursesFile());
+        long start = Metrics.startTimer();
+        try (CsvWriter writer = newWriter(snapshot, file)) {
+            for (int i = 0; i < data.courses.size(); i++) {
+                writeCourse(writer, data.courses.get(i), data.courseInstructors[i], data.courseSchedules[i]);
+            }
+        }
+        SAVE_COURSES.recordSince(start, data.courses.size(), snapshot.getBytesWritten(file));
+    }
+
+    private void saveEnrollments(DataSnapshot data, AtomicSnapshotWriter snapshot) throws IOException {
+        Path file = Paths.get(AppConfig.getInstance().getEnrollmentsFile());
+        long start = Metrics.startTimer();
+        try (CsvWriter writer = newWriter(snapshot, file)) {
+            for (int i = 0; i < data.enrollmentCount; i++) {
+                writeEnrollment(writer, data.enrollmentStudentIds[i], data.enrollmentCourseCodes[i], data.enrollmentGrades[i]);
+            }
+        }
+        SAVE_ENROLLMENTS.recordSince(start, data.enrollmentCount, snapshot.getBytesWritten(file));
+    }
+
+    private static void writeStudent(CsvWriter writer, long id, String regNo, String fullName, String email) throws IOException {
+        writer.field(id).field(regNo).field(fullName).field(email);
+        writer.endRow();
+    }
+
+    private static void writeCourse(CsvWriter writer, Course course, Instructor instructor, CourseSchedule schedule)
+            throws IOException {
+        writer.field(course.getCode()).field(course.getTitle()).field(course.getCredits())
+                .field(course.getSemester().name()).field(course.getCapacity());
+        // The instructor is written as four more columns once one has been assigned, and the
+        // schedule as two more after those; they are left empty for a scheduled course with no instructor.
+        if (instructor != null) {
+            writer.field(instructor.getId()).field(instructor.getFullName()).field(instructor.getEmail())
+                    .field(instructor.getDepartment());
+        } else if (schedule != null) {
+            writer.field("").field("").field("").field("");
+        }
+        if (schedule != null) {
+            writer.field(schedule.getRoom()).field(schedule.formatMeetings());
+        }
+        writer.endRow();
+    }
+
+    private static void writeEnrollment(CsvWriter writer, long studentId, String courseCode, Grade grade) throws IOException {
+        writer.field(studentId).field(courseCode);
+        // The grade is written as a third column once it has been recorded.
+        if (grade != null) {
+            writer.field(grade.name());
+        }
+        writer.endRow();
+    }
+
+    /**
+     * Writes students, courses and enrollments as CSV files into a directory by streaming
+     * over the services, one record at a time. Unlike saveData(), nothing is copied up
+     * front, so memory use stays flat however large the data is; in exchange the export
+     * is only weakly consistent with changes made while it runs. Use it for large exports
+     * rather than for the application's own save files.
+     * @return The number of rows written, or -1 if the export failed.
+     */
+    public long exportCsv(Path directory) {
+        AppConfig config = AppConfig.getInstance();
+        long start = Metrics.startTimer();
+        long rows = 0;
+        long bytes = 0;
+        try {
+            Files.createDirectories(directory);
+            try (CsvWriter writer = newExportWriter(directory, config.getStudentsFile())) {
+                for (Student student : (Iterable<Student>) studentService.streamStudents()::iterator) {
+                    writeStudent(writer, student.getId(), student.getRegNo(), student.getFullName(), student.getEmail());
+                }
+                rows += writer.getRowCount();
+            }
+            try (CsvWriter writer = newExportWriter(directory, config.getCoursesFile())) {
+                for (Course course : (Iterable<Course>) courseService.streamCourses()::iterator) {
+                    writeCourse(writer, course, course.getInstructor(), course.getSchedule());
                 }
+                rows += writer.getRowCount();
+            }
+            try (CsvWriter writer = newExportWriter(directory, config.getEnrollmentsFile())) {
+                for (Student student : (Iterable<Student>) studentService.streamStudents()::iterator) {
+                    for (Course course : enrollmentService.getEnrolledCourses(student.getId())) {
+                        writeEnrollment(writer, student.getId(), course.getCode(),
+                                transcriptService.getGrade(student.getId(), course.getCode()));
+                    }
+                }
+                rows += writer.getRowCount();
+            }
+            for (String file : new String[] { config.getStudentsFile(), config.getCoursesFile(), config.getEnrollmentsFile() }) {
+                bytes += Files.size(directory.resolve(Paths.get(file).getFileName()));
             }
-            System.out.println("Enrollment data saved.");
         } catch (IOException e) {
-            System.err.println("Error saving enrollment data: " + e.getMessage());
+            LOG.at(Level.ERROR, Outcome.EXPORT_FAILED).with("directory", directory)
+                    .log(() -> "ERROR: Could not export data to " + directory + ". " + e.getMessage());
+            return -1;
         }
+        EXPORT.recordSince(start, rows, bytes);
+        long exported = rows;
+        LOG.at(Level.INFO, Outcome.EXPORTED).with("directory", directory).with("rows", exported)
+                .log(() -> "SUCCESS: Exported " + exported + " rows to " + directory);
+        return rows;
+    }
+
+    private static CsvWriter newExportWriter(Path directory, String file) throws IOException {
+        Path target = directory.resolve(Paths.get(file).getFileName());
+        return new CsvWriter(new OutputStreamWriter(Files.newOutputStream(target), StandardCharsets.UTF_8));
+    }
+
+    private static CsvReader newReader(String file) throws IOException {
+        return new CsvReader(new InputStreamReader(Files.newInputStream(Paths.get(file)), StandardCharsets.UTF_8));
     }
 
     private void loadStudents() {
         String studentsFile = AppConfig.getInstance().getStudentsFile();
-        try (Stream<String> lines = Files.lines(Paths.get(studentsFile))) {
-            lines.forEach(line -> {
-                String[] parts = line.split(",");
-                if (parts.length == 4) {
-                    studentService.loadStudent(Long.parseLong(parts[0]), parts[1], parts[2], parts[3]);
+        long start = Metrics.startTimer();
+        long rows = 0;
+        try (CsvReader reader = newReader(studentsFile)) {
+            while (reader.nextRow()) {
+                if (reader.fieldCount() == 4) {
+                    try {
+                        studentService.loadStudent(reader.longField(0), reader.field(1), reader.field(2), reader.field(3));
+                        rows++;
+                    } catch (NumberFormatException e) {
+                        rejectRow("students", reader.rowText(), "student", e);
+                    }
                 }
-            });
-            System.out.println("Student data loaded.");
+            }
+            LOAD_STUDENTS.recordSince(start, rows, Files.size(Paths.get(studentsFile)));
+            long loaded = rows;
+            LOG.at(Level.INFO, Outcome.DATA_LOADED).with("data", "students").with("rows", loaded).log("Student data loaded.");
+        } catch (NoSuchFileException e) {
+            LOG.at(Level.INFO, Outcome.NO_DATA).with("data", "students").log("No existing student data found.");
         } catch (IOException e) {
-            System.out.println("No existing student data found.");
+            LOG.at(Level.ERROR, Outcome.LOAD_FAILED).with("data", "students")
+                    .log(() -> "Error loading student data: " + e.getMessage());
         }
     }
 
     private void loadCourses() {
         String coursesFile = AppConfig.getInstance().getCoursesFile();
-        try (Stream<String> lines = Files.lines(Paths.get(coursesFile))) {
-            lines.forEach(line -> {
-                String[] parts = line.split(",");
-                if (parts.length == 4) {
-                    Course course = new Course.Builder(parts[0], parts[1])
-                            .credits(Integer.parseInt(parts[2]))
-                            .semester(Semester.valueOf(parts[3]))
-                            .build();
-                    courseService.loadCourse(course);
+        long start = Metrics.startTimer();
+        long rows = 0;
+        try (CsvReader reader = newReader(coursesFile)) {
+            while (reader.nextRow()) {
+                int fields = reader.fieldCount();
+                // The capacity, instructor and schedule columns are optional, so files saved before they existed still load.
+                if (fields == 4 || fields == 5 || fields == 9 || fields == 11) {
+                    try {
+                        Course course = new Course.Builder(reader.field(0), reader.field(1))
+                                .credits(reader.intField(2))
+                                .semester(Semester.valueOf(reader.field(3)))
+                                .capacity(fields >= 5 ? reader.intField(4) : 0)
+                                .instructor(fields >= 9 && !reader.field(5).isEmpty() ? new Instructor(reader.longField(5),
+                                        reader.field(6), reader.field(7), reader.field(8)) : null)
+                                .schedule(fields == 11 ? new CourseSchedule(reader.field(9),
+                                        CourseSchedule.parseMeetings(reader.field(10))) : null)
+                                .build();
+                        courseService.loadCourse(course);
+                        rows++;
+                    } catch (IllegalArgumentException e) {
+                        rejectRow("courses", reader.rowText(), "course", e);
+                    }
                 }
-            });
-            System.out.println("Course data loaded.");
+            }
+            LOAD_COURSES.recordSince(start, rows, Files.size(Paths.get(coursesFile)));
+            long loaded = rows;
+            LOG.at(Level.INFO, Outcome.DATA_LOADED).with("data", "courses").with("rows", loaded).log("Course data loaded.");
+        } catch (NoSuchFileException e) {
+            LOG.at(Level.INFO, Outcome.NO_DATA).with("data", "courses").log("No existing course data found.");
         } catch (IOException e) {
-            System.out.println("No existing course data found.");
+            LOG.at(Level.ERROR, Outcome.LOAD_FAILED).with("data", "courses")
+                    .log(() -> "Error loading course data: " + e.getMessage());
         }
     }
 
     private void loadEnrollments() {
         String enrollmentsFile = AppConfig.getInstance().getEnrollmentsFile();
-        try (Stream<String> lines = Files.lines(Paths.get(enrollmentsFile))) {
-            lines.forEach(line -> {
-                String[] parts = line.split(",");
-                if (parts.length == 2) {
+        long start = Metrics.startTimer();
+        long bytes;
+        EnrollmentBatch batch = new EnrollmentBatch();
+        // Graded rows, kept in parallel arrays rather than one String[] per row.
+        int gradedCount = 0;
+        long[] gradedStudentIds = new long[256];
+        String[] gradedCourseCodes = new String[256];
+        Grade[] grades = new Grade[256];
+        try (CsvReader reader = newReader(enrollmentsFile)) {
+            while (reader.nextRow()) {
+                int fields = reader.fieldCount();
+                if (fields == 2 || fields == 3) {
                     try {
-                        long studentId = Long.parseLong(parts[0]);
-                        String courseCode = parts[1];
-                        enrollmentService.enrollStudent(studentId, courseCode);
-                    } catch (Exception e) {
-                        System.err.println("Could not load enrollment for line '" + line + "': " + e.getMessage());
+                        long studentId = reader.longField(0);
+                        String courseCode = reader.field(1);
+                        batch.add(studentId, courseCode);
+                        Grade grade = fields == 3 ? Grade.valueOf(reader.field(2)) : null;
+                        if (grade != null) {
+                            if (gradedCount == grades.length) {
+                                gradedStudentIds = Arrays.copyOf(gradedStudentIds, gradedCount * 2);
+                                gradedCourseCodes = Arrays.copyOf(gradedCourseCodes, gradedCount * 2);
+                                grades = Arrays.copyOf(grades, gradedCount * 2);
+                            }
+                            gradedStudentIds[gradedCount] = studentId;
+                            gradedCourseCodes[gradedCount] = courseCode;
+                            grades[gradedCount] = grade;
+                            gradedCount++;
+                        }
+                    } catch (IllegalArgumentException e) {
+                        rejectRow("enrollments", reader.rowText(), "enrollment", e);
                     }
                 }
-            });
-            System.out.println("Enrollment data loaded.");
+            }
+            bytes = Files.size(Paths.get(enrollmentsFile));
+        } catch (NoSuchFileException e) {
+            LOG.at(Level.INFO, Outcome.NO_DATA).with("data", "enrollments").log("No existing enrollment data found.");
+            return;
         } catch (IOException e) {
-            System.out.println("No existing enrollment data found.");
+            LOG.at(Level.ERROR, Outcome.LOAD_FAILED).with("data", "enrollments")
+                    .log(() -> "Error loading enrollment data: " + e.getMessage());
+            return;
+        }
+        logReplayReport(enrollmentService.replayEnrollments(batch));
+        // Grades can only be restored once the enrollments they belong to exist.
+        for (int i = 0; i < gradedCount; i++) {
+            if (!transcriptService.loadGrade(gradedStudentIds[i], gradedCourseCodes[i], grades[i])) {
+                rejectGrade(gradedStudentIds[i], gradedCourseCodes[i], grades[i]);
+            }
         }
+        LOAD_ENROLLMENTS.recordSince(start, batch.size(), bytes);
+        LOG.at(Level.INFO, Outcome.DATA_LOADED).with("data", "enrollments").with("rows", batch.size())
+                .log("Enrollment data loaded.");
     }
 
-    public void backupData() {
-        String backupsDirName = AppConfig.getInstance().getBackupsDirectory();
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
-        Path backupDir = Paths.get(backupsDirName, "backup_" + timestamp);
-
-        try {
-            Files.createDirectories(backupDir);
-
-            Path studentsSource = Paths.get(AppConfig.getInstance().getStudentsFile());
-            Path coursesSource = Paths.get(AppConfig.getInstance().getCoursesFile());
-            Path enrollmentsSource = Paths.get(AppConfig.getInstance().getEnrollmentsFile());
+    /**
+     * Reports a data file line that could not be loaded and was skipped.
+     */
+    static void rejectRow(String data, String line, String kind, Exception e) {
+        LOG.at(Level.WARN, Outcome.ROW_REJECTED).with("data", data)
+                .log(() -> "Could not load " + kind + " for line '" + line + "': " + e.getMessage());
+    }
 
-            if (Files.exists(studentsSource)) Files.copy(studentsSource, backupDir.resolve(studentsSource.getFileName()));
-            if (Files.exists(coursesSource)) Files.copy(coursesSource, backupDir.resolve(coursesSource.getFileName()));
-            if (Files.exists(enrollmentsSource)) Files.copy(enrollmentsSource, backupDir.resolve(enrollmentsSource.getFileName()));
+    static void rejectGrade(long studentId, String courseCode, Grade grade) {
+        LOG.at(Level.WARN, Outcome.ROW_REJECTED).with("data", "enrollments").with("studentId", studentId)
+                .with("courseCode", courseCode)
+                .log(() -> "Could not load grade for line '" + studentId + "," + courseCode + "," + grade.name() + "': not enrolled.");
+    }
 
-            System.out.println("SUCCESS: Data backed up to " + backupDir);
+    /**
+     * Reports the outcome of an enrollment replay, listing the first few rejected rows.
+     */
+    static void logReplayReport(EnrollmentReplayReport report) {
+        final int maxListed = 20;
+        if (report.getFailureCount() > 0) {
+            List<EnrollmentReplayReport.Failure> failures = report.getFailures();
+            for (int i = 0; i < Math.min(maxListed, failures.size()); i++) {
+                EnrollmentReplayReport.Failure failure = failures.get(i);
+                LOG.at(Level.WARN, Outcome.ROW_REJECTED).with("data", "enrollments")
+                        .log(() -> "Could not load enrollment: " + failure);
+            }
+            if (failures.size() > maxListed) {
+                LOG.at(Level.WARN, Outcome.ROW_REJECTED).with("data", "enrollments").with("more", failures.size() - maxListed)
+                        .log(() -> "... and " + (failures.size() - maxListed) + " more rejected enrollments.");
+            }
+        }
+        LOG.at(Level.INFO, Outcome.REPLAYED).with("enrolled", report.getEnrolledCount()).with("rejected", report.getFailureCount())
+                .log(() -> "Replayed " + report.getEnrolledCount() + " enrollments, " + report.getFailureCount() + " rejected.");
+    }
 
+    /**
+     * Backs up the data files into the deduplicating backup store, then prunes
+     * backups beyond the configured retention count.
+     */
+    public void backupData() {
+        try {
+            BackupStore store = getBackupStore();
+            BackupStore.BackupInfo backup = store.createBackup(dataFiles());
+            LOG.at(Level.INFO, Outcome.BACKUP_CREATED).with("backupId", backup.getId())
+                    .with("files", backup.getFileCount()).with("newBytes", backup.getNewBytes())
+                    .log(() -> String.format("SUCCESS: Backup %s created (%d files, %.1f KB; %.1f KB new after deduplication).",
+                            backup.getId(), backup.getFileCount(), backup.getLogicalBytes() / 1024.0, backup.getNewBytes() / 1024.0));
+            int pruned = store.prune(AppConfig.getInstance().getBackupRetentionCount());
+            if (pruned > 0) {
+                LOG.at(Level.INFO, Outcome.BACKUPS_PRUNED).with("pruned", pruned)
+                        .log(() -> "Removed " + pruned + " old backup(s).");
+            }
         } catch (IOException e) {
-            System.err.println("ERROR: Could not create backup. " + e.getMessage());
+            LOG.at(Level.ERROR, Outcome.BACKUP_FAILED).log(() -> "ERROR: Could not create backup. " + e.getMessage());
         }
     }
 
-    public long calculateDirectorySize(Path path) throws IOException {
-        long totalSize = 0;
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
-            for (Path entry : stream) {
-                if (Files.isDirectory(entry)) {
-                    totalSize += calculateDirectorySize(entry);
-                } else {
-                    totalSize += Files.size(entry);
-                }
+    /**
+     * Restores the newest backup taken at or before the given time into its own
+     * directory under the backups directory. The live data files are not touched.
+     * @return The directory the files were restored into, or null if nothing was restored.
+     */
+    public Path restoreBackup(Instant pointInTime) {
+        try {
+            BackupStore store = getBackupStore();
+            BackupStore.BackupInfo backup = store.findBackupAsOf(pointInTime);
+            if (backup == null) {
+                LOG.at(Level.INFO, Outcome.BACKUP_NOT_FOUND).with("pointInTime", pointInTime)
+                        .log("ERROR: No backup was taken at or before that time.");
+                return null;
             }
+            Path target = Paths.get(AppConfig.getInstance().getBackupsDirectory(), "restore_" + backup.getId());
+            List<Path> files = store.restore(backup.getId(), target);
+            LOG.at(Level.INFO, Outcome.RESTORED).with("backupId", backup.getId()).with("files", files.size())
+                    .log(() -> "SUCCESS: Restored " + files.size() + " files from backup " + backup.getId() + " to " + target);
+            return target;
+        } catch (IOException e) {
+            LOG.at(Level.ERROR, Outcome.RESTORE_FAILED).log(() -> "ERROR: Could not restore backup. " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return The backup store, opened on first use.
+     */
+    public synchronized BackupStore getBackupStore() throws IOException {
+        if (backupStore == null) {
+            backupStore = BackupStore.open(Paths.get(AppConfig.getInstance().getBackupsDirectory()));
+        }
+        return backupStore;
+    }
+
+    /**
+     * @return Every file a save may write, in either format, with the manifests.
+     */
+    private static List<Path> dataFiles() {
+        AppConfig config = AppConfig.getInstance();
+        List<Path> files = new ArrayList<>();
+        files.add(Paths.get(config.getStudentsFile()));
+        files.add(Paths.get(config.getCoursesFile()));
+        files.add(Paths.get(config.getEnrollmentsFile()));
+        files.add(Paths.get(config.getBinarySnapshotFile()));
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            files.add(manifestFor(format));
         }
-        return totalSize;
+        return files;
     }
 }
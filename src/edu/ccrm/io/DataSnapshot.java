@@ -0,0 +1,98 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseSchedule;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Instructor;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.TranscriptService;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A point-in-time copy of everything a save writes: students, courses, and
+ * enrollments with their grades. Taking the copy is quick and blocks enrollment
+ * changes only while it runs; the slow part, writing it to disk, then works from
+ * the copy while the services carry on changing.
+ */
+class DataSnapshot {
+
+    // Students, one row per index.
+    final int studentCount;
+    final long[] studentIds;
+    final String[] regNos;
+    final String[] fullNames;
+    final String[] emails;
+    final String[] statuses;
+
+    // Course fields used by saves are final, so the objects themselves are kept.
+    // The instructor and schedule can be replaced, so they are copied: courseInstructors[i]
+    // teaches courses.get(i), which meets as courseSchedules[i] (null if it is not timetabled).
+    final List<Course> courses;
+    final Instructor[] courseInstructors;
+    final CourseSchedule[] courseSchedules;
+
+    // Enrollments, one row per index, grouped by student. A null grade means none recorded yet.
+    int enrollmentCount;
+    long[] enrollmentStudentIds = new long[1024];
+    String[] enrollmentCourseCodes = new String[1024];
+    Grade[] enrollmentGrades = new Grade[1024];
+
+    private DataSnapshot(List<Student> students, List<Course> courses) {
+        this.studentCount = students.size();
+        this.studentIds = new long[studentCount];
+        this.regNos = new String[studentCount];
+        this.fullNames = new String[studentCount];
+        this.emails = new String[studentCount];
+        this.statuses = new String[studentCount];
+        this.courses = courses;
+        this.courseInstructors = new Instructor[courses.size()];
+        this.courseSchedules = new CourseSchedule[courses.size()];
+        for (int i = 0; i < courseInstructors.length; i++) {
+            courseInstructors[i] = courses.get(i).getInstructor();
+            courseSchedules[i] = courses.get(i).getSchedule();
+        }
+    }
+
+    /**
+     * Copies the current data. No enrollment or grade can change while the copy is taken,
+     * so every enrollment in it refers to a student and course that are also in it.
+     */
+    static DataSnapshot capture(StudentService studentService, CourseService courseService,
+                                EnrollmentService enrollmentService, TranscriptService transcriptService) {
+        return enrollmentService.withAllStudentsLocked(() -> {
+            List<Student> students = studentService.getAllStudents();
+            DataSnapshot snapshot = new DataSnapshot(students, courseService.getAllCourses());
+            for (int i = 0; i < snapshot.studentCount; i++) {
+                Student student = students.get(i);
+                snapshot.studentIds[i] = student.getId();
+                snapshot.regNos[i] = student.getRegNo();
+                snapshot.fullNames[i] = student.getFullName();
+                snapshot.emails[i] = student.getEmail();
+                snapshot.statuses[i] = student.getStatus();
+                for (Course course : student.getEnrolledCoursesView()) {
+                    snapshot.addEnrollment(student.getId(), course.getCode(),
+                            transcriptService.getGrade(student.getId(), course.getCode()));
+                }
+            }
+            return snapshot;
+        });
+    }
+
+    private void addEnrollment(long studentId, String courseCode, Grade grade) {
+        if (enrollmentCount == enrollmentStudentIds.length) {
+            int capacity = enrollmentCount * 2;
+            enrollmentStudentIds = Arrays.copyOf(enrollmentStudentIds, capacity);
+            enrollmentCourseCodes = Arrays.copyOf(enrollmentCourseCodes, capacity);
+            enrollmentGrades = Arrays.copyOf(enrollmentGrades, capacity);
+        }
+        enrollmentStudentIds[enrollmentCount] = studentId;
+        enrollmentCourseCodes[enrollmentCount] = courseCode;
+        enrollmentGrades[enrollmentCount] = grade;
+        enrollmentCount++;
+    }
+}
@@ -0,0 +1,638 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseSchedule;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Instructor;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import edu.ccrm.log.EventLogger;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Log;
+import edu.ccrm.log.Outcome;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.DataChangeListener;
+import edu.ccrm.service.EnrollmentBatch;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.TranscriptService;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only write-ahead journal of the changes made through the services.
+ * Instead of rewriting every CSV file on each save, each change is appended as a small
+ * record, so the cost of saving scales with the size of the change.
+ *
+ * Records are written by a background thread that batches everything queued up since
+ * its last write and syncs the file once per batch (group commit). On startup the last
+ * snapshot is loaded as usual and recover() replays the journal on top of it.
+ * Once the journal grows past a threshold, a background compaction writes a fresh
+ * snapshot and deletes the journal segments it covers.
+ *
+ * On disk the journal is a series of segment files, journal-000001.log and so on.
+ * Each record is [int length][int CRC32 of payload][payload], so a record torn by a
+ * crash is detected and ignored on recovery.
+ */
+public class Journal implements DataChangeListener, Closeable {
+
+    private static final EventLogger LOG = Log.logger("journal");
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_BATCH_RECORDS = 4096;
+
+    // Record types
+    private static final byte STUDENT_UPSERT = 1;
+    private static final byte COURSE_ADDED = 2;
+    private static final byte ENROLLED = 3;
+    private static final byte DROPPED = 4;
+    private static final byte GRADE_RECORDED = 5;
+    private static final byte INSTRUCTOR_ASSIGNED = 6;
+    private static final byte COURSE_SCHEDULED = 7;
+
+    // Marks the end of the queue when closing; compared by identity.
+    private static final byte[] CLOSE_MARKER = new byte[0];
+
+    private final Path directory;
+    private final BooleanSupplier snapshotWriter;
+    private final long groupCommitNanos;
+    private final long compactionThresholdBytes;
+
+    private final BlockingQueue<byte[]> pending = new LinkedBlockingQueue<>();
+    private final AtomicLong appendedCount = new AtomicLong();
+    private final Object durableLock = new Object();
+    private long durableCount; // Guarded by durableLock
+    private IOException writeFailure; // Guarded by durableLock
+
+    // The current segment; replaced under segmentLock when the journal is rotated.
+    private final Object segmentLock = new Object();
+    private FileChannel segment;
+    private int segmentNumber;
+    private long bytesSinceCompaction;
+
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(daemonThreadFactory("ccrm-journal-compactor"));
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+    private Thread writerThread;
+    private volatile boolean open;
+
+    /**
+     * @param directory Where the journal segments are kept.
+     * @param snapshotWriter Writes a full snapshot of the current data, returning true on success
+     *                       (normally DataPersistenceService::saveData).
+     * @param groupCommitMillis How long the writer waits for more records before syncing a batch.
+     * @param compactionThresholdBytes Journal size after which a background compaction is started.
+     */
+    public Journal(Path directory, BooleanSupplier snapshotWriter, long groupCommitMillis, long compactionThresholdBytes) {
+        this.directory = directory;
+        this.snapshotWriter = snapshotWriter;
+        this.groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+        this.compactionThresholdBytes = compactionThresholdBytes;
+    }
+
+    // --- Recovery ---
+
+    /**
+     * Replays every journal segment on disk, oldest first, into the services.
+     * Call this after the snapshot has been loaded and before open(), so the replayed
+     * changes are not journaled again. Replaying is idempotent, which matters because
+     * a snapshot taken during compaction may already contain some of the records
+     * from the segments that follow it.
+     * @return The number of records replayed.
+     */
+    public int recover(StudentService studentService, CourseService courseService,
+                       EnrollmentService enrollmentService, TranscriptService transcriptService) throws IOException {
+        int replayed = 0;
+        for (Path file : listSegments()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                byte[] payload;
+                while ((payload = readRecord(in)) != null) {
+                    apply(payload, studentService, courseService, enrollmentService, transcriptService);
+                    replayed++;
+                }
+            } catch (CorruptRecordException e) {
+                // A crash can leave a partly written record at the end of a segment.
+                LOG.at(Level.WARN, Outcome.DATA_CORRUPT).with("segment", file.getFileName())
+                        .log(() -> "Journal " + file.getFileName() + ": ignoring damaged tail (" + e.getMessage() + ").");
+            }
+        }
+        if (replayed > 0) {
+            int records = replayed;
+            LOG.at(Level.INFO, Outcome.REPLAYED).with("records", records)
+                    .log(() -> "Replayed " + records + " journal records.");
+        }
+        return replayed;
+    }
+
+    private static void apply(byte[] payload, StudentService studentService, CourseService courseService,
+                              EnrollmentService enrollmentService, TranscriptService transcriptService) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        switch (type) {
+            case STUDENT_UPSERT: {
+                long id = in.readLong();
+                String regNo = in.readUTF();
+                String fullName = in.readUTF();
+                String email = in.readUTF();
+                String status = in.readUTF();
+                Student student = studentService.findStudentById(id);
+                if (student == null) {
+                    studentService.loadStudent(id, regNo, fullName, email);
+                    student = studentService.findStudentById(id);
+                } else {
+                    // Update in place so the student's enrollments are kept.
+                    student.setRegNo(regNo);
+                    student.setFullName(fullName);
+                    student.setEmail(email);
+                }
+                student.setStatus(status);
+                break;
+            }
+            case COURSE_ADDED: {
+                String code = in.readUTF();
+                String title = in.readUTF();
+                int credits = in.readInt();
+                String semester = in.readUTF();
+                int capacity = in.readInt();
+                if (courseService.findCourseByCode(code) == null) {
+                    courseService.loadCourse(new Course.Builder(code, title)
+                            .credits(credits)
+                            .semester(semester.isEmpty() ? null : Semester.valueOf(semester))
+                            .capacity(capacity)
+                            .build());
+                }
+                break;
+            }
+            case INSTRUCTOR_ASSIGNED: {
+                String courseCode = in.readUTF();
+                Instructor instructor = new Instructor(in.readLong(), in.readUTF(), in.readUTF(), in.readUTF());
+                courseService.loadInstructorAssignment(courseCode, instructor);
+                break;
+            }
+            case COURSE_SCHEDULED: {
+                String courseCode = in.readUTF();
+                String room = in.readUTF();
+                String meetings = in.readUTF();
+                courseService.loadCourseSchedule(courseCode,
+                        room.isEmpty() ? null : new CourseSchedule(room, CourseSchedule.parseMeetings(meetings)));
+                break;
+            }
+            case ENROLLED: {
+                EnrollmentBatch batch = new EnrollmentBatch(1);
+                batch.add(in.readLong(), in.readUTF());
+                enrollmentService.replayEnrollments(batch); // Already-present enrollments are rejected as duplicates.
+                break;
+            }
+            case DROPPED:
+                enrollmentService.removeEnrollment(in.readLong(), in.readUTF());
+                break;
+            case GRADE_RECORDED: {
+                long studentId = in.readLong();
+                String courseCode = in.readUTF();
+                transcriptService.loadGrade(studentId, courseCode, Grade.valueOf(in.readUTF()));
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    /**
+     * Reads one record and checks its CRC.
+     * @return The payload, or null at a clean end of file.
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        try {
+            int crc = in.readInt();
+            if (length <= 0 || length > (1 << 24)) {
+                throw new CorruptRecordException("bad record length " + length);
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            if ((int) crc32(payload) != crc) {
+                throw new CorruptRecordException("checksum mismatch");
+            }
+            return payload;
+        } catch (EOFException e) {
+            throw new CorruptRecordException("truncated record");
+        }
+    }
+
+    // --- Writing ---
+
+    /**
+     * Starts a new segment and the background writer. Register the journal as a
+     * DataChangeListener on the services after calling this.
+     */
+    public synchronized void open() throws IOException {
+        if (open) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<Path> existing = listSegments();
+        // Never append to an old segment: it may end with a torn record.
+        int last = existing.isEmpty() ? 0 : segmentNumberOf(existing.get(existing.size() - 1));
+        synchronized (segmentLock) {
+            openSegment(last + 1);
+            bytesSinceCompaction = 0;
+            for (Path file : existing) {
+                bytesSinceCompaction += Files.size(file);
+            }
+        }
+        open = true;
+        writerThread = daemonThreadFactory("ccrm-journal-writer").newThread(this::writeLoop);
+        writerThread.start();
+    }
+
+    /**
+     * Queues a record for writing and returns immediately.
+     * @return The record's sequence number, for use with awaitDurable().
+     */
+    private long append(byte[] payload) {
+        if (!open) {
+            return appendedCount.get();
+        }
+        long sequence;
+        synchronized (pending) {
+            // Numbering and queueing together keeps sequence numbers in queue order.
+            sequence = appendedCount.incrementAndGet();
+            pending.add(payload);
+        }
+        return sequence;
+    }
+
+    /**
+     * Blocks until every record appended so far has been written and synced.
+     */
+    public void flush() throws IOException {
+        awaitDurable(appendedCount.get());
+    }
+
+    private void awaitDurable(long sequence) throws IOException {
+        synchronized (durableLock) {
+            while (durableCount < sequence && writeFailure == null && writerThread != null && writerThread.isAlive()) {
+                try {
+                    durableLock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the journal", e);
+                }
+            }
+            if (writeFailure != null) {
+                throw writeFailure;
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<byte[]> batch = new ArrayList<>();
+        boolean closing = false;
+        while (!closing) {
+            batch.clear();
+            try {
+                batch.add(pending.take());
+                // Group commit: give other changes a moment to join this batch's sync.
+                long deadline = System.nanoTime() + groupCommitNanos;
+                while (batch.size() < MAX_BATCH_RECORDS) {
+                    long remaining = deadline - System.nanoTime();
+                    byte[] next = remaining > 0 ? pending.poll(remaining, TimeUnit.NANOSECONDS) : pending.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    pending.drainTo(batch, MAX_BATCH_RECORDS - batch.size());
+                }
+            } catch (InterruptedException e) {
+                closing = true;
+            }
+            int records = 0;
+            for (byte[] payload : batch) {
+                if (payload == CLOSE_MARKER) {
+                    closing = true;
+                } else {
+                    records++;
+                }
+            }
+            if (records > 0) {
+                writeBatch(batch, records);
+            }
+        }
+    }
+
+    private void writeBatch(List<byte[]> batch, int records) {
+        IOException failure = null;
+        boolean compactionDue = false;
+        try {
+            int size = 0;
+            for (byte[] payload : batch) {
+                if (payload != CLOSE_MARKER) {
+                    size += 8 + payload.length;
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (byte[] payload : batch) {
+                if (payload != CLOSE_MARKER) {
+                    buffer.putInt(payload.length).putInt((int) crc32(payload)).put(payload);
+                }
+            }
+            buffer.flip();
+            synchronized (segmentLock) {
+                while (buffer.hasRemaining()) {
+                    segment.write(buffer);
+                }
+                segment.force(false); // One sync for the whole batch.
+                bytesSinceCompaction += size;
+                compactionDue = bytesSinceCompaction >= compactionThresholdBytes;
+            }
+        } catch (IOException e) {
+            failure = e;
+            LOG.at(Level.ERROR, Outcome.JOURNAL_WRITE_FAILED).with("records", records)
+                    .log(() -> "ERROR: Could not write to the journal. " + e.getMessage());
+        }
+        synchronized (durableLock) {
+            if (failure != null) {
+                writeFailure = failure;
+            }
+            durableCount += records;
+            durableLock.notifyAll();
+        }
+        if (compactionDue) {
+            requestCompaction();
+        }
+    }
+
+    // --- Compaction ---
+
+    /**
+     * Starts a compaction in the background, unless one is already queued.
+     */
+    public void requestCompaction() {
+        if (compactionQueued.compareAndSet(false, true)) {
+            compactor.submit(() -> {
+                compactionQueued.set(false);
+                try {
+                    compact();
+                } catch (IOException e) {
+                    LOG.at(Level.ERROR, Outcome.COMPACTION_FAILED)
+                            .log(() -> "ERROR: Journal compaction failed. " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Folds the journal into a fresh snapshot and deletes the segments it covers.
+     * New changes go to a new segment first, so they are never lost, even if they
+     * are made while the snapshot is being written.
+     * @return true if the snapshot was written and the old segments removed.
+     */
+    public synchronized boolean compact() throws IOException {
+        if (!open) {
+            return false;
+        }
+        flush();
+        int firstKept;
+        synchronized (segmentLock) {
+            firstKept = segmentNumber + 1;
+            segment.force(true);
+            segment.close();
+            openSegment(firstKept);
+            bytesSinceCompaction = 0;
+        }
+        if (!snapshotWriter.getAsBoolean()) {
+            // Keep the old segments: they are still needed to rebuild the data.
+            LOG.at(Level.ERROR, Outcome.COMPACTION_FAILED).with("firstKept", firstKept)
+                    .log("ERROR: Snapshot failed; journal kept for recovery.");
+            return false;
+        }
+        for (Path file : listSegments()) {
+            if (segmentNumberOf(file) < firstKept) {
+                Files.deleteIfExists(file);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Flushes all queued records, waits for a running compaction, and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        // Let a running compaction finish first; it needs the writer and this object's lock.
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (!open) {
+                return;
+            }
+            open = false;
+            pending.add(CLOSE_MARKER);
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (segmentLock) {
+                segment.close();
+            }
+        }
+        synchronized (durableLock) {
+            if (writeFailure != null) {
+                throw writeFailure;
+            }
+        }
+    }
+
+    // --- DataChangeListener: turn each change into a record ---
+
+    @Override
+    public void studentAdded(Student student) {
+        studentUpdated(student);
+    }
+
+    @Override
+    public void studentUpdated(Student student) {
+        append(encode(out -> {
+            out.writeByte(STUDENT_UPSERT);
+            out.writeLong(student.getId());
+            out.writeUTF(nullToEmpty(student.getRegNo()));
+            out.writeUTF(nullToEmpty(student.getFullName()));
+            out.writeUTF(nullToEmpty(student.getEmail()));
+            out.writeUTF(nullToEmpty(student.getStatus()));
+        }));
+    }
+
+    @Override
+    public void courseAdded(Course course) {
+        append(encode(out -> {
+            out.writeByte(COURSE_ADDED);
+            out.writeUTF(course.getCode());
+            out.writeUTF(nullToEmpty(course.getTitle()));
+            out.writeInt(course.getCredits());
+            out.writeUTF(course.getSemester() == null ? "" : course.getSemester().name());
+            out.writeInt(course.getCapacity());
+        }));
+    }
+
+    @Override
+    public void instructorAssigned(String courseCode, Instructor instructor) {
+        append(encode(out -> {
+            out.writeByte(INSTRUCTOR_ASSIGNED);
+            out.writeUTF(courseCode);
+            out.writeLong(instructor.getId());
+            out.writeUTF(nullToEmpty(instructor.getFullName()));
+            out.writeUTF(nullToEmpty(instructor.getEmail()));
+            out.writeUTF(nullToEmpty(instructor.getDepartment()));
+        }));
+    }
+
+    @Override
+    public void courseScheduled(String courseCode, CourseSchedule schedule) {
+        append(encode(out -> {
+            out.writeByte(COURSE_SCHEDULED);
+            out.writeUTF(courseCode);
+            // An empty room means the course was taken off the timetable.
+            out.writeUTF(schedule == null ? "" : schedule.getRoom());
+            out.writeUTF(schedule == null ? "" : schedule.formatMeetings());
+        }));
+    }
+
+    @Override
+    public void studentEnrolled(long studentId, String courseCode) {
+        append(encode(out -> {
+            out.writeByte(ENROLLED);
+            out.writeLong(studentId);
+            out.writeUTF(courseCode);
+        }));
+    }
+
+    @Override
+    public void studentDropped(long studentId, String courseCode) {
+        append(encode(out -> {
+            out.writeByte(DROPPED);
+            out.writeLong(studentId);
+            out.writeUTF(courseCode);
+        }));
+    }
+
+    @Override
+    public void gradeRecorded(long studentId, String courseCode, Grade grade) {
+        append(encode(out -> {
+            out.writeByte(GRADE_RECORDED);
+            out.writeLong(studentId);
+            out.writeUTF(courseCode);
+            out.writeUTF(grade.name());
+        }));
+    }
+
+    // --- Helpers ---
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Cannot happen with an in-memory stream.
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static long crc32(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    private void openSegment(int number) throws IOException {
+        segmentNumber = number;
+        segment = FileChannel.open(directory.resolve(segmentName(number)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static String segmentName(int number) {
+        return String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+    }
+
+    private static int segmentNumberOf(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * @return The segment files on disk, oldest first.
+     */
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "[0-9]*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                segments.add(file);
+            }
+        }
+        segments.sort((a, b) -> Integer.compare(segmentNumberOf(a), segmentNumberOf(b)));
+        return segments;
+    }
+
+    static java.util.concurrent.ThreadFactory daemonThreadFactory(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Thrown when a journal record fails its length or checksum check.
+     */
+    private static class CorruptRecordException extends IOException {
+        CorruptRecordException(String message) {
+            super(message);
+        }
+    }
+}
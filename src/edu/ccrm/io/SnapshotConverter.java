@@ -0,0 +1,54 @@
+package edu.ccrm.io;
+
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.TranscriptService;
+
+/**
+ * Converts the saved data between the CSV files and the binary snapshot.
+ * Usage: java edu.ccrm.io.SnapshotConverter <from> <to>, e.g. "csv binary".
+ */
+public class SnapshotConverter {
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: java edu.ccrm.io.SnapshotConverter <csv|binary> <csv|binary>");
+            System.exit(2);
+        }
+        SnapshotFormat from;
+        SnapshotFormat to;
+        try {
+            from = SnapshotFormat.fromName(args[0]);
+            to = SnapshotFormat.fromName(args[1]);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown format. Use 'csv' or 'binary'.");
+            System.exit(2);
+            return;
+        }
+        if (!convert(from, to)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Loads the data saved in one format and saves it in the other.
+     * @return true if the data was written successfully.
+     */
+    public static boolean convert(SnapshotFormat from, SnapshotFormat to) {
+        StudentService studentService = new StudentService();
+        CourseService courseService = new CourseService();
+        EnrollmentService enrollmentService = new EnrollmentService(studentService, courseService);
+        TranscriptService transcriptService = new TranscriptService(studentService);
+        DataPersistenceService persistenceService =
+                new DataPersistenceService(studentService, courseService, enrollmentService, transcriptService);
+
+        long start = System.nanoTime();
+        if (!persistenceService.loadData(from)) {
+            return false;
+        }
+        boolean saved = persistenceService.saveData(to);
+        System.out.printf("Converted %s to %s in %.3f s.%n", from, to, (System.nanoTime() - start) / 1_000_000_000.0);
+        return saved;
+    }
+}
@@ -0,0 +1,17 @@
+package edu.ccrm.io;
+
+/**
+ * The on-disk formats a full data snapshot can be saved in.
+ */
+public enum SnapshotFormat {
+    CSV,    // students.csv, courses.csv and enrollments.csv; easy to read and edit by hand
+    BINARY; // One compact file that loads much faster; see BinarySnapshot
+
+    /**
+     * Parses a format name such as "csv" or "binary", ignoring case.
+     * @throws IllegalArgumentException if the name is not a known format.
+     */
+    public static SnapshotFormat fromName(String name) {
+        return valueOf(name.trim().toUpperCase(java.util.Locale.ROOT));
+    }
+}
@@ -0,0 +1,176 @@
+package edu.ccrm.io;
+
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Outcome;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Lists the files that make up one saved snapshot, with each file's length,
+ * record count and CRC32C checksum. A snapshot is only valid if every file
+ * listed still matches its entry.
+ *
+ * Saves are published by renaming the manifest into place first and the data
+ * files after it, so the manifest always describes the snapshot that was last
+ * committed. If a crash interrupts the data renames, prepareForLoad() finishes
+ * them from the leftover temp files.
+ *
+ * On disk the manifest is a text file with a "format" line followed by one
+ * tab-separated line per data file: name, bytes, records, checksum (hex).
+ */
+class SnapshotManifest {
+
+    static final String TEMP_SUFFIX = ".tmp";
+    private static final String FORMAT_PREFIX = "format=";
+
+    private final SnapshotFormat format;
+    private final List<Entry> entries = new ArrayList<>();
+
+    SnapshotManifest(SnapshotFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * One data file in the snapshot. For CSV files the records are lines;
+     * for the binary snapshot they are students, courses and enrollments.
+     */
+    static class Entry {
+        final String file;
+        final long bytes;
+        final long records;
+        final long checksum;
+
+        Entry(String file, long bytes, long records, long checksum) {
+            this.file = file;
+            this.bytes = bytes;
+            this.records = records;
+            this.checksum = checksum;
+        }
+    }
+
+    void add(Entry entry) {
+        entries.add(entry);
+    }
+
+    List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    static Path tempFor(Path file) {
+        return file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+    }
+
+    /**
+     * Writes the manifest to a file and syncs it.
+     */
+    void write(Path file) throws IOException {
+        StringBuilder text = new StringBuilder(FORMAT_PREFIX).append(format.name().toLowerCase()).append('\n');
+        for (Entry entry : entries) {
+            text.append(entry.file).append('\t').append(entry.bytes).append('\t')
+                .append(entry.records).append('\t').append(Long.toHexString(entry.checksum)).append('\n');
+        }
+        try (ChecksummedFileOutput out = new ChecksummedFileOutput(file)) {
+            out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    static SnapshotManifest read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String header = reader.readLine();
+            if (header == null || !header.startsWith(FORMAT_PREFIX)) {
+                throw new IOException("Manifest " + file + " has no format line");
+            }
+            SnapshotManifest manifest = new SnapshotManifest(SnapshotFormat.fromName(header.substring(FORMAT_PREFIX.length())));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length != 4) {
+                    throw new IOException("Malformed manifest line '" + line + "'");
+                }
+                manifest.add(new Entry(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+                        Long.parseUnsignedLong(parts[3], 16)));
+            }
+            return manifest;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed manifest " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the snapshot described by a manifest ready to load. Data files whose rename
+     * was interrupted are rolled forward from their temp files, temp files left by an
+     * unfinished save are deleted, and every file is checked against its entry.
+     * Does nothing if there is no manifest, so data saved before manifests existed still loads.
+     * @throws IOException if any file is missing or does not match the manifest.
+     */
+    static void prepareForLoad(Path manifestFile) throws IOException {
+        // A save that crashed before its commit point leaves only temp files behind.
+        Files.deleteIfExists(tempFor(manifestFile));
+        if (!Files.exists(manifestFile)) {
+            return;
+        }
+        SnapshotManifest manifest = read(manifestFile);
+        for (Entry entry : manifest.entries) {
+            Path file = Paths.get(entry.file);
+            Path temp = tempFor(file);
+            if (Files.exists(temp)) {
+                if (manifest.matches(temp, entry)) {
+                    // Committed, but the crash came before this file was renamed.
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    DataPersistenceService.LOG.at(Level.INFO, Outcome.RECOVERED).with("file", entry.file)
+                            .log(() -> "Recovered " + entry.file + " from an interrupted save.");
+                } else {
+                    Files.delete(temp);
+                }
+            }
+            if (!Files.exists(file)) {
+                throw new IOException(entry.file + " is missing");
+            }
+            if (!manifest.matches(file, entry)) {
+                throw new IOException(entry.file + " does not match its checksum or record count");
+            }
+        }
+    }
+
+    /**
+     * Checks a file against an entry in one streaming pass over its contents.
+     */
+    private boolean matches(Path file, Entry entry) throws IOException {
+        if (Files.size(file) != entry.bytes) {
+            return false;
+        }
+        CRC32C checksum = new CRC32C();
+        long lines = 0;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ChecksummedFileOutput.BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0 || buffer.position() > 0) {
+                buffer.flip();
+                if (format == SnapshotFormat.CSV) {
+                    for (int i = buffer.position(); i < buffer.limit(); i++) {
+                        if (buffer.get(i) == '\n') {
+                            lines++;
+                        }
+                    }
+                }
+                checksum.update(buffer);
+                buffer.clear();
+            }
+        }
+        // The binary snapshot stores its own record counts; only line counts can be checked here.
+        boolean recordsMatch = format != SnapshotFormat.CSV || lines == entry.records;
+        return recordsMatch && checksum.getValue() == entry.checksum;
+    }
+}
@@ -0,0 +1,259 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Student;
+import edu.ccrm.log.EventLogger;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Log;
+import edu.ccrm.log.Outcome;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.TranscriptService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Generates transcripts for many students at once, in parallel, and streams them to disk.
+ * Students are rendered in blocks on a fork-join pool, each worker reusing its own buffer.
+ * Only a bounded window of blocks is in flight at a time, so memory use does not grow with
+ * the number of students, and blocks are written in the requested order, so the output is
+ * the same on every run.
+ */
+public class TranscriptBatchWriter {
+
+    private static final EventLogger LOG = Log.logger("export");
+    private static final int BLOCK_SIZE = 256;          // Students rendered per task
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final String SEPARATOR = "\n";        // Blank line between transcripts in a combined file
+
+    private final StudentService studentService;
+    private final TranscriptService transcriptService;
+    private final ForkJoinPool pool;
+    // Each worker thread reuses one buffer for all the transcripts it renders.
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(4096));
+    private final ThreadLocal<char[]> copyBuffers = ThreadLocal.withInitial(() -> new char[8192]);
+
+    public TranscriptBatchWriter(StudentService studentService, TranscriptService transcriptService) {
+        this(studentService, transcriptService, ForkJoinPool.commonPool());
+    }
+
+    public TranscriptBatchWriter(StudentService studentService, TranscriptService transcriptService, ForkJoinPool pool) {
+        this.studentService = studentService;
+        this.transcriptService = transcriptService;
+        this.pool = pool;
+    }
+
+    /**
+     * Writes the transcripts of every student, ordered by ID, to a single file.
+     * @return The number of transcripts written.
+     */
+    public int writeAllToFile(Path file) throws IOException {
+        return writeToFile(allStudentIds(), file);
+    }
+
+    /**
+     * Writes the transcripts of the given students to a single file, in the order given.
+     * Unknown IDs are skipped.
+     * @return The number of transcripts written.
+     */
+    public int writeToFile(Collection<Long> studentIds, Path file) throws IOException {
+        return writeToFile(toArray(studentIds), file);
+    }
+
+    private int writeToFile(long[] ids, Path file) throws IOException {
+        long start = System.nanoTime();
+        int window = Math.max(2, pool.getParallelism() * 2);
+        int written = 0;
+        long chars = 0;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (BufferedWriter writer = new BufferedWriter(Files.newBufferedWriter(file), WRITE_BUFFER_SIZE)) {
+            Deque<ForkJoinTask<RenderedBlock>> inFlight = new ArrayDeque<>();
+            int nextBlockStart = 0;
+            while (nextBlockStart < ids.length || !inFlight.isEmpty()) {
+                // Keep up to `window` blocks rendering while the oldest one is written.
+                while (nextBlockStart < ids.length && inFlight.size() < window) {
+                    int end = Math.min(ids.length, nextBlockStart + BLOCK_SIZE);
+                    inFlight.addLast(pool.submit(new RenderBlockTask(ids, nextBlockStart, end)));
+                    nextBlockStart = end;
+                }
+                RenderedBlock block = inFlight.removeFirst().join();
+                writer.write(block.text);
+                written += block.count;
+                chars += block.text.length();
+            }
+        }
+        report(written, chars, start);
+        return written;
+    }
+
+    /**
+     * Writes one file per student, named transcript_{id}.txt, into the given directory.
+     * @return The number of transcripts written.
+     */
+    public int writeAllPerStudent(Path directory) throws IOException {
+        return writePerStudent(allStudentIds(), directory);
+    }
+
+    /**
+     * Writes one file per student, named transcript_{id}.txt, into the given directory.
+     * Unknown IDs are skipped.
+     * @return The number of transcripts written.
+     */
+    public int writePerStudent(Collection<Long> studentIds, Path directory) throws IOException {
+        return writePerStudent(toArray(studentIds), directory);
+    }
+
+    private int writePerStudent(long[] ids, Path directory) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        List<ForkJoinTask<long[]>> tasks = new ArrayList<>();
+        for (int from = 0; from < ids.length; from += BLOCK_SIZE) {
+            tasks.add(pool.submit(new WriteFilesTask(ids, from, Math.min(ids.length, from + BLOCK_SIZE), directory)));
+        }
+        int written = 0;
+        long chars = 0;
+        try {
+            for (ForkJoinTask<long[]> task : tasks) {
+                long[] counts = task.join();
+                written += (int) counts[0];
+                chars += counts[1];
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        report(written, chars, start);
+        return written;
+    }
+
+    private long[] allStudentIds() {
+        List<Student> students = studentService.getAllStudents();
+        long[] ids = new long[students.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = students.get(i).getId();
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static long[] toArray(Collection<Long> studentIds) {
+        long[] ids = new long[studentIds.size()];
+        int i = 0;
+        for (Long id : studentIds) {
+            ids[i++] = id;
+        }
+        return ids;
+    }
+
+    private void report(int transcripts, long chars, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        double rate = seconds > 0 ? transcripts / seconds : transcripts;
+        LOG.at(Level.INFO, Outcome.EXPORTED).with("transcripts", transcripts).with("chars", chars)
+                .log(() -> String.format("Wrote %d transcripts (%.1f KB) in %.3f s (%.0f transcripts/sec).",
+                        transcripts, chars / 1024.0, seconds, rate));
+    }
+
+    /**
+     * Copies a StringBuilder to a Writer through a reused char array, avoiding a toString() copy.
+     */
+    private void writeBuffer(StringBuilder buffer, BufferedWriter writer) throws IOException {
+        char[] chunk = copyBuffers.get();
+        for (int offset = 0; offset < buffer.length(); offset += chunk.length) {
+            int length = Math.min(chunk.length, buffer.length() - offset);
+            buffer.getChars(offset, offset + length, chunk, 0);
+            writer.write(chunk, 0, length);
+        }
+    }
+
+    private static class RenderedBlock {
+        final String text;
+        final int count;
+
+        RenderedBlock(String text, int count) {
+            this.text = text;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Renders a block of transcripts, separated by blank lines, into one String.
+     */
+    private class RenderBlockTask extends RecursiveTask<RenderedBlock> {
+        private final long[] ids;
+        private final int from;
+        private final int to;
+
+        RenderBlockTask(long[] ids, int from, int to) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected RenderedBlock compute() {
+            StringBuilder buffer = buffers.get();
+            buffer.setLength(0);
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (transcriptService.appendTranscript(ids[i], buffer)) {
+                    buffer.append(SEPARATOR);
+                    count++;
+                }
+            }
+            return new RenderedBlock(buffer.toString(), count);
+        }
+    }
+
+    /**
+     * Renders and writes a block of per-student transcript files.
+     * @return {transcripts written, characters written}
+     */
+    private class WriteFilesTask extends RecursiveTask<long[]> {
+        private final long[] ids;
+        private final int from;
+        private final int to;
+        private final Path directory;
+
+        WriteFilesTask(long[] ids, int from, int to, Path directory) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+            this.directory = directory;
+        }
+
+        @Override
+        protected long[] compute() {
+            StringBuilder buffer = buffers.get();
+            long count = 0;
+            long chars = 0;
+            for (int i = from; i < to; i++) {
+                buffer.setLength(0);
+                if (!transcriptService.appendTranscript(ids[i], buffer)) {
+                    continue;
+                }
+                Path file = directory.resolve("transcript_" + ids[i] + ".txt");
+                try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+                    writeBuffer(buffer, writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count++;
+                chars += buffer.length();
+            }
+            return new long[] { count, chars };
+        }
+    }
+}
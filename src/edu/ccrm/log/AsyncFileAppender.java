@@ -0,0 +1,253 @@
+package edu.ccrm.log;
+
+import edu.ccrm.metrics.Counter;
+import edu.ccrm.metrics.Metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends events to a file from a background thread, one logfmt line each:
+ *
+ *     2026-10-18T09:30:00.125Z INFO enrollment ENROLLED studentId=42 courseCode=CS101 message="SUCCESS: ..."
+ *
+ * Publishing threads only claim a slot in a fixed ring buffer and store the event,
+ * so they never wait for the disk. The writer thread drains whatever has arrived
+ * (up to MAX_BATCH events) and flushes once per batch, so a burst of events costs
+ * one write. When the buffer is full, events below ERROR are dropped and counted
+ * in the log.dropped metric; errors wait for room instead, so they are never lost.
+ */
+public class AsyncFileAppender implements EventSink {
+
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final Counter WRITTEN = Metrics.counter("log.written");
+    private static final Counter DROPPED = Metrics.counter("log.dropped");
+
+    private final Path file;
+    private final Level level;
+    private final AtomicReferenceArray<LogEvent> ring;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(); // Sequence number of the next slot to hand out
+    private volatile long consumed;                      // Next sequence the writer will take; writer thread only
+    private volatile long flushed;                       // Every event before this sequence has been flushed
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+    private boolean failed;                              // Writer thread only
+    private final Writer out;
+    private final Thread writer;
+
+    /**
+     * Opens the file for appending and starts the writer thread.
+     * @param capacity The number of events the buffer holds; rounded up to a power of two.
+     */
+    public AsyncFileAppender(Path file, Level level, int capacity) throws IOException {
+        this.file = file;
+        this.level = level;
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8), 64 * 1024);
+        this.writer = new Thread(this::writeLoop, "ccrm-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public Level getLevel() {
+        return level;
+    }
+
+    @Override
+    public void publish(LogEvent event) {
+        if (closed || !level.accepts(event.getLevel())) {
+            return;
+        }
+        long sequence;
+        while (true) {
+            sequence = claimed.get();
+            if (sequence - consumed >= ring.length()) {
+                // Waiting is pointless if the writer has died; nothing would make room.
+                if (event.getLevel() != Level.ERROR || !writer.isAlive()) {
+                    DROPPED.increment();
+                    return;
+                }
+                LockSupport.unpark(writer);
+                Thread.yield();
+            } else if (claimed.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+        }
+        ring.set((int) sequence & mask, event);
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Waits until every event published before the call is in the file.
+     */
+    @Override
+    public void flush() {
+        long target = claimed.get();
+        while (flushed < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * Stops accepting events, writes the ones already published and closes the file.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        long next = consumed;
+        StringBuilder line = new StringBuilder(256);
+        while (true) {
+            int batch = 0;
+            LogEvent event;
+            while (batch < MAX_BATCH && (event = ring.get((int) next & mask)) != null) {
+                ring.set((int) next & mask, null);
+                consumed = ++next;
+                try {
+                    write(event, line);
+                } catch (RuntimeException e) {
+                    // One bad event, such as a field whose toString() throws, must not stop the
+                    // writer: the buffer would then fill up and errors would wait for room forever.
+                    DROPPED.increment();
+                }
+                batch++;
+            }
+            if (batch > 0) {
+                flushFile();
+                flushed = next;
+                WRITTEN.add(batch);
+                continue;
+            }
+            if (closed && claimed.get() == next) {
+                break;
+            }
+            // A claimed slot may still be empty for a moment while its publisher stores the event.
+            writerParked = true;
+            if (ring.get((int) next & mask) == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            writerParked = false;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            reportFailure(e);
+        }
+    }
+
+    private void write(LogEvent event, StringBuilder line) {
+        if (failed) {
+            return;
+        }
+        line.setLength(0);
+        line.append(Instant.ofEpochMilli(event.getTimestampMillis())).append(' ')
+                .append(event.getLevel()).append(' ')
+                .append(event.getSource()).append(' ')
+                .append(event.getOutcome());
+        for (int i = 0; i < event.getFieldCount(); i++) {
+            line.append(' ').append(event.getFieldName(i)).append('=');
+            appendValue(line, String.valueOf(event.getFieldValue(i)));
+        }
+        line.append(" message=");
+        appendValue(line, String.valueOf(event.getMessage()));
+        line.append('\n');
+        try {
+            out.append(line);
+        } catch (IOException e) {
+            reportFailure(e);
+        }
+    }
+
+    private void flushFile() {
+        if (failed) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            reportFailure(e);
+        }
+    }
+
+    /**
+     * After a write error the writer keeps draining the buffer, so publishers never block,
+     * but discards the events rather than reporting the same error for each one.
+     */
+    private void reportFailure(IOException e) {
+        if (!failed) {
+            failed = true;
+            System.err.println("ERROR: Could not write to log file " + file + ". " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a value bare if it is a single plain word, otherwise quoted with \" \\ and \n escaped.
+     */
+    private static void appendValue(StringBuilder line, String value) {
+        boolean plain = !value.isEmpty();
+        for (int i = 0; i < value.length() && plain; i++) {
+            char c = value.charAt(i);
+            plain = c > ' ' && c != '"' && c != '=' && c != '\\';
+        }
+        if (plain) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
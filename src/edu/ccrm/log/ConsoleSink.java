@@ -0,0 +1,47 @@
+package edu.ccrm.log;
+
+/**
+ * Prints each event's message to the console, as the services used to do themselves:
+ * warnings and errors go to System.err, everything else to System.out. It writes
+ * synchronously, so messages stay in order with the menu's own prompts.
+ * The streams are looked up on each call, so System.setOut() still redirects it.
+ */
+public class ConsoleSink implements EventSink {
+
+    private volatile Level level;
+
+    public ConsoleSink(Level level) {
+        this.level = level;
+    }
+
+    @Override
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Changes the level; use Level.OFF or WARN to keep bulk operations quiet.
+     */
+    public void setLevel(Level level) {
+        this.level = level;
+        Log.sinksChanged();
+    }
+
+    @Override
+    public void publish(LogEvent event) {
+        if (!level.accepts(event.getLevel())) {
+            return;
+        }
+        if (event.getLevel().compareTo(Level.WARN) >= 0) {
+            System.err.println(event.getMessage());
+        } else {
+            System.out.println(event.getMessage());
+        }
+    }
+
+    @Override
+    public void flush() {
+        System.out.flush();
+        System.err.flush();
+    }
+}
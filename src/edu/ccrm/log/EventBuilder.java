@@ -0,0 +1,71 @@
+package edu.ccrm.log;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Collects the fields of one event before it is published. Used by a single thread,
+ * for a single event: start it with EventLogger.at() and finish it with log().
+ */
+public class EventBuilder {
+
+    static final EventBuilder DISABLED = new EventBuilder(null, Level.OFF, null);
+    private static final int INITIAL_FIELDS = 4;
+    private static final String[] NO_NAMES = {};
+    private static final Object[] NO_VALUES = {};
+
+    private final String source;
+    private final Level level;
+    private final Outcome outcome;
+    private String[] names;
+    private Object[] values;
+    private int fieldCount;
+
+    EventBuilder(String source, Level level, Outcome outcome) {
+        this.source = source;
+        this.level = level;
+        this.outcome = outcome;
+    }
+
+    public EventBuilder with(String name, long value) {
+        return this == DISABLED ? this : with(name, Long.valueOf(value));
+    }
+
+    public EventBuilder with(String name, Object value) {
+        if (this == DISABLED) {
+            return this;
+        }
+        if (names == null) {
+            names = new String[INITIAL_FIELDS];
+            values = new Object[INITIAL_FIELDS];
+        } else if (fieldCount == names.length) {
+            names = Arrays.copyOf(names, fieldCount * 2);
+            values = Arrays.copyOf(values, fieldCount * 2);
+        }
+        names[fieldCount] = name;
+        values[fieldCount] = value;
+        fieldCount++;
+        return this;
+    }
+
+    /**
+     * Builds the message and publishes the event.
+     */
+    public void log(Supplier<String> message) {
+        if (this != DISABLED) {
+            publish(message.get());
+        }
+    }
+
+    public void log(String message) {
+        if (this != DISABLED) {
+            publish(message);
+        }
+    }
+
+    private void publish(String message) {
+        String[] eventNames = fieldCount == 0 ? NO_NAMES : Arrays.copyOf(names, fieldCount);
+        Object[] eventValues = fieldCount == 0 ? NO_VALUES : Arrays.copyOf(values, fieldCount);
+        Log.publish(new LogEvent(System.currentTimeMillis(), level, source, outcome, eventNames, eventValues, message));
+    }
+}
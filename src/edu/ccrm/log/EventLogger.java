@@ -0,0 +1,49 @@
+package edu.ccrm.log;
+
+import java.util.function.Supplier;
+
+/**
+ * Raises events on behalf of one component. Messages are passed as suppliers,
+ * so the string is only built when some sink will write it:
+ *
+ *     LOG.at(Level.INFO, Outcome.ENROLLED).with("studentId", id).log(() -> "SUCCESS: ...");
+ */
+public final class EventLogger {
+
+    private final String source;
+
+    EventLogger(String source) {
+        this.source = source;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public boolean isEnabled(Level level) {
+        return Log.isEnabled(level);
+    }
+
+    /**
+     * Starts an event. If no sink accepts the level, returns a shared builder that ignores everything.
+     */
+    public EventBuilder at(Level level, Outcome outcome) {
+        return Log.isEnabled(level) ? new EventBuilder(source, level, outcome) : EventBuilder.DISABLED;
+    }
+
+    public void debug(Outcome outcome, Supplier<String> message) {
+        at(Level.DEBUG, outcome).log(message);
+    }
+
+    public void info(Outcome outcome, Supplier<String> message) {
+        at(Level.INFO, outcome).log(message);
+    }
+
+    public void warn(Outcome outcome, Supplier<String> message) {
+        at(Level.WARN, outcome).log(message);
+    }
+
+    public void error(Outcome outcome, Supplier<String> message) {
+        at(Level.ERROR, outcome).log(message);
+    }
+}
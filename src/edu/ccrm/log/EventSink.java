@@ -0,0 +1,28 @@
+package edu.ccrm.log;
+
+/**
+ * Somewhere events are written. Sinks are registered with Log.addSink() and each
+ * one filters by its own level, so the console can stay quiet while a file keeps
+ * everything. publish() may be called from many threads at once.
+ */
+public interface EventSink {
+
+    /**
+     * @return The lowest level this sink accepts.
+     */
+    Level getLevel();
+
+    void publish(LogEvent event);
+
+    /**
+     * Blocks until every event published so far has been written.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Writes any pending events and releases the sink's resources.
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,20 @@
+package edu.ccrm.log;
+
+/**
+ * How important an event is, from least to most. A sink at a given level accepts
+ * events at that level and above; OFF accepts none.
+ */
+public enum Level {
+    DEBUG, // Detail that is only useful when looking into a problem
+    INFO,  // The result of a user action or a completed operation
+    WARN,  // A problem that was worked around, e.g. a skipped line in a data file
+    ERROR, // An operation that failed
+    OFF;
+
+    /**
+     * @return true if an event at the given level should pass a threshold at this level.
+     */
+    public boolean accepts(Level eventLevel) {
+        return this != OFF && eventLevel.ordinal() >= ordinal();
+    }
+}
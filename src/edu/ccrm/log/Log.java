@@ -0,0 +1,105 @@
+package edu.ccrm.log;
+
+import edu.ccrm.config.AppConfig;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The registry of event sinks. Components get an EventLogger with Log.logger() and
+ * keep it in a static final field; every event they raise goes to every sink.
+ *
+ * The console sink is registered from the start at the level set with
+ * -Dccrm.log.level (INFO by default), so the CLI prints what it always has.
+ * When no sink accepts a level, events at that level are not even built,
+ * so a silenced bulk operation pays nothing for its messages.
+ */
+public final class Log {
+
+    private static final List<EventSink> sinks = new CopyOnWriteArrayList<>();
+    private static final ConsoleSink CONSOLE = new ConsoleSink(parseLevel(AppConfig.getInstance().getLogLevel()));
+    // The lowest level any sink accepts, recomputed when sinks or their levels change.
+    private static volatile Level threshold = Level.OFF;
+
+    static {
+        addSink(CONSOLE);
+    }
+
+    private Log() {
+    }
+
+    /**
+     * @param source The component that raises the events, e.g. "enrollment".
+     */
+    public static EventLogger logger(String source) {
+        return new EventLogger(source);
+    }
+
+    public static ConsoleSink console() {
+        return CONSOLE;
+    }
+
+    public static void addSink(EventSink sink) {
+        sinks.add(sink);
+        sinksChanged();
+    }
+
+    public static void removeSink(EventSink sink) {
+        sinks.remove(sink);
+        sinksChanged();
+    }
+
+    /**
+     * Blocks until every sink has written the events published so far.
+     */
+    public static void flush() {
+        for (EventSink sink : sinks) {
+            sink.flush();
+        }
+    }
+
+    /**
+     * Closes and removes every sink except the console, writing their pending events first.
+     */
+    public static void shutdown() {
+        for (EventSink sink : sinks) {
+            if (sink != CONSOLE) {
+                removeSink(sink);
+                sink.close();
+            }
+        }
+        CONSOLE.flush();
+    }
+
+    /**
+     * Parses a level name such as "warn", falling back to INFO for anything unknown.
+     */
+    public static Level parseLevel(String name) {
+        try {
+            return Level.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown log level '" + name + "', using INFO.");
+            return Level.INFO;
+        }
+    }
+
+    static boolean isEnabled(Level level) {
+        return threshold.accepts(level);
+    }
+
+    static void publish(LogEvent event) {
+        for (EventSink sink : sinks) {
+            sink.publish(event);
+        }
+    }
+
+    static void sinksChanged() {
+        Level lowest = Level.OFF;
+        for (EventSink sink : sinks) {
+            if (sink.getLevel().compareTo(lowest) < 0) {
+                lowest = sink.getLevel();
+            }
+        }
+        threshold = lowest;
+    }
+}
@@ -0,0 +1,61 @@
+package edu.ccrm.log;
+
+/**
+ * One structured event: when it happened, how important it is, which component
+ * raised it, its outcome code, named fields such as studentId, and a readable
+ * message. Events are immutable, so an asynchronous sink can keep them after
+ * the thread that raised them has moved on.
+ */
+public final class LogEvent {
+
+    private final long timestampMillis;
+    private final Level level;
+    private final String source;
+    private final Outcome outcome;
+    private final String[] fieldNames;
+    private final Object[] fieldValues;
+    private final String message;
+
+    LogEvent(long timestampMillis, Level level, String source, Outcome outcome,
+             String[] fieldNames, Object[] fieldValues, String message) {
+        this.timestampMillis = timestampMillis;
+        this.level = level;
+        this.source = source;
+        this.outcome = outcome;
+        this.fieldNames = fieldNames;
+        this.fieldValues = fieldValues;
+        this.message = message;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public int getFieldCount() {
+        return fieldNames.length;
+    }
+
+    public String getFieldName(int index) {
+        return fieldNames[index];
+    }
+
+    public Object getFieldValue(int index) {
+        return fieldValues[index];
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,50 @@
+package edu.ccrm.log;
+
+/**
+ * The machine-readable result code carried by every event, so a log can be
+ * filtered and counted without parsing the messages.
+ */
+public enum Outcome {
+    // Students and courses
+    STUDENT_ADDED,
+    STUDENT_NOT_FOUND,
+    COURSE_ADDED,
+    COURSE_EXISTS,
+    COURSE_NOT_FOUND,
+    INSTRUCTOR_ASSIGNED,
+    COURSE_SCHEDULED,
+    TIMETABLE_GENERATED,
+
+    // Enrollment
+    ENROLLED,
+    WAITLISTED,
+    PROMOTED,
+    DROPPED,
+    LEFT_WAITLIST,
+    NOT_ENROLLED,
+    GRADE_RECORDED,
+
+    // Persistence
+    DATA_SAVED,
+    SAVE_FAILED,
+    DATA_LOADED,
+    NO_DATA,
+    LOAD_FAILED,
+    ROW_REJECTED,
+    DATA_CORRUPT,
+    CONFIG_INVALID,
+    REPLAYED,
+    RECOVERED,
+    JOURNAL_OPEN_FAILED,
+    JOURNAL_WRITE_FAILED,
+    COMPACTION_FAILED,
+    CLEANUP_FAILED,
+    EXPORTED,
+    EXPORT_FAILED,
+    BACKUP_CREATED,
+    BACKUPS_PRUNED,
+    BACKUP_FAILED,
+    BACKUP_NOT_FOUND,
+    RESTORED,
+    RESTORE_FAILED
+}
@@ -0,0 +1,128 @@
+package edu.ccrm.metrics;
+
+import edu.ccrm.config.AppConfig;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * The registry of all metrics, looked up by name. Services keep the metrics they
+ * update in static final fields, so updating one is a plain method call.
+ *
+ * With metrics disabled (run with -Dccrm.metrics=false) every lookup returns an
+ * inert metric and startTimer() does not read the clock. ENABLED is a constant,
+ * so the JIT removes the recording code altogether.
+ */
+public final class Metrics {
+
+    public static final boolean ENABLED = AppConfig.getInstance().isMetricsEnabled();
+
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, Throughput> throughputs = new ConcurrentHashMap<>();
+    private static final Counter DISABLED_COUNTER = new Counter("disabled");
+    private static final LatencyHistogram DISABLED_HISTOGRAM = new LatencyHistogram("disabled", false);
+    private static final Throughput DISABLED_THROUGHPUT = new Throughput("disabled", DISABLED_HISTOGRAM);
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return ENABLED ? counters.computeIfAbsent(name, Counter::new) : DISABLED_COUNTER;
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return ENABLED ? histograms.computeIfAbsent(name, n -> new LatencyHistogram(n, true)) : DISABLED_HISTOGRAM;
+    }
+
+    public static Throughput throughput(String name) {
+        return ENABLED ? throughputs.computeIfAbsent(name, n -> new Throughput(n, new LatencyHistogram(n, true)))
+                : DISABLED_THROUGHPUT;
+    }
+
+    /**
+     * Registers a value that is read when the metrics are reported, replacing any
+     * gauge of the same name.
+     */
+    public static void gauge(String name, LongSupplier value) {
+        if (ENABLED) {
+            gauges.put(name, value);
+        }
+    }
+
+    /**
+     * @return A start time for LatencyHistogram.recordSince() and Throughput.recordSince().
+     */
+    public static long startTimer() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @return A readable report of every metric, sorted by name.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        long uptimeSeconds = ManagementFactory.getRuntimeMXBean().getUptime() / 1000;
+        report.append(String.format("--- Metrics (uptime %d:%02d:%02d) ---%n",
+                uptimeSeconds / 3600, uptimeSeconds / 60 % 60, uptimeSeconds % 60));
+        if (!ENABLED) {
+            return report.append("Metrics are disabled (-Dccrm.metrics=false).").append(System.lineSeparator()).toString();
+        }
+
+        report.append("Counters:").append(System.lineSeparator());
+        new TreeMap<>(counters).forEach((name, counter) ->
+                report.append(String.format(Locale.ROOT, "  %-40s %,d%n", name, counter.get())));
+
+        report.append("Gauges:").append(System.lineSeparator());
+        new TreeMap<>(gauges).forEach((name, gauge) ->
+                report.append(String.format(Locale.ROOT, "  %-40s %,d%n", name, gauge.getAsLong())));
+
+        report.append("Latencies (count, mean, p50, p90, p99, p99.9, max):").append(System.lineSeparator());
+        new TreeMap<>(histograms).forEach((name, histogram) -> {
+            if (histogram.getCount() > 0) {
+                report.append(String.format(Locale.ROOT, "  %-40s %,10d %9s %9s %9s %9s %9s %9s%n", name, histogram.getCount(),
+                        duration((long) histogram.getMeanNanos()), duration(histogram.getValueAtPercentile(50)),
+                        duration(histogram.getValueAtPercentile(90)), duration(histogram.getValueAtPercentile(99)),
+                        duration(histogram.getValueAtPercentile(99.9)), duration(histogram.getMaxNanos())));
+            }
+        });
+
+        report.append("Throughput (runs, rows, bytes, total time, rows/s, MB/s; last run: time, rows/s):")
+                .append(System.lineSeparator());
+        new TreeMap<>(throughputs).forEach((name, throughput) -> {
+            if (throughput.getRuns() > 0) {
+                report.append(String.format(Locale.ROOT, "  %-40s %,6d %,12d %10s %9s %,12.0f %8.1f   %9s %,12.0f%n", name,
+                        throughput.getRuns(), throughput.getRows(), bytes(throughput.getBytes()),
+                        duration(throughput.getLatency().getTotalNanos()), throughput.getRowsPerSecond(),
+                        throughput.getBytesPerSecond() / (1024 * 1024), duration(throughput.getLastNanos()),
+                        throughput.getLastRowsPerSecond()));
+            }
+        });
+        return report.toString();
+    }
+
+    private static String duration(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + " ns";
+        } else if (nanos < 1_000_000) {
+            return String.format(Locale.ROOT, "%.1f us", nanos / 1e3);
+        } else if (nanos < 1_000_000_000) {
+            return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+        }
+        return String.format(Locale.ROOT, "%.2f s", nanos / 1e9);
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024));
+    }
+}
@@ -0,0 +1,67 @@
+package edu.ccrm.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the metrics report to a file at a fixed interval, and once more on close,
+ * so the figures can be followed from outside the CLI (e.g. with watch cat metrics.txt).
+ * Each report replaces the file in one rename, so a reader never sees half a report.
+ */
+public class MetricsDumper implements Closeable {
+
+    private final Path file;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ccrm-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param file The file to write the report to.
+     * @param intervalSeconds How often to write it; 0 or less only writes on close.
+     */
+    public MetricsDumper(Path file, long intervalSeconds) {
+        this.file = file;
+        if (Metrics.ENABLED && intervalSeconds > 0) {
+            executor.scheduleWithFixedDelay(this::dump, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Writes the report now.
+     */
+    public void dump() {
+        if (!Metrics.ENABLED) {
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.write(temp, Metrics.report().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not write metrics to " + file + ". " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the periodic writes and writes a final report.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dump();
+    }
+}
@@ -0,0 +1,96 @@
+package edu.ccrm.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totals for a repeated bulk operation, such as saving or loading one data file:
+ * how often it ran, how long it took and how many rows and bytes it handled.
+ * Also keeps the duration of each run in a histogram, and the figures of the latest
+ * run, since a save's speed matters more than the average over the session.
+ */
+public class Throughput {
+
+    private final String name;
+    private final LatencyHistogram latency;
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private volatile long lastNanos;
+    private volatile long lastRows;
+    private volatile long lastBytes;
+
+    Throughput(String name, LatencyHistogram latency) {
+        this.name = name;
+        this.latency = latency;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records one run that started at a time taken with Metrics.startTimer().
+     */
+    public void recordSince(long startNanos, long rowCount, long byteCount) {
+        if (Metrics.ENABLED) {
+            record(System.nanoTime() - startNanos, rowCount, byteCount);
+        }
+    }
+
+    public void record(long nanos, long rowCount, long byteCount) {
+        if (!Metrics.ENABLED) {
+            return;
+        }
+        latency.record(nanos);
+        rows.add(rowCount);
+        bytes.add(byteCount);
+        lastNanos = nanos;
+        lastRows = rowCount;
+        lastBytes = byteCount;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRuns() {
+        return latency.getCount();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * @return Rows per second over all runs.
+     */
+    public double getRowsPerSecond() {
+        return perSecond(rows.sum(), latency.getTotalNanos());
+    }
+
+    /**
+     * @return Bytes per second over all runs.
+     */
+    public double getBytesPerSecond() {
+        return perSecond(bytes.sum(), latency.getTotalNanos());
+    }
+
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+    public double getLastRowsPerSecond() {
+        return perSecond(lastRows, lastNanos);
+    }
+
+    public long getLastBytes() {
+        return lastBytes;
+    }
+
+    private static double perSecond(long amount, long nanos) {
+        return nanos <= 0 ? 0 : amount * 1_000_000_000.0 / nanos;
+    }
+}
@@ -0,0 +1,202 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * The registrar's reports: the CGPA histogram, grade distributions and pass rates per
+ * semester, the top students by CGPA, and grade statistics per course.
+ *
+ * Reports over every student run as parallel streams over the academic records, which
+ * the record store splits by page; each task counts into its own arrays and the arrays
+ * are added together at the end, so the tasks share nothing while they run. Per-course
+ * statistics are not computed here at all: TranscriptService updates each course's
+ * grade counts as grades are recorded, so reading them costs the same however many
+ * students there are.
+ *
+ * Reports are weakly consistent with grades recorded while they run.
+ */
+public class AnalyticsService {
+
+    private static final Grade[] GRADES = Grade.values();
+    private static final Semester[] SEMESTERS = Semester.values();
+    // The highest CGPA possible, so histogram bins cover [0, MAX_GRADE_POINTS].
+    private static final double MAX_GRADE_POINTS = maxGradePoints();
+    // Orders standings from worst to best, so a bounded heap of the best drops its head.
+    private static final Comparator<Standing> WORST_FIRST = Comparator.comparingDouble((Standing s) -> s.cgpa)
+            .thenComparing(Comparator.comparingLong((Standing s) -> s.studentId).reversed());
+
+    private final TranscriptService transcriptService;
+
+    public AnalyticsService(TranscriptService transcriptService) {
+        this.transcriptService = transcriptService;
+    }
+
+    /**
+     * Counts students by CGPA, in equal-width bins from 0 to the highest grade points.
+     * Students with no graded courses are not counted.
+     * @param bins The number of bins; bin i covers [i * width, (i + 1) * width), and the
+     *             last bin also holds the highest possible CGPA.
+     * @return The count of students in each bin.
+     */
+    public long[] cgpaHistogram(int bins) {
+        if (bins < 1) {
+            throw new IllegalArgumentException("At least one bin is needed");
+        }
+        return transcriptService.parallelRecords().collect(() -> new long[bins], (counts, record) -> {
+            OptionalDouble cgpa = record.getCgpa();
+            if (cgpa.isPresent()) {
+                counts[Math.min(bins - 1, (int) (cgpa.getAsDouble() / MAX_GRADE_POINTS * bins))]++;
+            }
+        }, AnalyticsService::addInto);
+    }
+
+    /**
+     * @return How many grades of each kind were given in each semester, for the
+     *         semesters with at least one grade; courses with no semester are left out.
+     */
+    public Map<Semester, Map<Grade, Long>> gradeDistributionBySemester() {
+        long[] counts = countGradesBySemester();
+        Map<Semester, Map<Grade, Long>> distributions = new EnumMap<>(Semester.class);
+        for (Semester semester : SEMESTERS) {
+            Map<Grade, Long> distribution = new EnumMap<>(Grade.class);
+            long graded = 0;
+            for (Grade grade : GRADES) {
+                long count = counts[semester.ordinal() * GRADES.length + grade.ordinal()];
+                distribution.put(grade, count);
+                graded += count;
+            }
+            if (graded > 0) {
+                distributions.put(semester, distribution);
+            }
+        }
+        return distributions;
+    }
+
+    /**
+     * @return The fraction of passing grades (anything but F), from 0 to 1, in each
+     *         semester with at least one grade.
+     */
+    public Map<Semester, Double> passRateBySemester() {
+        long[] counts = countGradesBySemester();
+        Map<Semester, Double> passRates = new EnumMap<>(Semester.class);
+        for (Semester semester : SEMESTERS) {
+            long graded = 0;
+            long passed = 0;
+            for (Grade grade : GRADES) {
+                long count = counts[semester.ordinal() * GRADES.length + grade.ordinal()];
+                graded += count;
+                passed += grade.isPassing() ? count : 0;
+            }
+            if (graded > 0) {
+                passRates.put(semester, (double) passed / graded);
+            }
+        }
+        return passRates;
+    }
+
+    /**
+     * @param limit The most students to return.
+     * @return The IDs of the students with the highest CGPA, best first, mapped to their
+     *         CGPA; ties go to the lower ID.
+     */
+    public Map<Long, Double> topStudentsByCgpa(int limit) {
+        Map<Long, Double> top = new LinkedHashMap<>();
+        if (limit <= 0) {
+            return top;
+        }
+        PriorityQueue<Standing> best = transcriptService.parallelRecords().collect(
+                () -> new PriorityQueue<>(WORST_FIRST),
+                (queue, record) -> {
+                    OptionalDouble cgpa = record.getCgpa();
+                    if (cgpa.isPresent()) {
+                        offer(queue, new Standing(record.getStudentId(), cgpa.getAsDouble()), limit);
+                    }
+                },
+                (queue, other) -> other.forEach(standing -> offer(queue, standing, limit)));
+        List<Standing> ranked = new ArrayList<>(best);
+        ranked.sort(WORST_FIRST.reversed());
+        for (Standing standing : ranked) {
+            top.put(standing.studentId, standing.cgpa);
+        }
+        return top;
+    }
+
+    /**
+     * Reads the course's running grade counts; no transcripts are read.
+     * @return The course's statistics, all zero if it has no grades.
+     */
+    public CourseStatistics getCourseStatistics(String courseCode) {
+        CourseGradeCounts counts = transcriptService.getGradeCountsByCourse().get(courseCode);
+        return new CourseStatistics(courseCode, counts == null ? new long[GRADES.length] : counts.snapshot());
+    }
+
+    /**
+     * @return The statistics of every course with at least one grade, by course code.
+     */
+    public Map<String, CourseStatistics> getAllCourseStatistics() {
+        Map<String, CourseStatistics> statistics = new TreeMap<>();
+        transcriptService.getGradeCountsByCourse().forEach((courseCode, counts) -> {
+            CourseStatistics courseStatistics = new CourseStatistics(courseCode, counts.snapshot());
+            if (courseStatistics.getGradedCount() > 0) {
+                statistics.put(courseCode, courseStatistics);
+            }
+        });
+        return statistics;
+    }
+
+    /**
+     * @return Grade counts for every semester slot, indexed [slot * GRADES.length + grade ordinal].
+     */
+    private long[] countGradesBySemester() {
+        int length = (SEMESTERS.length + 1) * GRADES.length; // One extra slot for courses with no semester
+        return transcriptService.parallelRecords().collect(() -> new long[length],
+                (counts, record) -> record.countGrades(counts, GRADES.length), AnalyticsService::addInto);
+    }
+
+    private static void addInto(long[] target, long[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    private static void offer(PriorityQueue<Standing> queue, Standing standing, int limit) {
+        if (queue.size() < limit) {
+            queue.add(standing);
+        } else if (WORST_FIRST.compare(standing, queue.peek()) > 0) {
+            queue.poll();
+            queue.add(standing);
+        }
+    }
+
+    private static double maxGradePoints() {
+        double max = 0;
+        for (Grade grade : GRADES) {
+            max = Math.max(max, grade.getGradePoints());
+        }
+        return max;
+    }
+
+    /**
+     * A student's CGPA, captured while ranking.
+     */
+    private static class Standing {
+        final long studentId;
+        final double cgpa;
+
+        Standing(long studentId, double cgpa) {
+            this.studentId = studentId;
+            this.cgpa = cgpa;
+        }
+    }
+}
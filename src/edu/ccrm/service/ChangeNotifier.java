@@ -0,0 +1,28 @@
+package edu.ccrm.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Holds a service's DataChangeListeners and notifies them of changes.
+ * Listeners are registered once and notified often, so a copy-on-write list is used.
+ */
+class ChangeNotifier {
+
+    private final List<DataChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    void add(DataChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    void remove(DataChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    void fire(Consumer<DataChangeListener> event) {
+        for (DataChangeListener listener : listeners) {
+            event.accept(listener);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Grade;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * How many students hold each grade in one course, kept up to date by TranscriptService
+ * as grades are recorded and replaced, and as graded enrollments are dropped, so a course's statistics are read without
+ * going through anyone's transcript.
+ */
+class CourseGradeCounts {
+
+    private static final Grade[] GRADES = Grade.values();
+
+    private final AtomicLongArray counts = new AtomicLongArray(GRADES.length);
+
+    /**
+     * Moves one student from their previous grade, if any, to their new one.
+     * A null grade takes the student out of the counts, for a dropped enrollment.
+     */
+    void replace(Grade previous, Grade grade) {
+        if (previous == grade) {
+            return;
+        }
+        if (previous != null) {
+            counts.decrementAndGet(previous.ordinal());
+        }
+        if (grade != null) {
+            counts.incrementAndGet(grade.ordinal());
+        }
+    }
+
+    /**
+     * @return A copy of the counts, indexed by Grade ordinal.
+     */
+    long[] snapshot() {
+        long[] copy = new long[GRADES.length];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,52 @@
+package edu.ccrm.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The IDs of the students enrolled in one course, kept sorted so a roster can be
+ * read a page at a time. EnrollmentService updates it under the student's lock
+ * stripe, so changes for different students go in in parallel. The size is
+ * counted separately because ConcurrentSkipListSet.size() walks the whole set.
+ */
+class CourseRoster {
+
+    private final ConcurrentSkipListSet<Long> studentIds = new ConcurrentSkipListSet<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    boolean add(long studentId) {
+        if (!studentIds.add(studentId)) {
+            return false;
+        }
+        size.incrementAndGet();
+        return true;
+    }
+
+    boolean remove(long studentId) {
+        if (!studentIds.remove(studentId)) {
+            return false;
+        }
+        size.decrementAndGet();
+        return true;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * @return Up to limit student IDs greater than afterStudentId, in ascending order.
+     */
+    List<Long> page(long afterStudentId, int limit) {
+        List<Long> page = new ArrayList<>(Math.min(limit, size.get()));
+        for (Long id : studentIds.tailSet(afterStudentId, false)) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(id);
+        }
+        return page;
+    }
+}
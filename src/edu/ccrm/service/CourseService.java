@@ -1,20 +1,49 @@
 package edu.ccrm.service;
 
 import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseSchedule;
 import edu.ccrm.domain.Instructor;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.log.EventLogger;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Log;
+import edu.ccrm.log.Outcome;
+import edu.ccrm.metrics.LatencyHistogram;
+import edu.ccrm.metrics.Metrics;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Manages all business logic related to courses.
+ * It is safe to use from multiple threads.
  */
 public class CourseService implements Searchable<Course> {
 
+    private static final LatencyHistogram SEARCH_LATENCY = Metrics.histogram("course.search");
+    private static final EventLogger LOG = Log.logger("course");
+
     // Using the String course code as the unique key for the map.
-    private final Map<String, Course> courseMap = new HashMap<>();
+    private final Map<String, Course> courseMap = new ConcurrentHashMap<>();
+    // Trigram index over course titles, kept up to date by addCourse() and loadCourse().
+    private final TrigramIndex titleIndex = new TrigramIndex();
+    // Instructors by ID, so every course taught by one instructor refers to the same object.
+    private final Map<Long, Instructor> instructors = new ConcurrentHashMap<>();
+    // The reverse of each Course's instructor: what each instructor teaches, by instructor ID.
+    // Changed and read under assignmentLock, so a course moves between instructors in one step.
+    private final Map<Long, InstructorWorkload> workloads = new HashMap<>();
+    private final Object assignmentLock = new Object();
+    private final ChangeNotifier changeNotifier = new ChangeNotifier();
+    // Told about every schedule change, loads included, so indexes over schedules stay current.
+    private final List<Consumer<Course>> scheduleObservers = new CopyOnWriteArrayList<>();
 
     /**
      * Adds a pre-built course to the system.
@@ -22,15 +51,46 @@ public class CourseService implements Searchable<Course> {
      * @return The added Course object, or null if a course with that code already exists.
      */
     public Course addCourse(Course course) {
-        if (courseMap.containsKey(course.getCode())) {
-            System.out.println("ERROR: Course with code " + course.getCode() + " already exists.");
+        // putIfAbsent makes the existence check and the insert a single atomic step.
+        if (courseMap.putIfAbsent(course.getCode(), course) != null) {
+            LOG.at(Level.INFO, Outcome.COURSE_EXISTS).with("courseCode", course.getCode())
+                    .log(() -> "ERROR: Course with code " + course.getCode() + " already exists.");
             return null;
         }
-        courseMap.put(course.getCode(), course);
-        System.out.println("SUCCESS: Course '" + course.getTitle() + "' added.");
+        titleIndex.put(course.getCode(), course.getTitle());
+        Instructor assigned = null;
+        if (course.getInstructor() != null) {
+            synchronized (assignmentLock) {
+                assigned = assign(course, course.getInstructor());
+            }
+        }
+        LOG.at(Level.INFO, Outcome.COURSE_ADDED).with("courseCode", course.getCode())
+                .log(() -> "SUCCESS: Course '" + course.getTitle() + "' added.");
+        changeNotifier.fire(listener -> listener.courseAdded(course));
+        // An instructor or schedule set on the Builder is reported like a later assignment,
+        // so listeners that only record the course's own fields still see them.
+        if (assigned != null) {
+            Instructor instructor = assigned;
+            changeNotifier.fire(listener -> listener.instructorAssigned(course.getCode(), instructor));
+        }
+        CourseSchedule schedule = course.getSchedule();
+        if (schedule != null) {
+            changeNotifier.fire(listener -> listener.courseScheduled(course.getCode(), schedule));
+        }
         return course;
     }
 
+    /**
+     * Registers a listener to be told about changes made through this service.
+     */
+    public void addChangeListener(DataChangeListener listener) {
+        changeNotifier.add(listener);
+    }
+
+    public void removeChangeListener(DataChangeListener listener) {
+        changeNotifier.remove(listener);
+    }
+
     /**
      * Finds a course by its unique code.
      * @param code The code of the course to find (e.g., "CS101").
@@ -47,9 +107,26 @@ public class CourseService implements Searchable<Course> {
     public List<Course> getAllCourses() {
         return new ArrayList<>(courseMap.values());
     }
+
+    /**
+     * @return The number of courses in the system.
+     */
+    public int getCourseCount() {
+        return courseMap.size();
+    }
+
+    /**
+     * Streams over all courses without copying them first. Like streamStudents(),
+     * the stream is weakly consistent with courses added while it runs.
+     * @return A Stream of all Course objects.
+     */
+    public Stream<Course> streamCourses() {
+        return courseMap.values().stream();
+    }
     
     /**
-     * Assigns an instructor to a specific course.
+     * Assigns an instructor to a specific course, taking it from any instructor who taught it before.
+     * If an instructor with the same ID is already known, that one is assigned instead.
      * @param courseCode The code of the course.
      * @param instructor The instructor to be assigned.
      * @return The updated Course object, or null if the course was not found.
@@ -57,35 +134,258 @@ public class CourseService implements Searchable<Course> {
     public Course assignInstructorToCourse(String courseCode, Instructor instructor) {
         Course course = findCourseByCode(courseCode);
         if (course != null) {
-            course.setInstructor(instructor);
-            System.out.println("SUCCESS: " + instructor.getFullName() + " assigned to " + course.getTitle());
+            Instructor assigned;
+            synchronized (assignmentLock) {
+                assigned = assign(course, instructor);
+            }
+            LOG.at(Level.INFO, Outcome.INSTRUCTOR_ASSIGNED).with("courseCode", courseCode).with("instructorId", assigned.getId())
+                    .log(() -> "SUCCESS: " + assigned.getFullName() + " assigned to " + course.getTitle());
+            changeNotifier.fire(listener -> listener.instructorAssigned(courseCode, assigned));
             return course;
         } else {
-            System.out.println("ERROR: Course with code " + courseCode + " not found.");
+            LOG.at(Level.INFO, Outcome.COURSE_NOT_FOUND).with("courseCode", courseCode)
+                    .log(() -> "ERROR: Course with code " + courseCode + " not found.");
             return null;
         }
     }
-        // Inside the CourseService class...
+
+    /**
+     * Restores a saved instructor assignment, without logging or notifying listeners.
+     * @return false if the course does not exist.
+     */
+    public boolean loadInstructorAssignment(String courseCode, Instructor instructor) {
+        Course course = findCourseByCode(courseCode);
+        if (course == null) {
+            return false;
+        }
+        synchronized (assignmentLock) {
+            assign(course, instructor);
+        }
+        return true;
+    }
+
+    /**
+     * Gives a course a schedule, replacing any it had before.
+     * Students already enrolled are not checked against the new times; TimetableService
+     * only produces schedules that keep every enrolled student free of clashes.
+     * @param schedule The new schedule, or null to take the course off the timetable.
+     * @return The updated Course object, or null if the course was not found.
+     */
+    public Course scheduleCourse(String courseCode, CourseSchedule schedule) {
+        Course course = findCourseByCode(courseCode);
+        if (course == null) {
+            LOG.at(Level.INFO, Outcome.COURSE_NOT_FOUND).with("courseCode", courseCode)
+                    .log(() -> "ERROR: Course with code " + courseCode + " not found.");
+            return null;
+        }
+        setSchedule(course, schedule);
+        LOG.at(Level.INFO, Outcome.COURSE_SCHEDULED).with("courseCode", courseCode)
+                .log(() -> "SUCCESS: " + course.getTitle() + (schedule == null ? " taken off the timetable." : " scheduled for " + schedule));
+        changeNotifier.fire(listener -> listener.courseScheduled(courseCode, schedule));
+        return course;
+    }
+
+    /**
+     * Restores a saved schedule, without logging or notifying listeners.
+     * @return false if the course does not exist.
+     */
+    public boolean loadCourseSchedule(String courseCode, CourseSchedule schedule) {
+        Course course = findCourseByCode(courseCode);
+        if (course == null) {
+            return false;
+        }
+        setSchedule(course, schedule);
+        return true;
+    }
+
+    /**
+     * Registers an action to run after any course's schedule changes, whether by
+     * scheduleCourse() or loadCourseSchedule(). It is given the course, and reads the
+     * schedule from it, so observers that race with each other end up current.
+     */
+    void addScheduleObserver(Consumer<Course> observer) {
+        scheduleObservers.add(observer);
+    }
+
+    private void setSchedule(Course course, CourseSchedule schedule) {
+        course.setSchedule(schedule);
+        for (Consumer<Course> observer : scheduleObservers) {
+            observer.accept(course);
+        }
+    }
 
     /**
      * Loads a course with a specific code from a data file.
-     * This method bypasses the check for existing courses.
+     * This method bypasses the check for existing courses, replacing any course with the same code.
      */
     public void loadCourse(Course course) {
-        courseMap.put(course.getCode(), course);
+        Course previous = courseMap.put(course.getCode(), course);
+        titleIndex.put(course.getCode(), course.getTitle());
+        if (previous != null || course.getInstructor() != null) {
+            synchronized (assignmentLock) {
+                if (previous != null) {
+                    unassign(previous);
+                }
+                if (course.getInstructor() != null) {
+                    assign(course, course.getInstructor());
+                }
+            }
+        }
+    }
+
+    // --- Instructors and teaching loads ---
+
+    /**
+     * @return The instructor with the given ID, or null if none teaches or has taught a course.
+     */
+    public Instructor findInstructorById(long id) {
+        return instructors.get(id);
     }
-     /**
-     * Searches for courses where the title contains the query string.
+
+    /**
+     * @return Every known instructor, in ID order.
+     */
+    public List<Instructor> getAllInstructors() {
+        return new ArrayList<>(new TreeMap<>(instructors).values());
+    }
+
+    /**
+     * @return The courses the instructor teaches, in code order; empty if none.
+     */
+    public List<Course> getCoursesTaughtBy(long instructorId) {
+        List<String> codes;
+        synchronized (assignmentLock) {
+            InstructorWorkload workload = workloads.get(instructorId);
+            if (workload == null) {
+                return new ArrayList<>();
+            }
+            codes = workload.getCourseCodes();
+        }
+        List<Course> courses = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            Course course = courseMap.get(code);
+            if (course != null) {
+                courses.add(course);
+            }
+        }
+        return courses;
+    }
+
+    /**
+     * @param semester The semester, or null for the total over all semesters.
+     * @return The credits of the courses the instructor teaches in that semester.
+     */
+    public int getTeachingCredits(long instructorId, Semester semester) {
+        synchronized (assignmentLock) {
+            InstructorWorkload workload = workloads.get(instructorId);
+            return workload == null ? 0 : workload.getCredits(semester);
+        }
+    }
+
+    /**
+     * @return The instructor's credits in each semester they teach in.
+     */
+    public Map<Semester, Integer> getTeachingLoad(long instructorId) {
+        Map<Semester, Integer> load = new EnumMap<>(Semester.class);
+        synchronized (assignmentLock) {
+            InstructorWorkload workload = workloads.get(instructorId);
+            if (workload != null) {
+                for (Semester semester : Semester.values()) {
+                    int credits = workload.getCredits(semester);
+                    if (credits != 0) {
+                        load.put(semester, credits);
+                    }
+                }
+            }
+        }
+        return load;
+    }
+
+    /**
+     * Reads every instructor's load in one pass over the instructors, not the catalog.
+     * @param semester The semester, or null for the total over all semesters.
+     * @return Credits taught in that semester by instructor ID, in ID order; instructors
+     *         with no courses in it are left out.
+     */
+    public Map<Long, Integer> getTeachingLoads(Semester semester) {
+        Map<Long, Integer> loads = new TreeMap<>();
+        synchronized (assignmentLock) {
+            workloads.forEach((instructorId, workload) -> {
+                int credits = workload.getCredits(semester);
+                if (credits != 0) {
+                    loads.put(instructorId, credits);
+                }
+            });
+        }
+        return loads;
+    }
+
+    /**
+     * Makes the instructor teach the course and updates both instructors' workloads.
+     * Called under assignmentLock.
+     * @return The instructor assigned: the known one with the same ID, if any.
+     */
+    private Instructor assign(Course course, Instructor instructor) {
+        Instructor known = instructors.putIfAbsent(instructor.getId(), instructor);
+        Instructor assigned = known != null ? known : instructor;
+        unassign(course);
+        course.setInstructor(assigned);
+        workloads.computeIfAbsent(assigned.getId(), id -> new InstructorWorkload()).add(course);
+        return assigned;
+    }
+
+    /**
+     * Takes the course out of its current instructor's workload. Called under assignmentLock.
+     */
+    private void unassign(Course course) {
+        Instructor current = course.getInstructor();
+        if (current == null) {
+            return;
+        }
+        InstructorWorkload workload = workloads.get(current.getId());
+        if (workload != null) {
+            workload.remove(course);
+            if (workload.isEmpty()) {
+                workloads.remove(current.getId());
+            }
+        }
+    }
+
+    /**
+     * Searches for courses where the title contains the query string, ignoring case.
      * This method fulfills the Searchable interface contract.
+     * Results are ranked: titles starting with the query come first, then titles with a
+     * word starting with it, then other matches.
      * @param query The text to search for in course titles.
-     * @return A list of matching courses.
+     * @return A list of matching courses, best matches first.
      */
     @Override
     public List<Course> search(String query) {
-        // Use a Stream to filter the courses
-        return courseMap.values().stream()
-                .filter(course -> course.getTitle().toLowerCase().contains(query.toLowerCase()))
-                .collect(java.util.stream.Collectors.toList());
+        return search(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as search(String), but returns at most {@code limit} courses.
+     * Uses the title index, so only courses sharing every trigram of the query are checked.
+     */
+    @Override
+    public List<Course> search(String query, int limit) {
+        long start = Metrics.startTimer();
+        try {
+            return searchTitles(query, limit);
+        } finally {
+            SEARCH_LATENCY.recordSince(start);
+        }
     }
 
+    private List<Course> searchTitles(String query, int limit) {
+        List<Course> results = new ArrayList<>();
+        for (String code : titleIndex.search(query, limit)) {
+            Course course = courseMap.get(code);
+            if (course != null) {
+                results.add(course);
+            }
+        }
+        return results;
+    }
 }
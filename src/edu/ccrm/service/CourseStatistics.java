@@ -0,0 +1,72 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Grade;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+/**
+ * The grade figures of one course at the time they were read: how many students
+ * hold each grade, their mean grade points and the share who passed.
+ */
+public class CourseStatistics {
+
+    private static final Grade[] GRADES = Grade.values();
+
+    private final String courseCode;
+    private final long[] counts; // By Grade ordinal
+    private final long graded;
+    private final long passed;
+    private final double totalPoints;
+
+    CourseStatistics(String courseCode, long[] counts) {
+        this.courseCode = courseCode;
+        this.counts = counts;
+        long graded = 0;
+        long passed = 0;
+        double totalPoints = 0;
+        for (Grade grade : GRADES) {
+            long count = counts[grade.ordinal()];
+            graded += count;
+            passed += grade.isPassing() ? count : 0;
+            totalPoints += count * grade.getGradePoints();
+        }
+        this.graded = graded;
+        this.passed = passed;
+        this.totalPoints = totalPoints;
+    }
+
+    public String getCourseCode() {
+        return courseCode;
+    }
+
+    /**
+     * @return How many students hold each grade, in Grade order.
+     */
+    public Map<Grade, Long> getGradeDistribution() {
+        Map<Grade, Long> distribution = new EnumMap<>(Grade.class);
+        for (Grade grade : GRADES) {
+            distribution.put(grade, counts[grade.ordinal()]);
+        }
+        return distribution;
+    }
+
+    public long getGradedCount() {
+        return graded;
+    }
+
+    /**
+     * @return The mean grade points (not credit-weighted), or empty if nothing is graded.
+     */
+    public OptionalDouble getMeanGradePoints() {
+        return graded == 0 ? OptionalDouble.empty() : OptionalDouble.of(totalPoints / graded);
+    }
+
+    /**
+     * @return The fraction of grades that are passing, from 0 to 1, or empty if nothing is graded.
+     */
+    public OptionalDouble getPassRate() {
+        return graded == 0 ? OptionalDouble.empty() : OptionalDouble.of((double) passed / graded);
+    }
+}
@@ -0,0 +1,73 @@
+package edu.ccrm.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A bounded first-come, first-served waitlist of student IDs for one course.
+ * A student can only be on the list once.
+ */
+class CourseWaitlist {
+
+    private final int maxSize;
+    private final Set<Long> studentIds = new LinkedHashSet<>();
+
+    CourseWaitlist(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Adds a student to the back of the list.
+     * @return The student's 1-based position, or -1 if the list is full.
+     */
+    synchronized int offer(long studentId) {
+        if (studentIds.contains(studentId)) {
+            return positionOf(studentId);
+        }
+        if (studentIds.size() >= maxSize) {
+            return -1;
+        }
+        studentIds.add(studentId);
+        return studentIds.size();
+    }
+
+    /**
+     * Removes and returns the student at the front of the list, or null if it is empty.
+     */
+    synchronized Long poll() {
+        Iterator<Long> it = studentIds.iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        Long next = it.next();
+        it.remove();
+        return next;
+    }
+
+    synchronized boolean remove(long studentId) {
+        return studentIds.remove(studentId);
+    }
+
+    synchronized boolean isEmpty() {
+        return studentIds.isEmpty();
+    }
+
+    synchronized int size() {
+        return studentIds.size();
+    }
+
+    /**
+     * @return The student's 1-based position, or -1 if they are not on the list.
+     */
+    synchronized int positionOf(long studentId) {
+        int position = 1;
+        for (Long id : studentIds) {
+            if (id == studentId) {
+                return position;
+            }
+            position++;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,57 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseSchedule;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Instructor;
+import edu.ccrm.domain.Student;
+
+/**
+ * Receives the data changes made through the services, after they have been applied.
+ * Only user-driven changes are reported; the load and replay methods used to restore
+ * saved data are silent, so a listener never sees its own data played back to it.
+ * All methods do nothing by default, so listeners only override what they need.
+ */
+public interface DataChangeListener {
+
+    default void studentAdded(Student student) {
+    }
+
+    /**
+     * Called when a student's registration number, name, email or status changes.
+     */
+    default void studentUpdated(Student student) {
+    }
+
+    /**
+     * Called when a course is added. If it was built with an instructor or a schedule,
+     * instructorAssigned() and courseScheduled() follow for them.
+     */
+    default void courseAdded(Course course) {
+    }
+
+    /**
+     * Called when a course is given an instructor, replacing any it had before.
+     */
+    default void instructorAssigned(String courseCode, Instructor instructor) {
+    }
+
+    /**
+     * Called when a course is given a schedule, replacing any it had before.
+     * @param schedule The new schedule, or null if the course was taken off the timetable.
+     */
+    default void courseScheduled(String courseCode, CourseSchedule schedule) {
+    }
+
+    /**
+     * Called when a student is enrolled, either directly or by promotion from a waitlist.
+     */
+    default void studentEnrolled(long studentId, String courseCode) {
+    }
+
+    default void studentDropped(long studentId, String courseCode) {
+    }
+
+    default void gradeRecorded(long studentId, String courseCode, Grade grade) {
+    }
+}
@@ -0,0 +1,48 @@
+package edu.ccrm.service;
+
+import java.util.Arrays;
+
+/**
+ * A growable batch of (studentId, courseCode) pairs to be replayed in one call,
+ * typically read from the enrollments file.
+ * IDs are kept in a primitive array so large batches don't box every row.
+ */
+public class EnrollmentBatch {
+
+    private long[] studentIds;
+    private String[] courseCodes;
+    private int size;
+
+    public EnrollmentBatch() {
+        this(16);
+    }
+
+    public EnrollmentBatch(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        this.studentIds = new long[capacity];
+        this.courseCodes = new String[capacity];
+    }
+
+    public void add(long studentId, String courseCode) {
+        if (size == studentIds.length) {
+            int newCapacity = size * 2;
+            studentIds = Arrays.copyOf(studentIds, newCapacity);
+            courseCodes = Arrays.copyOf(courseCodes, newCapacity);
+        }
+        studentIds[size] = studentId;
+        courseCodes[size] = courseCode;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getStudentId(int index) {
+        return studentIds[index];
+    }
+
+    public String getCourseCode(int index) {
+        return courseCodes[index];
+    }
+}
@@ -0,0 +1,92 @@
+package edu.ccrm.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of replaying an EnrollmentBatch.
+ * Failures are collected here instead of being printed one by one.
+ */
+public class EnrollmentReplayReport {
+
+    /**
+     * Why a row of the batch could not be enrolled.
+     */
+    public enum Reason {
+        STUDENT_NOT_FOUND,
+        COURSE_NOT_FOUND,
+        DUPLICATE_ENROLLMENT,
+        MAX_CREDIT_LIMIT_EXCEEDED,
+        COURSE_FULL,
+        SCHEDULE_CONFLICT
+    }
+
+    /**
+     * A single rejected row of the batch.
+     */
+    public static class Failure {
+        private final int rowIndex;
+        private final long studentId;
+        private final String courseCode;
+        private final Reason reason;
+
+        Failure(int rowIndex, long studentId, String courseCode, Reason reason) {
+            this.rowIndex = rowIndex;
+            this.studentId = studentId;
+            this.courseCode = courseCode;
+            this.reason = reason;
+        }
+
+        public int getRowIndex() {
+            return rowIndex;
+        }
+
+        public long getStudentId() {
+            return studentId;
+        }
+
+        public String getCourseCode() {
+            return courseCode;
+        }
+
+        public Reason getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "row " + rowIndex + " (" + studentId + "," + courseCode + "): " + reason;
+        }
+    }
+
+    private final List<Failure> failures = new ArrayList<>();
+    private int enrolledCount;
+
+    void recordSuccess() {
+        enrolledCount++;
+    }
+
+    void recordFailure(int rowIndex, long studentId, String courseCode, Reason reason) {
+        failures.add(new Failure(rowIndex, studentId, courseCode, reason));
+    }
+
+    /**
+     * Sorts failures back into batch order, since the replay processes rows grouped by student.
+     */
+    void sortFailures() {
+        failures.sort((a, b) -> Integer.compare(a.rowIndex, b.rowIndex));
+    }
+
+    public int getEnrolledCount() {
+        return enrolledCount;
+    }
+
+    public int getFailureCount() {
+        return failures.size();
+    }
+
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+}
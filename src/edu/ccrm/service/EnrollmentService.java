@@ -1,65 +1,564 @@
 package edu.ccrm.service;
 
+import edu.ccrm.config.AppConfig;
 import edu.ccrm.domain.Course;
 import edu.ccrm.domain.Student;
+import edu.ccrm.log.EventLogger;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Log;
+import edu.ccrm.log.Outcome;
+import edu.ccrm.metrics.Counter;
+import edu.ccrm.metrics.LatencyHistogram;
+import edu.ccrm.metrics.Metrics;
+import edu.ccrm.service.exceptions.CourseFullException;
 import edu.ccrm.service.exceptions.DuplicateEnrollmentException;
 import edu.ccrm.service.exceptions.MaxCreditLimitExceededException;
+import edu.ccrm.service.exceptions.ScheduleConflictException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Manages the business logic for enrolling students in courses.
+ * Enrollment changes for a student are made under that student's lock stripe,
+ * so the duplicate, credit-limit and time-clash checks stay atomic with the update
+ * while different students can enroll in parallel.
  */
 public class EnrollmentService {
 
     private static final int MAX_CREDITS_PER_SEMESTER = 21;
+    private static final LatencyHistogram ENROLL_LATENCY = Metrics.histogram("enrollment.enrollStudent");
+    private static final Counter ENROLLED = Metrics.counter("enrollment.enrolled");
+    private static final Counter WAITLISTED = Metrics.counter("enrollment.waitlisted");
+    private static final Counter REJECTED = Metrics.counter("enrollment.rejected");
+    private static final Counter DROPPED = Metrics.counter("enrollment.dropped");
+    private static final EventLogger LOG = Log.logger("enrollment");
 
     // This service depends on the other services to function.
     private final StudentService studentService;
     private final CourseService courseService;
+    // Waitlists are created on first use, for courses that have filled up.
+    private final Map<String, CourseWaitlist> waitlists = new ConcurrentHashMap<>();
+    // The reverse of each Student's course map: the students enrolled in each course.
+    private final Map<String, CourseRoster> rosters = new ConcurrentHashMap<>();
+    // The meetings of each student's scheduled courses, for students taking at least one.
+    private final LongKeyedStore<StudentTimetable> timetables = new LongKeyedStore<>();
+    private final ChangeNotifier changeNotifier = new ChangeNotifier();
+    private final EnrollmentTable enrollmentTable;
 
     public EnrollmentService(StudentService studentService, CourseService courseService) {
         this.studentService = studentService;
         this.courseService = courseService;
+        this.enrollmentTable = studentService.getEnrollmentTable();
+        courseService.addScheduleObserver(this::reindexSchedule);
+    }
+
+    /**
+     * Runs an action while holding every student lock, so no enrollment can change
+     * while it runs. Used to take a consistent copy of all enrollments; keep it short.
+     * Must not be called while holding a student lock.
+     */
+    public <T> T withAllStudentsLocked(Supplier<T> action) {
+        return studentService.withAllStudentsLocked(action);
+    }
+
+    /**
+     * Returns the lock guarding enrollment changes for the given student, shared with
+     * TranscriptService so grades cannot be recorded for a course while it is dropped.
+     */
+    private Object lockFor(long studentId) {
+        return studentService.lockFor(studentId);
     }
 
     /**
      * Enrolls a student in a course after validating business rules.
+     * If the course has a seat limit and is full, the student joins the course's waitlist
+     * instead and is enrolled automatically when a seat frees up.
      * @param studentId The ID of the student.
      * @param courseCode The code of the course.
      * @throws DuplicateEnrollmentException if the student is already enrolled.
      * @throws MaxCreditLimitExceededException if the enrollment exceeds the credit limit.
+     * @throws ScheduleConflictException if the course meets at the same time as another of the student's courses.
+     * @throws CourseFullException if the course and its waitlist are both full.
      */
-    public void enrollStudent(long studentId, String courseCode)
-            throws DuplicateEnrollmentException, MaxCreditLimitExceededException {
+    public void enrollStudent(long studentId, String courseCode) throws DuplicateEnrollmentException,
+            MaxCreditLimitExceededException, ScheduleConflictException, CourseFullException {
+        long start = Metrics.startTimer();
+        try {
+            enroll(studentId, courseCode);
+        } catch (DuplicateEnrollmentException | MaxCreditLimitExceededException | ScheduleConflictException
+                | CourseFullException e) {
+            REJECTED.increment();
+            throw e;
+        } finally {
+            ENROLL_LATENCY.recordSince(start);
+        }
+    }
 
+    private void enroll(long studentId, String courseCode) throws DuplicateEnrollmentException,
+            MaxCreditLimitExceededException, ScheduleConflictException, CourseFullException {
         Student student = studentService.findStudentById(studentId);
         Course course = courseService.findCourseByCode(courseCode);
 
         if (student == null) {
-            System.out.println("ERROR: Enrollment failed. Student with ID " + studentId + " not found.");
+            LOG.at(Level.INFO, Outcome.STUDENT_NOT_FOUND).with("studentId", studentId).with("courseCode", courseCode)
+                    .log(() -> "ERROR: Enrollment failed. Student with ID " + studentId + " not found.");
             return;
         }
         if (course == null) {
-            System.out.println("ERROR: Enrollment failed. Course with code " + courseCode + " not found.");
+            LOG.at(Level.INFO, Outcome.COURSE_NOT_FOUND).with("studentId", studentId).with("courseCode", courseCode)
+                    .log(() -> "ERROR: Enrollment failed. Course with code " + courseCode + " not found.");
             return;
         }
 
-        // Rule 1: Check for duplicate enrollment
-        if (student.getEnrolledCourses().contains(course)) {
-            throw new DuplicateEnrollmentException(
-                "Enrollment failed: Student " + student.getFullName() + " is already enrolled in " + course.getTitle()
-            );
+        int waitlistPosition = 0;
+        synchronized (lockFor(studentId)) {
+            // Rule 1: Check for duplicate enrollment
+            if (student.isEnrolledIn(course.getCode())) {
+                throw new DuplicateEnrollmentException(
+                    "Enrollment failed: Student " + student.getFullName() + " is already enrolled in " + course.getTitle()
+                );
+            }
+
+            // Rule 2: Check for max credit limit in the course's semester
+            if (exceedsCreditLimit(student, course)) {
+                throw new MaxCreditLimitExceededException(
+                    "Enrollment failed: Exceeds max credit limit of " + MAX_CREDITS_PER_SEMESTER
+                );
+            }
+
+            // Rule 3: Check for a time clash with the student's other courses in the semester
+            Course clash = findClash(student, course);
+            if (clash != null) {
+                throw new ScheduleConflictException(
+                    "Enrollment failed: " + course.getTitle() + " meets at the same time as " + clash.getTitle()
+                );
+            }
+
+            // Rule 4: Claim a seat, or join the waitlist if the course is full
+            if (course.tryReserveSeat()) {
+                student.enrollInCourse(course);
+                recordEnrollment(studentId, course);
+                CourseWaitlist waitlist = waitlists.get(courseCode);
+                if (waitlist != null) {
+                    waitlist.remove(studentId);
+                }
+                // Listeners are told while the lock is held, so they see one student's changes in order.
+                changeNotifier.fire(listener -> listener.studentEnrolled(studentId, courseCode));
+            } else {
+                waitlistPosition = waitlistFor(courseCode).offer(studentId);
+                if (waitlistPosition < 0) {
+                    throw new CourseFullException(
+                        "Enrollment failed: " + course.getTitle() + " is full and its waitlist is full"
+                    );
+                }
+            }
         }
 
-        // Rule 2: Check for max credit limit
-        int currentCredits = student.getEnrolledCourses().stream().mapToInt(Course::getCredits).sum();
-        if (currentCredits + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
-            throw new MaxCreditLimitExceededException(
-                "Enrollment failed: Exceeds max credit limit of " + MAX_CREDITS_PER_SEMESTER
-            );
+        if (waitlistPosition == 0) {
+            ENROLLED.increment();
+            LOG.at(Level.INFO, Outcome.ENROLLED).with("studentId", studentId).with("courseCode", courseCode)
+                    .log(() -> "SUCCESS: " + student.getFullName() + " has been enrolled in " + course.getTitle());
+        } else {
+            WAITLISTED.increment();
+            int position = waitlistPosition;
+            LOG.at(Level.INFO, Outcome.WAITLISTED).with("studentId", studentId).with("courseCode", courseCode)
+                    .with("position", position)
+                    .log(() -> "WAITLISTED: " + course.getTitle() + " is full. " + student.getFullName()
+                            + " is number " + position + " on the waitlist.");
+            // A seat may have been freed between the failed claim and joining the waitlist.
+            promoteFromWaitlist(course);
         }
+    }
 
-        // If all rules pass, complete the enrollment
-        student.getEnrolledCourses().add(course);
-        System.out.println("SUCCESS: " + student.getFullName() + " has been enrolled in " + course.getTitle());
+    /**
+     * Drops a student from a course they are enrolled in, or removes them from its waitlist.
+     * A freed seat goes to the next student on the course's waitlist.
+     * @param studentId The ID of the student.
+     * @param courseCode The code of the course to drop.
+     * @return true if the student was enrolled or waitlisted and has been removed.
+     */
+    public boolean dropStudent(long studentId, String courseCode) {
+        Student student = studentService.findStudentById(studentId);
+        if (student == null) {
+            LOG.at(Level.INFO, Outcome.STUDENT_NOT_FOUND).with("studentId", studentId).with("courseCode", courseCode)
+                    .log(() -> "ERROR: Drop failed. Student with ID " + studentId + " not found.");
+            return false;
+        }
+        Course dropped;
+        boolean leftWaitlist = false;
+        synchronized (lockFor(studentId)) {
+            dropped = student.dropCourse(courseCode);
+            if (dropped == null) {
+                CourseWaitlist waitlist = waitlists.get(courseCode);
+                leftWaitlist = waitlist != null && waitlist.remove(studentId);
+            } else {
+                recordDrop(studentId, courseCode);
+                // Reported before the seat is released, so the drop is seen before the enrollment that reuses it.
+                changeNotifier.fire(listener -> listener.studentDropped(studentId, courseCode));
+            }
+        }
+        if (leftWaitlist) {
+            LOG.at(Level.INFO, Outcome.LEFT_WAITLIST).with("studentId", studentId).with("courseCode", courseCode)
+                    .log(() -> "SUCCESS: " + student.getFullName() + " has been removed from the waitlist for " + courseCode);
+            return true;
+        }
+        if (dropped == null) {
+            LOG.at(Level.INFO, Outcome.NOT_ENROLLED).with("studentId", studentId).with("courseCode", courseCode)
+                    .log(() -> "ERROR: Drop failed. Student " + student.getFullName() + " is not enrolled in " + courseCode);
+            return false;
+        }
+        DROPPED.increment();
+        Course droppedCourse = dropped;
+        LOG.at(Level.INFO, Outcome.DROPPED).with("studentId", studentId).with("courseCode", courseCode)
+                .log(() -> "SUCCESS: " + student.getFullName() + " has been dropped from " + droppedCourse.getTitle());
+        dropped.releaseSeat();
+        // Promotion takes other students' locks, so it must run after ours is released.
+        promoteFromWaitlist(dropped);
+        return true;
+    }
+
+    /**
+     * Registers a listener to be told about changes made through this service.
+     */
+    public void addChangeListener(DataChangeListener listener) {
+        changeNotifier.add(listener);
+    }
+
+    public void removeChangeListener(DataChangeListener listener) {
+        changeNotifier.remove(listener);
+    }
+
+    /**
+     * Returns a copy of one student's enrolled courses, taken under the student's lock so
+     * it is consistent with concurrent enrollments. Used by streaming exports, which copy
+     * one student at a time instead of locking everything at once.
+     * @return The courses, or an empty list if the student does not exist.
+     */
+    public List<Course> getEnrolledCourses(long studentId) {
+        Student student = studentService.findStudentById(studentId);
+        if (student == null) {
+            return Collections.emptyList();
+        }
+        synchronized (lockFor(studentId)) {
+            return new ArrayList<>(student.getEnrolledCoursesView());
+        }
+    }
+
+    /**
+     * @return The number of students enrolled in the course, read from a counter.
+     */
+    public int getEnrolledCount(String courseCode) {
+        CourseRoster roster = rosters.get(courseCode);
+        return roster == null ? 0 : roster.size();
+    }
+
+    /**
+     * Returns one page of a course's roster, ordered by student ID. Pages are found by
+     * the last ID of the previous page rather than by offset, so reading page n does not
+     * walk the n - 1 pages before it, and pages stay consistent as students come and go.
+     * @param afterStudentId Long.MIN_VALUE for the first page, otherwise the last student ID of the previous page.
+     * @param limit The most students to return.
+     * @return The enrolled students with IDs above afterStudentId; fewer than limit on the last page.
+     */
+    public List<Student> getRoster(String courseCode, long afterStudentId, int limit) {
+        CourseRoster roster = rosters.get(courseCode);
+        if (roster == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        List<Student> students = new ArrayList<>();
+        for (Long studentId : roster.page(afterStudentId, limit)) {
+            Student student = studentService.findStudentById(studentId);
+            if (student != null) {
+                students.add(student);
+            }
+        }
+        return students;
+    }
+
+    /**
+     * @return Every student enrolled in the course, ordered by ID.
+     */
+    public List<Student> getRoster(String courseCode) {
+        return getRoster(courseCode, Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return The number of students waiting for a seat in the course.
+     */
+    public int getWaitlistSize(String courseCode) {
+        CourseWaitlist waitlist = waitlists.get(courseCode);
+        return waitlist == null ? 0 : waitlist.size();
+    }
+
+    /**
+     * @return The student's 1-based position on the course's waitlist, or -1 if they are not on it.
+     */
+    public int getWaitlistPosition(long studentId, String courseCode) {
+        CourseWaitlist waitlist = waitlists.get(courseCode);
+        return waitlist == null ? -1 : waitlist.positionOf(studentId);
+    }
+
+    private CourseWaitlist waitlistFor(String courseCode) {
+        return waitlists.computeIfAbsent(courseCode,
+                code -> new CourseWaitlist(AppConfig.getInstance().getWaitlistCapacity()));
+    }
+
+    /**
+     * Hands free seats to waitlisted students, in order, until the course is full
+     * or the waitlist is empty. Students who can no longer take the course
+     * (already enrolled, over the credit limit, or with a clashing course) are skipped.
+     * Must not be called while holding a student lock.
+     */
+    private void promoteFromWaitlist(Course course) {
+        CourseWaitlist waitlist = waitlists.get(course.getCode());
+        if (waitlist == null) {
+            return;
+        }
+        while (!waitlist.isEmpty() && course.tryReserveSeat()) {
+            boolean seatUsed = false;
+            Long next;
+            while (!seatUsed && (next = waitlist.poll()) != null) {
+                seatUsed = promote(next, course);
+            }
+            if (!seatUsed) {
+                // The waitlist emptied before anyone could take the seat.
+                course.releaseSeat();
+            }
+        }
+    }
+
+    /**
+     * Enrolls a waitlisted student into a seat that has already been claimed for them.
+     * @return false if the student can no longer take the course.
+     */
+    private boolean promote(long studentId, Course course) {
+        Student student = studentService.findStudentById(studentId);
+        if (student == null) {
+            return false;
+        }
+        synchronized (lockFor(studentId)) {
+            if (student.isEnrolledIn(course.getCode()) || exceedsCreditLimit(student, course)
+                    || findClash(student, course) != null) {
+                return false;
+            }
+            student.enrollInCourse(course);
+            recordEnrollment(studentId, course);
+            changeNotifier.fire(listener -> listener.studentEnrolled(studentId, course.getCode()));
+        }
+        LOG.at(Level.INFO, Outcome.PROMOTED).with("studentId", studentId).with("courseCode", course.getCode())
+                .log(() -> "PROMOTED: " + student.getFullName() + " has been enrolled in " + course.getTitle() + " from the waitlist.");
+        return true;
+    }
+
+    /**
+     * Removes an enrollment without raising an event or promoting from the waitlist.
+     * Used when replaying saved changes, where the promotions were recorded separately.
+     * @return true if the student was enrolled.
+     */
+    public boolean removeEnrollment(long studentId, String courseCode) {
+        Student student = studentService.findStudentById(studentId);
+        if (student == null) {
+            return false;
+        }
+        Course dropped;
+        synchronized (lockFor(studentId)) {
+            dropped = student.dropCourse(courseCode);
+            if (dropped != null) {
+                recordDrop(studentId, courseCode);
+            }
+        }
+        if (dropped == null) {
+            return false;
+        }
+        dropped.releaseSeat();
+        return true;
+    }
+
+    /**
+     * Adds a new enrollment to the roster and the enrollment table.
+     * Called under the student's lock, right after Student.enrollInCourse().
+     */
+    private void recordEnrollment(long studentId, Course course) {
+        rosters.computeIfAbsent(course.getCode(), code -> new CourseRoster()).add(studentId);
+        enrollmentTable.add(studentId, course);
+        // Read after the roster add, so a reschedule that misses this student in the roster is seen here.
+        if (course.getSchedule() != null) {
+            timetables.computeIfAbsent(studentId, id -> new StudentTimetable()).put(course);
+        }
+    }
+
+    /**
+     * Takes a dropped enrollment out of the roster and the enrollment table, and has
+     * the drop observers take out its grade.
+     * Called under the student's lock, right after Student.dropCourse().
+     */
+    private void recordDrop(long studentId, String courseCode) {
+        CourseRoster roster = rosters.get(courseCode);
+        if (roster != null) {
+            roster.remove(studentId);
+        }
+        enrollmentTable.remove(studentId, courseCode);
+        removeFromTimetable(studentId, courseCode);
+        studentService.enrollmentDropped(studentId, courseCode);
+    }
+
+    private void removeFromTimetable(long studentId, String courseCode) {
+        StudentTimetable timetable = timetables.get(studentId);
+        if (timetable != null) {
+            timetable.remove(courseCode);
+            if (timetable.isEmpty()) {
+                timetables.remove(studentId);
+            }
+        }
+    }
+
+    /**
+     * Checks the course's meetings against the student's timetable. Called under the student's lock.
+     * The index answers whether there is a clash; only then are the student's courses
+     * searched to name the one it is with.
+     * @return A course of the student's that meets at the same time, or null if there is none.
+     */
+    private Course findClash(Student student, Course course) {
+        if (course.getSchedule() == null) {
+            return null;
+        }
+        StudentTimetable timetable = timetables.get(student.getId());
+        if (timetable == null || !timetable.clashes(course)) {
+            return null;
+        }
+        for (Course enrolled : student.getEnrolledCoursesView()) {
+            if (enrolled.getSemester() == course.getSemester() && enrolled.getSchedule() != null
+                    && enrolled.getSchedule().overlaps(course.getSchedule())) {
+                return enrolled;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Brings the timetables of the course's students up to date after it is rescheduled.
+     * Takes each student's lock in turn, so it must not be called while holding one.
+     */
+    private void reindexSchedule(Course course) {
+        CourseRoster roster = rosters.get(course.getCode());
+        if (roster == null) {
+            return;
+        }
+        for (Long studentId : roster.page(Long.MIN_VALUE, Integer.MAX_VALUE)) {
+            Student student = studentService.findStudentById(studentId);
+            if (student == null) {
+                continue;
+            }
+            synchronized (lockFor(studentId)) {
+                if (!student.isEnrolledIn(course.getCode())) {
+                    continue;
+                }
+                if (course.getSchedule() != null) {
+                    timetables.computeIfAbsent(studentId, id -> new StudentTimetable()).put(course);
+                } else {
+                    removeFromTimetable(studentId, course.getCode());
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the per-semester credit cap using the student's running credit totals.
+     */
+    private static boolean exceedsCreditLimit(Student student, Course course) {
+        return student.getCreditsForSemester(course.getSemester()) + course.getCredits() > MAX_CREDITS_PER_SEMESTER;
+    }
+
+    /**
+     * Replays a batch of enrollments, applying the same rules as enrollStudent().
+     * Rows are grouped by student so each student is resolved once, and each
+     * course is looked up once per batch.
+     * No events are raised; rejected rows are returned in the report instead.
+     * Rows for the same student are applied in batch order, so the result is the
+     * same as calling enrollStudent() for every row. The one exception is a course
+     * that overflows its capacity within the batch: seats then go to students in the
+     * order of their first row, and the rest are rejected rather than waitlisted.
+     * @param batch The (studentId, courseCode) pairs to enroll.
+     * @return A report of how many rows were enrolled and which ones failed, and why.
+     */
+    public EnrollmentReplayReport replayEnrollments(EnrollmentBatch batch) {
+        EnrollmentReplayReport report = new EnrollmentReplayReport();
+        int size = batch.size();
+        if (size == 0) {
+            return report;
+        }
+
+        // Counting sort of row indices by student, keeping batch order within each student.
+        Map<Long, Integer> groupByStudent = new HashMap<>();
+        int[] groupOfRow = new int[size];
+        for (int row = 0; row < size; row++) {
+            Integer group = groupByStudent.get(batch.getStudentId(row));
+            if (group == null) {
+                group = groupByStudent.size();
+                groupByStudent.put(batch.getStudentId(row), group);
+            }
+            groupOfRow[row] = group;
+        }
+        int[] groupStart = new int[groupByStudent.size() + 1];
+        for (int row = 0; row < size; row++) {
+            groupStart[groupOfRow[row] + 1]++;
+        }
+        for (int g = 0; g < groupByStudent.size(); g++) {
+            groupStart[g + 1] += groupStart[g];
+        }
+        int[] orderedRows = new int[size];
+        int[] fill = groupStart.clone();
+        for (int row = 0; row < size; row++) {
+            orderedRows[fill[groupOfRow[row]]++] = row;
+        }
+
+        Map<String, Course> courseCache = new HashMap<>();
+        for (int g = 0; g < groupByStudent.size(); g++) {
+            replayStudentGroup(batch, orderedRows, groupStart[g], groupStart[g + 1], courseCache, report);
+        }
+        report.sortFailures();
+        return report;
+    }
+
+    private void replayStudentGroup(EnrollmentBatch batch, int[] orderedRows, int from, int to,
+                                    Map<String, Course> courseCache, EnrollmentReplayReport report) {
+        long studentId = batch.getStudentId(orderedRows[from]);
+        Student student = studentService.findStudentById(studentId);
+        if (student == null) {
+            for (int i = from; i < to; i++) {
+                int row = orderedRows[i];
+                report.recordFailure(row, studentId, batch.getCourseCode(row), EnrollmentReplayReport.Reason.STUDENT_NOT_FOUND);
+            }
+            return;
+        }
+
+        synchronized (lockFor(studentId)) {
+            for (int i = from; i < to; i++) {
+                int row = orderedRows[i];
+                String courseCode = batch.getCourseCode(row);
+                Course course = courseCache.computeIfAbsent(courseCode, courseService::findCourseByCode);
+                if (course == null) {
+                    report.recordFailure(row, studentId, courseCode, EnrollmentReplayReport.Reason.COURSE_NOT_FOUND);
+                } else if (student.isEnrolledIn(courseCode)) {
+                    report.recordFailure(row, studentId, courseCode, EnrollmentReplayReport.Reason.DUPLICATE_ENROLLMENT);
+                } else if (exceedsCreditLimit(student, course)) {
+                    report.recordFailure(row, studentId, courseCode, EnrollmentReplayReport.Reason.MAX_CREDIT_LIMIT_EXCEEDED);
+                } else if (findClash(student, course) != null) {
+                    report.recordFailure(row, studentId, courseCode, EnrollmentReplayReport.Reason.SCHEDULE_CONFLICT);
+                } else if (!course.tryReserveSeat()) {
+                    report.recordFailure(row, studentId, courseCode, EnrollmentReplayReport.Reason.COURSE_FULL);
+                } else {
+                    student.enrollInCourse(course);
+                    recordEnrollment(studentId, course);
+                    report.recordSuccess();
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,552 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Every current enrollment as one row of parallel primitive columns: student ID,
+ * course index, semester ordinal and grade ordinal. Cohort reports read these
+ * columns in tight loops instead of walking every Student's course map and every
+ * EnrollmentRecord, which touches one or two cache lines per row instead of
+ * several objects.
+ *
+ * The Student and TranscriptService objects stay the source of truth for the
+ * per-student rules; EnrollmentService and TranscriptService write each change here
+ * too, under the student's lock and in the same critical section, so the table always
+ * matches them. A row's grade is the one recorded while that enrollment exists:
+ * dropping the course removes the row, and with it the grade, just as the transcript
+ * drops it, and re-enrolling starts a new, ungraded row.
+ *
+ * The rows are split into segments by the student's lock stripe, each with its own
+ * columns, row index and StampedLock. A change only locks its student's segment, and
+ * the student's lock already keeps that to one writer at a time, so different
+ * students still enroll in parallel. Reports never block writers: they copy one
+ * segment at a time under an optimistic read, retrying under the read lock only if a
+ * writer got in meanwhile, and aggregate the copy without holding any lock. A report
+ * is therefore weakly consistent, seeing each segment as it was at some moment of the
+ * scan. Within a segment, rows are found by (student, course) through an
+ * open-addressing index, and a dropped row is filled with the last one, so the
+ * columns stay dense.
+ */
+public class EnrollmentTable {
+
+    private static final byte NONE = -1;
+    private static final Grade[] GRADES = Grade.values();
+    private static final Semester[] SEMESTERS = Semester.values();
+    // Grade points by grade ordinal + 1, so an ungraded row (NONE) reads 0.
+    private static final double[] POINTS_BY_GRADE = new double[GRADES.length + 1];
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+
+    static {
+        for (Grade grade : GRADES) {
+            POINTS_BY_GRADE[grade.ordinal() + 1] = grade.getGradePoints();
+        }
+    }
+
+    private final Segment[] segments = new Segment[StudentService.LOCK_STRIPES];
+    private final AtomicInteger size = new AtomicInteger();
+
+    // Courses get a dense index the first time someone enrolls in them. A slot is filled
+    // before its index is published, and grown arrays replace the old ones whole.
+    private final Map<String, Integer> courseIndexByCode = new ConcurrentHashMap<>();
+    private final Object courseDictionaryLock = new Object();
+    private volatile Course[] courses = new Course[64];
+    private volatile int[] courseCredits = new int[64];
+
+    public EnrollmentTable() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Adds a row for a new enrollment.
+     * @return false if the student already has a row for the course.
+     */
+    public boolean add(long studentId, Course course) {
+        int courseIndex = indexOf(course);
+        byte semester = course.getSemester() == null ? NONE : (byte) course.getSemester().ordinal();
+        Segment segment = segmentFor(studentId);
+        long stamp = segment.lock.writeLock();
+        try {
+            if (!segment.add(studentId, courseIndex, semester)) {
+                return false;
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+        size.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Removes an enrollment's row, moving the last row of its segment into its place.
+     * @return false if there was no such row.
+     */
+    public boolean remove(long studentId, String courseCode) {
+        Integer courseIndex = courseIndexByCode.get(courseCode);
+        if (courseIndex == null) {
+            return false;
+        }
+        Segment segment = segmentFor(studentId);
+        long stamp = segment.lock.writeLock();
+        try {
+            if (!segment.remove(studentId, courseIndex)) {
+                return false;
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+        size.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Sets the grade of an existing enrollment.
+     * @return false if the student is not enrolled in the course.
+     */
+    public boolean setGrade(long studentId, String courseCode, Grade grade) {
+        Integer courseIndex = courseIndexByCode.get(courseCode);
+        if (courseIndex == null) {
+            return false;
+        }
+        Segment segment = segmentFor(studentId);
+        long stamp = segment.lock.writeLock();
+        try {
+            int row = segment.find(studentId, courseIndex);
+            if (row < 0) {
+                return false;
+            }
+            segment.grades[row] = grade == null ? NONE : (byte) grade.ordinal();
+            return true;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return The enrollment's grade, or null if it is ungraded or does not exist.
+     */
+    public Grade getGrade(long studentId, String courseCode) {
+        Integer courseIndex = courseIndexByCode.get(courseCode);
+        if (courseIndex == null) {
+            return null;
+        }
+        Segment segment = segmentFor(studentId);
+        long stamp = segment.lock.readLock();
+        try {
+            int row = segment.find(studentId, courseIndex);
+            return row < 0 || segment.grades[row] == NONE ? null : GRADES[segment.grades[row]];
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean contains(long studentId, String courseCode) {
+        Integer courseIndex = courseIndexByCode.get(courseCode);
+        if (courseIndex == null) {
+            return false;
+        }
+        Segment segment = segmentFor(studentId);
+        long stamp = segment.lock.readLock();
+        try {
+            return segment.find(studentId, courseIndex) >= 0;
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return The number of current enrollments.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    // --- Aggregations ---
+
+    /**
+     * @return How many enrollments have each grade, in Grade order; ungraded enrollments are not counted.
+     */
+    public Map<Grade, Long> gradeDistribution() {
+        long[] counts = new long[GRADES.length + 1];
+        Rows rows = new Rows();
+        for (Segment segment : segments) {
+            copyRows(segment, rows);
+            byte[] grades = rows.grades;
+            for (int i = 0; i < rows.size; i++) {
+                counts[grades[i] + 1]++;
+            }
+        }
+        Map<Grade, Long> distribution = new EnumMap<>(Grade.class);
+        for (Grade grade : GRADES) {
+            distribution.put(grade, counts[grade.ordinal() + 1]);
+        }
+        return distribution;
+    }
+
+    /**
+     * @return The mean grade points of each course's graded enrollments, by course code,
+     *         for the courses with at least one grade.
+     */
+    public Map<String, Double> averageGradePointsByCourse() {
+        double[] points = new double[0];
+        int[] graded = new int[0];
+        Rows rows = new Rows();
+        for (Segment segment : segments) {
+            copyRows(segment, rows);
+            // Read after the copy, so it covers every course the copied rows refer to.
+            int courseSlots = courses.length;
+            if (points.length < courseSlots) {
+                points = Arrays.copyOf(points, courseSlots);
+                graded = Arrays.copyOf(graded, courseSlots);
+            }
+            int[] courseIndexes = rows.courseIndexes;
+            byte[] grades = rows.grades;
+            for (int i = 0; i < rows.size; i++) {
+                int grade = grades[i] + 1;
+                points[courseIndexes[i]] += POINTS_BY_GRADE[grade];
+                graded[courseIndexes[i]] += grade == 0 ? 0 : 1;
+            }
+        }
+        Course[] courses = this.courses;
+        Map<String, Double> averages = new LinkedHashMap<>();
+        for (int c = 0; c < points.length; c++) {
+            if (graded[c] > 0) {
+                averages.put(courses[c].getCode(), points[c] / graded[c]);
+            }
+        }
+        return averages;
+    }
+
+    /**
+     * @return The credit-weighted GPA over every graded enrollment in each semester,
+     *         for the semesters with at least one grade.
+     */
+    public Map<Semester, Double> gpaBySemester() {
+        double[] points = new double[SEMESTERS.length + 1];
+        long[] credits = new long[SEMESTERS.length + 1];
+        Rows rows = new Rows();
+        for (Segment segment : segments) {
+            copyRows(segment, rows);
+            int[] courseCredits = this.courseCredits;
+            int[] courseIndexes = rows.courseIndexes;
+            byte[] semesters = rows.semesters;
+            byte[] grades = rows.grades;
+            for (int i = 0; i < rows.size; i++) {
+                int grade = grades[i] + 1;
+                int weight = grade == 0 ? 0 : courseCredits[courseIndexes[i]];
+                points[semesters[i] + 1] += POINTS_BY_GRADE[grade] * weight;
+                credits[semesters[i] + 1] += weight;
+            }
+        }
+        Map<Semester, Double> gpa = new EnumMap<>(Semester.class);
+        for (Semester semester : SEMESTERS) {
+            if (credits[semester.ordinal() + 1] > 0) {
+                gpa.put(semester, points[semester.ordinal() + 1] / credits[semester.ordinal() + 1]);
+            }
+        }
+        return gpa;
+    }
+
+    /**
+     * @return For each credit total, how many students are taking that many credits in
+     *         the semester; index i holds the number of students with i credits.
+     *         Students with no enrollments in the semester are not counted.
+     */
+    public int[] creditLoadDistribution(Semester semester) {
+        byte wanted = (byte) semester.ordinal();
+        int[] load = new int[16];
+        // Shared by the segments and left all zero after each: a student's rows are all in one segment.
+        int[] creditsByStudent = new int[0];
+        Rows rows = new Rows();
+        for (Segment segment : segments) {
+            copyRows(segment, rows);
+            int[] courseCredits = this.courseCredits;
+            long[] studentIds = rows.studentIds;
+            int[] courseIndexes = rows.courseIndexes;
+            byte[] semesters = rows.semesters;
+            long minStudentId = Long.MAX_VALUE;
+            long maxStudentId = -1;
+            for (int i = 0; i < rows.size; i++) {
+                minStudentId = Math.min(minStudentId, studentIds[i]);
+                maxStudentId = Math.max(maxStudentId, studentIds[i]);
+            }
+            if (minStudentId >= 0 && maxStudentId < 4L * size() + 1024) {
+                // IDs are dense: sum each student's credits in an array indexed by ID, then count
+                // each student once, clearing their entry for the next segment.
+                if (creditsByStudent.length <= maxStudentId) {
+                    creditsByStudent = Arrays.copyOf(creditsByStudent, (int) maxStudentId + 1);
+                }
+                for (int i = 0; i < rows.size; i++) {
+                    if (semesters[i] == wanted) {
+                        creditsByStudent[(int) studentIds[i]] += courseCredits[courseIndexes[i]];
+                    }
+                }
+                for (int i = 0; i < rows.size; i++) {
+                    int credits = creditsByStudent[(int) studentIds[i]];
+                    if (credits > 0) {
+                        load = countLoad(load, credits);
+                        creditsByStudent[(int) studentIds[i]] = 0;
+                    }
+                }
+            } else {
+                Map<Long, int[]> segmentCredits = new HashMap<>();
+                for (int i = 0; i < rows.size; i++) {
+                    if (semesters[i] == wanted) {
+                        segmentCredits.computeIfAbsent(studentIds[i], id -> new int[1])[0] += courseCredits[courseIndexes[i]];
+                    }
+                }
+                for (int[] credits : segmentCredits.values()) {
+                    if (credits[0] > 0) {
+                        load = countLoad(load, credits[0]);
+                    }
+                }
+            }
+        }
+        int length = load.length;
+        while (length > 0 && load[length - 1] == 0) {
+            length--;
+        }
+        return Arrays.copyOf(load, length);
+    }
+
+    private static int[] countLoad(int[] load, int credits) {
+        if (credits >= load.length) {
+            load = Arrays.copyOf(load, Math.max(credits + 1, load.length * 2));
+        }
+        load[credits]++;
+        return load;
+    }
+
+    /**
+     * Copies the segment's rows. The copy is first taken without locking and kept if no
+     * writer changed the segment meanwhile; otherwise it is taken again under the read
+     * lock, which only holds up that segment's writers, for the length of one copy.
+     */
+    private static void copyRows(Segment segment, Rows rows) {
+        long stamp = segment.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                if (rows.copyFrom(segment) && segment.lock.validate(stamp)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                // A writer replaced the columns mid-copy; copy again under the lock.
+            }
+        }
+        stamp = segment.lock.readLock();
+        try {
+            rows.copyFrom(segment);
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    private Segment segmentFor(long studentId) {
+        return segments[StudentService.stripeOf(studentId)];
+    }
+
+    // --- Course dictionary ---
+
+    private int indexOf(Course course) {
+        Integer index = courseIndexByCode.get(course.getCode());
+        if (index != null) {
+            return index;
+        }
+        synchronized (courseDictionaryLock) {
+            index = courseIndexByCode.get(course.getCode());
+            if (index != null) {
+                return index;
+            }
+            int next = courseIndexByCode.size();
+            Course[] courses = this.courses;
+            int[] courseCredits = this.courseCredits;
+            if (next == courses.length) {
+                courses = Arrays.copyOf(courses, next * 2);
+                courseCredits = Arrays.copyOf(courseCredits, next * 2);
+            }
+            courses[next] = course;
+            courseCredits[next] = course.getCredits();
+            this.courses = courses;
+            this.courseCredits = courseCredits;
+            courseIndexByCode.put(course.getCode(), next);
+            return next;
+        }
+    }
+
+    private static int hash(long studentId, int courseIndex) {
+        long h = studentId * 0x9E3779B97F4A7C15L + courseIndex * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    /**
+     * The rows of the students of one lock stripe. Guarded by its lock; reads without
+     * the lock only happen in copyRows(), which validates them afterwards.
+     */
+    private static final class Segment {
+        final StampedLock lock = new StampedLock();
+
+        // The columns; rows 0 to size - 1 are in use.
+        long[] studentIds = new long[INITIAL_SEGMENT_CAPACITY];
+        int[] courseIndexes = new int[INITIAL_SEGMENT_CAPACITY];
+        byte[] semesters = new byte[INITIAL_SEGMENT_CAPACITY];
+        byte[] grades = new byte[INITIAL_SEGMENT_CAPACITY];
+        int size;
+
+        // Open-addressing index from (student, course) to row + 1; 0 marks an empty slot.
+        int[] slots = new int[INITIAL_SEGMENT_CAPACITY * 2];
+
+        boolean add(long studentId, int courseIndex, byte semester) {
+            if (find(studentId, courseIndex) >= 0) {
+                return false;
+            }
+            if (size == studentIds.length) {
+                grow();
+            }
+            int row = size;
+            studentIds[row] = studentId;
+            courseIndexes[row] = courseIndex;
+            semesters[row] = semester;
+            grades[row] = NONE;
+            size = row + 1;
+            insertSlot(row);
+            return true;
+        }
+
+        boolean remove(long studentId, int courseIndex) {
+            int row = find(studentId, courseIndex);
+            if (row < 0) {
+                return false;
+            }
+            deleteSlot(row);
+            int last = --size;
+            if (row != last) {
+                // Point the last row's slot at its new position before moving it there.
+                slots[slotOf(last)] = row + 1;
+                studentIds[row] = studentIds[last];
+                courseIndexes[row] = courseIndexes[last];
+                semesters[row] = semesters[last];
+                grades[row] = grades[last];
+            }
+            return true;
+        }
+
+        /**
+         * @return The row of the (student, course) pair, or -1.
+         */
+        int find(long studentId, int courseIndex) {
+            int mask = slots.length - 1;
+            for (int slot = hash(studentId, courseIndex) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                int row = slots[slot] - 1;
+                if (studentIds[row] == studentId && courseIndexes[row] == courseIndex) {
+                    return row;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return The slot that points to the given row, which must be indexed.
+         */
+        private int slotOf(int row) {
+            int mask = slots.length - 1;
+            int slot = hash(studentIds[row], courseIndexes[row]) & mask;
+            while (slots[slot] != row + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void insertSlot(int row) {
+            int mask = slots.length - 1;
+            int slot = hash(studentIds[row], courseIndexes[row]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = row + 1;
+        }
+
+        /**
+         * Empties the row's slot, then moves later entries of the same probe run back so
+         * lookups never stop early at the hole (deletion without tombstones).
+         */
+        private void deleteSlot(int row) {
+            int mask = slots.length - 1;
+            int hole = slotOf(row);
+            slots[hole] = 0;
+            for (int slot = (hole + 1) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                int entry = slots[slot] - 1;
+                int home = hash(studentIds[entry], courseIndexes[entry]) & mask;
+                // Move the entry if its home is not in the cyclic range (hole, slot].
+                if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                    slots[hole] = slots[slot];
+                    slots[slot] = 0;
+                    hole = slot;
+                }
+            }
+        }
+
+        private void grow() {
+            int capacity = studentIds.length * 2;
+            studentIds = Arrays.copyOf(studentIds, capacity);
+            courseIndexes = Arrays.copyOf(courseIndexes, capacity);
+            semesters = Arrays.copyOf(semesters, capacity);
+            grades = Arrays.copyOf(grades, capacity);
+            // Keep the index at most half full.
+            slots = new int[capacity * 2];
+            for (int row = 0; row < size; row++) {
+                insertSlot(row);
+            }
+        }
+    }
+
+    /**
+     * A copy of one segment's columns, refilled for each segment a report reads.
+     */
+    private static final class Rows {
+        long[] studentIds = new long[0];
+        int[] courseIndexes = new int[0];
+        byte[] semesters = new byte[0];
+        byte[] grades = new byte[0];
+        int size;
+
+        /**
+         * @return false if the columns read are inconsistent, which only happens without the lock.
+         */
+        boolean copyFrom(Segment segment) {
+            int count = segment.size;
+            long[] studentIds = segment.studentIds;
+            int[] courseIndexes = segment.courseIndexes;
+            byte[] semesters = segment.semesters;
+            byte[] grades = segment.grades;
+            if (count > studentIds.length || count > courseIndexes.length || count > semesters.length
+                    || count > grades.length) {
+                return false;
+            }
+            if (this.studentIds.length < count) {
+                int capacity = Math.max(count, this.studentIds.length * 2);
+                this.studentIds = new long[capacity];
+                this.courseIndexes = new int[capacity];
+                this.semesters = new byte[capacity];
+                this.grades = new byte[capacity];
+            }
+            System.arraycopy(studentIds, 0, this.studentIds, 0, count);
+            System.arraycopy(courseIndexes, 0, this.courseIndexes, 0, count);
+            System.arraycopy(semesters, 0, this.semesters, 0, count);
+            System.arraycopy(grades, 0, this.grades, 0, count);
+            size = count;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Semester;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The courses one instructor teaches, with their credits totalled per semester as
+ * courses are assigned and taken away, so a teaching load is read without walking
+ * the catalog. Not thread-safe: CourseService guards it with its assignment lock.
+ */
+class InstructorWorkload {
+
+    private static final Semester[] SEMESTERS = Semester.values();
+
+    private final Set<String> courseCodes = new TreeSet<>();
+    private final int[] creditsBySemester = new int[SEMESTERS.length];
+    private int totalCredits;
+
+    void add(Course course) {
+        if (courseCodes.add(course.getCode())) {
+            addCredits(course, course.getCredits());
+        }
+    }
+
+    void remove(Course course) {
+        if (courseCodes.remove(course.getCode())) {
+            addCredits(course, -course.getCredits());
+        }
+    }
+
+    private void addCredits(Course course, int credits) {
+        totalCredits += credits;
+        if (course.getSemester() != null) {
+            creditsBySemester[course.getSemester().ordinal()] += credits;
+        }
+    }
+
+    boolean isEmpty() {
+        return courseCodes.isEmpty();
+    }
+
+    /**
+     * @return The codes of the courses taught, in code order.
+     */
+    List<String> getCourseCodes() {
+        return new ArrayList<>(courseCodes);
+    }
+
+    /**
+     * @return The credits taught in the semester, or over all semesters if it is null.
+     */
+    int getCredits(Semester semester) {
+        return semester == null ? totalCredits : creditsBySemester[semester.ordinal()];
+    }
+}
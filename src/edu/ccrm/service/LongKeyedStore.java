@@ -0,0 +1,274 @@
+package edu.ccrm.service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A thread-safe map from long IDs to values, for IDs handed out in sequence.
+ * Values live in pages of PAGE_SIZE slots, found through a directory indexed by
+ * id / PAGE_SIZE, so a lookup is two array reads with no hashing and no boxed key.
+ * A page is only created once an ID in its range is stored, and a full page costs
+ * 4 bytes per slot with compressed references, against about 50 bytes per entry
+ * (node plus boxed Long) in a HashMap<Long, V>.
+ *
+ * IDs outside [0, DENSE_LIMIT), such as negative IDs or very large ones read from an
+ * old data file, go to an overflow ConcurrentHashMap so they cannot blow up the directory.
+ *
+ * Lookups and iteration never lock. Iteration is in ascending ID order for the paged
+ * IDs, followed by the overflow IDs in no particular order, and, like a
+ * ConcurrentHashMap's, is weakly consistent with concurrent changes.
+ */
+public class LongKeyedStore<V> {
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS; // 4096 slots, 16 KB with compressed references
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    static final long DENSE_LIMIT = 1L << 31;            // At most 512K pages in the directory
+    private static final int INITIAL_DIRECTORY_SIZE = 16;
+
+    // Replaced, never modified in place, when it has to grow; both are only changed under this store's lock.
+    private volatile AtomicReferenceArray<AtomicReferenceArray<V>> directory =
+            new AtomicReferenceArray<>(INITIAL_DIRECTORY_SIZE);
+    private final Map<Long, V> overflow = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @return The value stored for the ID, or null if there is none.
+     */
+    public V get(long id) {
+        if (!isDense(id)) {
+            return overflow.isEmpty() ? null : overflow.get(id);
+        }
+        AtomicReferenceArray<AtomicReferenceArray<V>> pages = directory;
+        int pageIndex = (int) (id >>> PAGE_BITS);
+        if (pageIndex >= pages.length()) {
+            return null;
+        }
+        AtomicReferenceArray<V> page = pages.get(pageIndex);
+        return page == null ? null : page.get((int) id & PAGE_MASK);
+    }
+
+    /**
+     * Stores a value, replacing any value already stored for the ID.
+     * @return The value that was replaced, or null.
+     */
+    public V put(long id, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        V previous = isDense(id) ? pageFor(id).getAndSet((int) id & PAGE_MASK, value) : overflow.put(id, value);
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        return previous;
+    }
+
+    /**
+     * Stores a value only if none is stored for the ID yet.
+     * @return The value already stored, or null if the new value was stored.
+     */
+    public V putIfAbsent(long id, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        V existing;
+        if (isDense(id)) {
+            AtomicReferenceArray<V> page = pageFor(id);
+            int slot = (int) id & PAGE_MASK;
+            // Retry if a concurrent remove() empties the slot between the failed swap and the read.
+            while (!page.compareAndSet(slot, null, value)) {
+                existing = page.get(slot);
+                if (existing != null) {
+                    return existing;
+                }
+            }
+        } else {
+            existing = overflow.putIfAbsent(id, value);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        size.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Returns the value stored for the ID, creating and storing one first if there is none.
+     * Unlike ConcurrentHashMap.computeIfAbsent(), threads racing on a new ID may each call
+     * the factory, but only one result is stored and returned to all of them, so the
+     * factory must be cheap and free of side effects.
+     */
+    public V computeIfAbsent(long id, LongFunction<? extends V> factory) {
+        V value = get(id);
+        if (value != null) {
+            return value;
+        }
+        V created = factory.apply(id);
+        V existing = putIfAbsent(id, created);
+        return existing != null ? existing : created;
+    }
+
+    /**
+     * @return The removed value, or null if none was stored for the ID.
+     */
+    public V remove(long id) {
+        V previous;
+        if (isDense(id)) {
+            AtomicReferenceArray<AtomicReferenceArray<V>> pages = directory;
+            int pageIndex = (int) (id >>> PAGE_BITS);
+            AtomicReferenceArray<V> page = pageIndex < pages.length() ? pages.get(pageIndex) : null;
+            previous = page == null ? null : page.getAndSet((int) id & PAGE_MASK, null);
+        } else {
+            previous = overflow.remove(id);
+        }
+        if (previous != null) {
+            size.decrementAndGet();
+        }
+        return previous;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * Calls the action for every stored value, in ascending ID order for paged IDs.
+     */
+    public void forEach(Consumer<? super V> action) {
+        AtomicReferenceArray<AtomicReferenceArray<V>> pages = directory;
+        for (int p = 0; p < pages.length(); p++) {
+            AtomicReferenceArray<V> page = pages.get(p);
+            if (page == null) {
+                continue;
+            }
+            for (int slot = 0; slot < PAGE_SIZE; slot++) {
+                V value = page.get(slot);
+                if (value != null) {
+                    action.accept(value);
+                }
+            }
+        }
+        overflow.values().forEach(action);
+    }
+
+    /**
+     * @return A weakly consistent stream over the stored values, in the order forEach() uses.
+     */
+    public Stream<V> values() {
+        return StreamSupport.stream(Spliterators.spliterator(new ValueIterator(), size.get(),
+                Spliterator.NONNULL | Spliterator.CONCURRENT), false);
+    }
+
+    /**
+     * @return A weakly consistent parallel stream over the stored values, split by page so
+     *         each task walks whole pages; the overflow values come after the pages. Unordered.
+     */
+    public Stream<V> parallelValues() {
+        AtomicReferenceArray<AtomicReferenceArray<V>> pages = directory;
+        Stream<V> paged = IntStream.range(0, pages.length()).parallel()
+                .mapToObj(pages::get)
+                .filter(Objects::nonNull)
+                .flatMap(page -> IntStream.range(0, PAGE_SIZE).mapToObj(page::get).filter(Objects::nonNull));
+        return Stream.concat(paged, overflow.values().parallelStream());
+    }
+
+    private static boolean isDense(long id) {
+        return id >= 0 && id < DENSE_LIMIT;
+    }
+
+    /**
+     * @return The page holding the ID's slot, creating the page (and growing the directory) if needed.
+     */
+    private AtomicReferenceArray<V> pageFor(long id) {
+        int pageIndex = (int) (id >>> PAGE_BITS);
+        AtomicReferenceArray<AtomicReferenceArray<V>> pages = directory;
+        if (pageIndex < pages.length()) {
+            AtomicReferenceArray<V> page = pages.get(pageIndex);
+            if (page != null) {
+                return page;
+            }
+        }
+        // Pages are created once per PAGE_SIZE IDs, so taking the lock here is rare.
+        synchronized (this) {
+            pages = directory;
+            if (pageIndex >= pages.length()) {
+                int length = pages.length();
+                while (length <= pageIndex) {
+                    length *= 2;
+                }
+                AtomicReferenceArray<AtomicReferenceArray<V>> grown = new AtomicReferenceArray<>(length);
+                for (int p = 0; p < pages.length(); p++) {
+                    grown.set(p, pages.get(p));
+                }
+                directory = grown;
+                pages = grown;
+            }
+            AtomicReferenceArray<V> page = pages.get(pageIndex);
+            if (page == null) {
+                page = new AtomicReferenceArray<>(PAGE_SIZE);
+                pages.set(pageIndex, page);
+            }
+            return page;
+        }
+    }
+
+    /**
+     * Walks the pages as forEach() does, then the overflow map.
+     */
+    private class ValueIterator implements Iterator<V> {
+        private final AtomicReferenceArray<AtomicReferenceArray<V>> pages = directory;
+        private int pageIndex;
+        private int slot;
+        private Iterator<V> overflowValues;
+        private V next;
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            while (pageIndex < pages.length()) {
+                AtomicReferenceArray<V> page = pages.get(pageIndex);
+                while (page != null && slot < PAGE_SIZE) {
+                    next = page.get(slot++);
+                    if (next != null) {
+                        return true;
+                    }
+                }
+                pageIndex++;
+                slot = 0;
+            }
+            if (overflowValues == null) {
+                overflowValues = overflow.values().iterator();
+            }
+            next = overflowValues.hasNext() ? overflowValues.next() : null;
+            return next != null;
+        }
+
+        @Override
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            V value = next;
+            next = null;
+            return value;
+        }
+    }
+}
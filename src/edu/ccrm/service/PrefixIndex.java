@@ -0,0 +1,49 @@
+package edu.ccrm.service;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A sorted, case-insensitive index from string keys to student IDs.
+ * Because keys are kept in order, all keys starting with a prefix form one
+ * contiguous range, which is found in O(log n) and then walked.
+ */
+class PrefixIndex {
+
+    private final ConcurrentSkipListMap<String, Set<Long>> entries = new ConcurrentSkipListMap<>();
+
+    static String normalize(String key) {
+        return key == null ? "" : key.trim().toLowerCase(Locale.ROOT);
+    }
+
+    void add(String key, long id) {
+        String normalized = normalize(key);
+        if (!normalized.isEmpty()) {
+            entries.computeIfAbsent(normalized, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    void remove(String key, long id) {
+        String normalized = normalize(key);
+        // computeIfPresent drops the entry atomically once its last ID is removed.
+        entries.computeIfPresent(normalized, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * Adds the IDs of every key starting with the (already normalized) prefix to {@code out}.
+     */
+    void collectPrefix(String prefix, Collection<Long> out) {
+        NavigableMap<String, Set<Long>> range = entries.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        for (Map.Entry<String, Set<Long>> entry : range.entrySet()) {
+            out.addAll(entry.getValue());
+        }
+    }
+}
@@ -8,4 +8,13 @@ import java.util.List;
  */
 public interface Searchable<T> {
     List<T> search(String query);
+
+    /**
+     * Searches and returns at most the given number of results, best matches first.
+     * Implementations with an index should override this to avoid building the full result list.
+     */
+    default List<T> search(String query, int limit) {
+        List<T> results = search(query);
+        return results.size() <= limit ? results : results.subList(0, limit);
+    }
 }
@@ -1,21 +1,58 @@
 package edu.ccrm.service;
 
 import edu.ccrm.domain.Student;
+import edu.ccrm.domain.StudentChangeListener;
+import edu.ccrm.log.EventLogger;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Log;
+import edu.ccrm.log.Outcome;
+import edu.ccrm.metrics.LatencyHistogram;
+import edu.ccrm.metrics.Metrics;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Manages all business logic related to students.
  * This includes creating, finding, and updating student records.
+ * It is safe to use from multiple threads. Changes to a student's enrollments and
+ * grades are made under that student's lock stripe, which the enrollment and
+ * transcript services share through this class.
  */
-public class StudentService {
+public class StudentService implements Searchable<Student> {
 
-    // Using a Map as a simple in-memory database. The key is the student's ID.
-    private final Map<Long, Student> studentMap = new HashMap<>();
-    private long nextId = 1; // Used to generate unique IDs for new students.
+    private static final LatencyHistogram SEARCH_LATENCY = Metrics.histogram("student.search");
+    private static final EventLogger LOG = Log.logger("student");
+    static final int LOCK_STRIPES = 64; // Must be a power of two.
+
+    // The in-memory database, keyed by the student's ID. IDs are sequential, so lookups are array reads.
+    private final LongKeyedStore<Student> studentStore = new LongKeyedStore<>();
+    private final AtomicLong nextId = new AtomicLong(1); // Used to generate unique IDs for new students.
+    // Every student's enrollments in columnar form, written by EnrollmentService and TranscriptService.
+    private final EnrollmentTable enrollmentTable = new EnrollmentTable();
+
+    // Sorted prefix indexes for search(). Students report profile changes so these stay current.
+    private final PrefixIndex regNoIndex = new PrefixIndex();
+    private final PrefixIndex nameTokenIndex = new PrefixIndex();
+    private final PrefixIndex emailIndex = new PrefixIndex();
+    private final StudentChangeListener indexUpdater = this::onProfileChanged;
+    private final ChangeNotifier changeNotifier = new ChangeNotifier();
+    private final Object[] studentLocks = new Object[LOCK_STRIPES];
+    private final List<ObjLongConsumer<String>> dropObservers = new CopyOnWriteArrayList<>();
+
+    public StudentService() {
+        for (int i = 0; i < studentLocks.length; i++) {
+            studentLocks[i] = new Object();
+        }
+    }
 
     /**
      * Creates a new student, assigns a unique ID, and stores it.
@@ -28,20 +65,88 @@ public class StudentService {
         // Assert that the registration number is valid.
         assert regNo != null && !regNo.trim().isEmpty() : "Registration number cannot be null or empty";
 
-        long newId = nextId++;
+        long newId = nextId.getAndIncrement();
         Student newStudent = new Student(newId, regNo, fullName, email);
-        studentMap.put(newId, newStudent);
-        System.out.println("SUCCESS: Student " + fullName + " added with ID " + newId);
+        studentStore.put(newId, newStudent);
+        index(newStudent);
+        LOG.at(Level.INFO, Outcome.STUDENT_ADDED).with("studentId", newId).with("regNo", regNo)
+                .log(() -> "SUCCESS: Student " + fullName + " added with ID " + newId);
+        changeNotifier.fire(listener -> listener.studentAdded(newStudent));
         return newStudent;
     }
 
+    /**
+     * Registers a listener to be told about changes made through this service.
+     */
+    public void addChangeListener(DataChangeListener listener) {
+        changeNotifier.add(listener);
+    }
+
+    public void removeChangeListener(DataChangeListener listener) {
+        changeNotifier.remove(listener);
+    }
+
+    /**
+     * Returns the lock guarding changes to the given student's enrollments and grades.
+     */
+    Object lockFor(long studentId) {
+        return studentLocks[stripeOf(studentId)];
+    }
+
+    /**
+     * @return The index of the student's lock stripe, from 0 to LOCK_STRIPES - 1. The
+     *         EnrollmentTable keeps each stripe's rows in a segment of their own.
+     */
+    static int stripeOf(long studentId) {
+        int hash = Long.hashCode(studentId);
+        hash ^= (hash >>> 16); // Spread the bits so sequential IDs use all stripes evenly.
+        return hash & (LOCK_STRIPES - 1);
+    }
+
+    /**
+     * Runs an action while holding every student lock, so no enrollment or grade can
+     * change while it runs. Must not be called while holding a student lock.
+     */
+    <T> T withAllStudentsLocked(Supplier<T> action) {
+        return withLocksFrom(0, action);
+    }
+
+    private <T> T withLocksFrom(int stripe, Supplier<T> action) {
+        if (stripe == studentLocks.length) {
+            return action.get();
+        }
+        // Always taken in index order, so two callers cannot deadlock.
+        synchronized (studentLocks[stripe]) {
+            return withLocksFrom(stripe + 1, action);
+        }
+    }
+
+    /**
+     * Registers an action to run whenever an enrollment is dropped, given the course code
+     * and the student's ID. It runs under the student's lock, so whatever it clears for
+     * the enrollment is gone before anything else can see the student without the course.
+     */
+    void addDropObserver(ObjLongConsumer<String> observer) {
+        dropObservers.add(observer);
+    }
+
+    /**
+     * Tells the drop observers that a student no longer takes a course.
+     * Called by EnrollmentService under the student's lock.
+     */
+    void enrollmentDropped(long studentId, String courseCode) {
+        for (ObjLongConsumer<String> observer : dropObservers) {
+            observer.accept(courseCode, studentId);
+        }
+    }
+
     /**
      * Finds a student by their unique ID.
      * @param id The ID of the student to find.
      * @return The Student object if found, otherwise null.
      */
     public Student findStudentById(long id) {
-        return studentMap.get(id);
+        return studentStore.get(id);
     }
 
     /**
@@ -49,7 +154,40 @@ public class StudentService {
      * @return A List containing all Student objects.
      */
     public List<Student> getAllStudents() {
-        return new ArrayList<>(studentMap.values());
+        List<Student> students = new ArrayList<>(studentStore.size());
+        studentStore.forEach(students::add);
+        return students;
+    }
+
+    /**
+     * Streams over all students without copying them first, for exports too large to copy.
+     * The stream is weakly consistent: students added or updated while it runs may or may not be seen.
+     * @return A Stream of all Student objects.
+     */
+    public Stream<Student> streamStudents() {
+        return studentStore.values();
+    }
+
+    /**
+     * Streams over all students in parallel, split by page of the student store.
+     * Weakly consistent, like streamStudents().
+     */
+    Stream<Student> parallelStudents() {
+        return studentStore.parallelValues();
+    }
+
+    /**
+     * @return The columnar table of all students' enrollments and grades, for cohort reports.
+     */
+    public EnrollmentTable getEnrollmentTable() {
+        return enrollmentTable;
+    }
+
+    /**
+     * @return The number of students in the system.
+     */
+    public int getStudentCount() {
+        return studentStore.size();
     }
 
     /**
@@ -58,10 +196,116 @@ public class StudentService {
      */
     public void loadStudent(long id, String regNo, String fullName, String email) {
         Student student = new Student(id, regNo, fullName, email);
-        studentMap.put(id, student);
+        Student replaced = studentStore.put(id, student);
+        if (replaced != null) {
+            unindex(replaced);
+        }
+        index(student);
         // Make sure our ID generator doesn't create duplicate IDs
-        if (id >= nextId) {
-            nextId = id + 1;
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    /**
+     * Finds students whose registration number, email, or any word of their name
+     * starts with the query, ignoring case. With several words in the query, a
+     * student must match every word (e.g. "ann sm" finds "Ann Smith").
+     * This method fulfills the Searchable interface contract.
+     * @param query The text to search for.
+     * @return The matching students, ordered by ID.
+     */
+    @Override
+    public List<Student> search(String query) {
+        long start = Metrics.startTimer();
+        try {
+            return searchIndexes(query);
+        } finally {
+            SEARCH_LATENCY.recordSince(start);
         }
     }
+
+    private List<Student> searchIndexes(String query) {
+        String[] tokens = PrefixIndex.normalize(query).split("\\s+");
+        Set<Long> matches = null;
+        for (String token : tokens) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            Set<Long> tokenMatches = new HashSet<>();
+            regNoIndex.collectPrefix(token, tokenMatches);
+            nameTokenIndex.collectPrefix(token, tokenMatches);
+            emailIndex.collectPrefix(token, tokenMatches);
+            if (matches == null) {
+                matches = tokenMatches;
+            } else {
+                matches.retainAll(tokenMatches);
+            }
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        List<Student> results = new ArrayList<>();
+        if (matches == null) {
+            return results; // Blank query
+        }
+        for (Long id : new TreeSet<>(matches)) {
+            Student student = studentStore.get(id);
+            if (student != null) {
+                results.add(student);
+            }
+        }
+        return results;
+    }
+
+    private void index(Student student) {
+        long id = student.getId();
+        regNoIndex.add(student.getRegNo(), id);
+        emailIndex.add(student.getEmail(), id);
+        for (String token : nameTokens(student.getFullName())) {
+            nameTokenIndex.add(token, id);
+        }
+        student.setChangeListener(indexUpdater);
+    }
+
+    private void unindex(Student student) {
+        student.setChangeListener(null);
+        long id = student.getId();
+        regNoIndex.remove(student.getRegNo(), id);
+        emailIndex.remove(student.getEmail(), id);
+        for (String token : nameTokens(student.getFullName())) {
+            nameTokenIndex.remove(token, id);
+        }
+    }
+
+    /**
+     * Moves a student's index entries when setRegNo/setFullName/setEmail is called,
+     * then passes the change on to this service's listeners.
+     */
+    private void onProfileChanged(Student student, StudentChangeListener.Field field, String oldValue, String newValue) {
+        long id = student.getId();
+        switch (field) {
+            case REG_NO:
+                regNoIndex.remove(oldValue, id);
+                regNoIndex.add(newValue, id);
+                break;
+            case EMAIL:
+                emailIndex.remove(oldValue, id);
+                emailIndex.add(newValue, id);
+                break;
+            case FULL_NAME:
+                for (String token : nameTokens(oldValue)) {
+                    nameTokenIndex.remove(token, id);
+                }
+                for (String token : nameTokens(newValue)) {
+                    nameTokenIndex.add(token, id);
+                }
+                break;
+            default:
+                break; // Status is not searchable.
+        }
+        changeNotifier.fire(listener -> listener.studentUpdated(student));
+    }
+
+    private static String[] nameTokens(String fullName) {
+        return fullName == null ? new String[0] : fullName.trim().split("\\s+");
+    }
 }
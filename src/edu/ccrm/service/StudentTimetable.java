@@ -0,0 +1,131 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseSchedule;
+import edu.ccrm.domain.MeetingSlot;
+import edu.ccrm.domain.Semester;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An interval index over the meetings of one student's scheduled courses, so a new
+ * course is checked for a time clash in O(log n) per meeting instead of against every
+ * meeting of every course the student takes.
+ *
+ * Times are minutes on one line: each semester gets its own week, so courses in
+ * different semesters never clash. The index maps each boundary where the number of
+ * meetings in progress changes to that number, which holds until the next boundary.
+ * A meeting [start, end) then clashes exactly when a meeting is in progress at its
+ * start (the floor boundary has a count above zero) or some boundary falls inside it
+ * (the next boundary is before its end). This stays exact even if saved data already
+ * holds overlapping meetings. Not thread-safe: EnrollmentService uses it under the
+ * student's lock.
+ */
+class StudentTimetable {
+
+    private static final int SEMESTER_SLOTS = Semester.values().length + 1; // One extra for courses with no semester
+
+    private final TreeMap<Integer, Integer> coverage = new TreeMap<>();
+    // The intervals added for each course, so they can be taken out after the course is rescheduled.
+    private final Map<String, int[]> intervalsByCourse = new HashMap<>();
+
+    /**
+     * Adds the course's current meetings, replacing those added for it before.
+     */
+    void put(Course course) {
+        remove(course.getCode());
+        int[] intervals = intervalsOf(course);
+        if (intervals.length > 0) {
+            intervalsByCourse.put(course.getCode(), intervals);
+            update(intervals, 1);
+        }
+    }
+
+    void remove(String courseCode) {
+        int[] intervals = intervalsByCourse.remove(courseCode);
+        if (intervals != null) {
+            update(intervals, -1);
+        }
+    }
+
+    boolean isEmpty() {
+        return intervalsByCourse.isEmpty();
+    }
+
+    /**
+     * @return true if any meeting of the course overlaps a meeting already in the index.
+     */
+    boolean clashes(Course course) {
+        int[] intervals = intervalsOf(course);
+        for (int i = 0; i < intervals.length; i += 2) {
+            Map.Entry<Integer, Integer> inProgress = coverage.floorEntry(intervals[i]);
+            if (inProgress != null && inProgress.getValue() > 0) {
+                return true;
+            }
+            Integer next = coverage.higherKey(intervals[i]);
+            if (next != null && next < intervals[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The course's meetings as start, end pairs on the index's time line; empty if it has no schedule.
+     */
+    private static int[] intervalsOf(Course course) {
+        CourseSchedule schedule = course.getSchedule();
+        if (schedule == null) {
+            return new int[0];
+        }
+        int slot = course.getSemester() == null ? SEMESTER_SLOTS - 1 : course.getSemester().ordinal();
+        int offset = slot * MeetingSlot.MINUTES_PER_WEEK;
+        int[] intervals = new int[schedule.getMeetings().size() * 2];
+        for (int i = 0; i < schedule.getMeetings().size(); i++) {
+            MeetingSlot meeting = schedule.getMeetings().get(i);
+            intervals[2 * i] = offset + meeting.getWeekStartMinute();
+            intervals[2 * i + 1] = offset + meeting.getWeekEndMinute();
+        }
+        return intervals;
+    }
+
+    private void update(int[] intervals, int delta) {
+        for (int i = 0; i < intervals.length; i += 2) {
+            int start = intervals[i];
+            int end = intervals[i + 1];
+            split(start);
+            split(end);
+            for (Map.Entry<Integer, Integer> entry : coverage.subMap(start, end).entrySet()) {
+                entry.setValue(entry.getValue() + delta);
+            }
+            merge(start);
+            merge(end);
+        }
+    }
+
+    /**
+     * Makes the time a boundary, carrying over the count in progress there.
+     */
+    private void split(int time) {
+        if (!coverage.containsKey(time)) {
+            Map.Entry<Integer, Integer> floor = coverage.floorEntry(time);
+            coverage.put(time, floor == null ? 0 : floor.getValue());
+        }
+    }
+
+    /**
+     * Drops the boundary at the time if the count does not change there, which the clash check relies on.
+     */
+    private void merge(int time) {
+        Integer count = coverage.get(time);
+        if (count == null) {
+            return;
+        }
+        Map.Entry<Integer, Integer> lower = coverage.lowerEntry(time);
+        if (count == (lower == null ? 0 : lower.getValue())) {
+            coverage.remove(time);
+        }
+    }
+}
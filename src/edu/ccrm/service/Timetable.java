@@ -0,0 +1,64 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.CourseSchedule;
+import edu.ccrm.domain.Semester;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A timetable proposed by TimetableService for one semester: a schedule for every course
+ * that could be placed, and the codes of those that could not. Nothing changes until it
+ * is passed to TimetableService.apply().
+ */
+public class Timetable {
+
+    private final Semester semester;
+    private final Map<String, CourseSchedule> schedules;
+    private final List<String> unscheduled;
+    private final int conflictCount;
+    private final int attemptCount;
+
+    Timetable(Semester semester, Map<String, CourseSchedule> schedules, List<String> unscheduled,
+              int conflictCount, int attemptCount) {
+        this.semester = semester;
+        this.schedules = Collections.unmodifiableMap(schedules);
+        this.unscheduled = Collections.unmodifiableList(unscheduled);
+        this.conflictCount = conflictCount;
+        this.attemptCount = attemptCount;
+    }
+
+    public Semester getSemester() {
+        return semester;
+    }
+
+    /**
+     * @return The schedule of each placed course, by course code in code order.
+     */
+    public Map<String, CourseSchedule> getSchedules() {
+        return schedules;
+    }
+
+    /**
+     * @return The codes of the courses no period and room could be found for, in code order.
+     */
+    public List<String> getUnscheduled() {
+        return unscheduled;
+    }
+
+    /**
+     * @return The number of course pairs that had to meet at different times, because
+     *         they share an instructor or at least one student.
+     */
+    public int getConflictCount() {
+        return conflictCount;
+    }
+
+    /**
+     * @return The number of placements tried; the best one was kept.
+     */
+    public int getAttemptCount() {
+        return attemptCount;
+    }
+}
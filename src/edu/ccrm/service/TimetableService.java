@@ -0,0 +1,421 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseSchedule;
+import edu.ccrm.domain.Instructor;
+import edu.ccrm.domain.MeetingSlot;
+import edu.ccrm.domain.Room;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.log.EventLogger;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Log;
+import edu.ccrm.log.Outcome;
+import edu.ccrm.metrics.LatencyHistogram;
+import edu.ccrm.metrics.Metrics;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Builds a semester's timetable: a period and a room for every course, so that no two
+ * courses sharing an instructor or a student meet at the same time, no room holds two
+ * courses at once, and every course's room seats all its students.
+ *
+ * Courses that must not meet together are found from the current enrollments and
+ * instructor assignments, as a conflict graph built by a parallel stream over the
+ * students. Courses are then placed one at a time with the DSatur heuristic used for
+ * graph colouring: the next course is the one with the fewest periods left open to it
+ * (ties go to the one with the most conflicts, then the most students), and it takes the
+ * open period whose smallest free room that fits wastes the fewest seats. Placements
+ * differ only in how ties are broken, so several are run in parallel, one per task,
+ * with different random tie-breaks, and the one leaving the fewest courses unplaced
+ * (then wasting the fewest seats) is kept. The first is always the deterministic one,
+ * so a single-core machine gets the same timetable every time.
+ */
+public class TimetableService {
+
+    private static final int ATTEMPTS_PER_CORE = 2;
+    private static final int UNPLACED = -1;
+    private static final LatencyHistogram GENERATE_LATENCY = Metrics.histogram("timetable.generate");
+    private static final EventLogger LOG = Log.logger("timetable");
+
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final EnrollmentService enrollmentService;
+
+    public TimetableService(StudentService studentService, CourseService courseService,
+                            EnrollmentService enrollmentService) {
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.enrollmentService = enrollmentService;
+    }
+
+    /**
+     * The standard teaching week: 50-minute periods meeting on Monday, Wednesday and
+     * Friday, on the hour from 8:00 to 16:00, and 75-minute periods meeting on Tuesday
+     * and Thursday, every 90 minutes from 8:00 to 15:30. No two of them overlap.
+     * @return The periods, each the list of meetings a course placed in it has.
+     */
+    public static List<List<MeetingSlot>> standardPeriods() {
+        List<List<MeetingSlot>> periods = new ArrayList<>();
+        for (int start = 8 * 60; start <= 16 * 60; start += 60) {
+            periods.add(Arrays.asList(new MeetingSlot(DayOfWeek.MONDAY, start, start + 50),
+                    new MeetingSlot(DayOfWeek.WEDNESDAY, start, start + 50),
+                    new MeetingSlot(DayOfWeek.FRIDAY, start, start + 50)));
+        }
+        for (int start = 8 * 60; start <= 15 * 60 + 30; start += 90) {
+            periods.add(Arrays.asList(new MeetingSlot(DayOfWeek.TUESDAY, start, start + 75),
+                    new MeetingSlot(DayOfWeek.THURSDAY, start, start + 75)));
+        }
+        return periods;
+    }
+
+    /**
+     * Proposes a timetable for the semester's courses in the standard periods.
+     * @see #generate(Semester, List, List)
+     */
+    public Timetable generate(Semester semester, List<Room> rooms) {
+        return generate(semester, rooms, standardPeriods());
+    }
+
+    /**
+     * Proposes a timetable for every course in the semester, ignoring their current
+     * schedules. A course needs a room seating its capacity, or its enrolled students if
+     * it has no seat limit. Periods may overlap each other; a course's meetings then
+     * also keep clear of every period overlapping its own.
+     * Enrollments made while this runs may or may not be taken into account.
+     * @param rooms The rooms to place courses in.
+     * @param periods The times a course can meet, each a list of weekly meetings.
+     * @return The proposed timetable; apply() puts it into effect.
+     */
+    public Timetable generate(Semester semester, List<Room> rooms, List<List<MeetingSlot>> periods) {
+        long start = Metrics.startTimer();
+        try {
+            List<Course> courses = courseService.streamCourses()
+                    .filter(course -> course.getSemester() == semester)
+                    .sorted(Comparator.comparing(Course::getCode))
+                    .collect(Collectors.toList());
+            Problem problem = new Problem(courses, rooms, periods, buildConflicts(courses));
+            int attempts = ATTEMPTS_PER_CORE * Runtime.getRuntime().availableProcessors();
+            Placement best = IntStream.range(0, attempts).parallel()
+                    .mapToObj(attempt -> place(problem, attempt))
+                    .min(Placement.BEST_FIRST)
+                    .get();
+            Timetable timetable = toTimetable(semester, problem, best, attempts);
+            LOG.at(Level.INFO, Outcome.TIMETABLE_GENERATED).with("semester", String.valueOf(semester))
+                    .with("courses", courses.size()).with("unscheduled", timetable.getUnscheduled().size())
+                    .with("attempts", attempts)
+                    .log(() -> "Timetable generated: " + timetable.getSchedules().size() + " of " + courses.size()
+                            + " courses placed.");
+            return timetable;
+        } finally {
+            GENERATE_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Gives every course in the timetable its new schedule, and takes the courses it
+     * could not place off the timetable, so none is left at a time that may now clash.
+     */
+    public void apply(Timetable timetable) {
+        timetable.getSchedules().forEach(courseService::scheduleCourse);
+        for (String courseCode : timetable.getUnscheduled()) {
+            Course course = courseService.findCourseByCode(courseCode);
+            if (course != null && course.getSchedule() != null) {
+                courseService.scheduleCourse(courseCode, null);
+            }
+        }
+    }
+
+    /**
+     * Finds the pairs of courses that share a student or an instructor. Each task of the
+     * parallel stream fills its own graph, and the graphs are merged at the end.
+     */
+    private ConflictGraph buildConflicts(List<Course> courses) {
+        Map<String, Integer> indexByCode = new HashMap<>();
+        for (int i = 0; i < courses.size(); i++) {
+            indexByCode.put(courses.get(i).getCode(), i);
+        }
+        ConflictGraph graph = studentService.parallelStudents().collect(
+                () -> new ConflictGraph(courses.size()),
+                (conflicts, student) -> {
+                    List<Course> enrolled = enrollmentService.getEnrolledCourses(student.getId());
+                    int[] indexes = new int[enrolled.size()];
+                    int count = 0;
+                    for (Course course : enrolled) {
+                        Integer index = indexByCode.get(course.getCode());
+                        if (index != null) {
+                            indexes[count++] = index;
+                        }
+                    }
+                    conflicts.addClique(indexes, count);
+                },
+                ConflictGraph::addAll);
+
+        Map<Long, List<Integer>> coursesByInstructor = new HashMap<>();
+        for (int i = 0; i < courses.size(); i++) {
+            Instructor instructor = courses.get(i).getInstructor();
+            if (instructor != null) {
+                coursesByInstructor.computeIfAbsent(instructor.getId(), id -> new ArrayList<>()).add(i);
+            }
+        }
+        for (List<Integer> taught : coursesByInstructor.values()) {
+            graph.addClique(taught.stream().mapToInt(Integer::intValue).toArray(), taught.size());
+        }
+        return graph;
+    }
+
+    /**
+     * Places every course with DSatur.
+     * @param attempt 0 breaks ties by course code; later attempts break them at random.
+     */
+    private static Placement place(Problem problem, int attempt) {
+        int courseCount = problem.demand.length;
+        int periodCount = problem.overlapping.length;
+        SplittableRandom random = new SplittableRandom(attempt);
+        int[] tieBreak = new int[courseCount];
+        int[] periodOrder = new int[periodCount];
+        for (int i = 0; i < courseCount; i++) {
+            tieBreak[i] = attempt == 0 ? courseCount - i : random.nextInt();
+        }
+        for (int p = 0; p < periodCount; p++) {
+            periodOrder[p] = p;
+        }
+        for (int p = periodCount - 1; p > 0 && attempt > 0; p--) {
+            int other = random.nextInt(p + 1);
+            int swap = periodOrder[p];
+            periodOrder[p] = periodOrder[other];
+            periodOrder[other] = swap;
+        }
+
+        int[] periodOf = new int[courseCount];
+        int[] roomOf = new int[courseCount];
+        Arrays.fill(periodOf, UNPLACED);
+        boolean[] done = new boolean[courseCount];
+        // blocked[c][p]: how many placed neighbours of course c meet during period p.
+        int[][] blocked = new int[courseCount][periodCount];
+        int[] saturation = new int[courseCount]; // The periods closed to each course
+        boolean[][] roomBusy = new boolean[problem.rooms.size()][periodCount];
+        int unplaced = 0;
+        long waste = 0;
+
+        for (int step = 0; step < courseCount; step++) {
+            int next = -1;
+            for (int c = 0; c < courseCount; c++) {
+                if (!done[c] && (next < 0 || problem.isHarder(c, next, saturation, tieBreak))) {
+                    next = c;
+                }
+            }
+            done[next] = true;
+
+            int bestPeriod = UNPLACED;
+            int bestRoom = UNPLACED;
+            for (int p : periodOrder) {
+                if (blocked[next][p] > 0) {
+                    continue;
+                }
+                int room = problem.smallestFreeRoom(next, p, roomBusy);
+                if (room != UNPLACED && (bestRoom == UNPLACED
+                        || problem.rooms.get(room).getCapacity() < problem.rooms.get(bestRoom).getCapacity())) {
+                    bestPeriod = p;
+                    bestRoom = room;
+                }
+            }
+            if (bestPeriod == UNPLACED) {
+                unplaced++;
+                continue;
+            }
+
+            periodOf[next] = bestPeriod;
+            roomOf[next] = bestRoom;
+            waste += problem.rooms.get(bestRoom).getCapacity() - problem.demand[next];
+            for (int q : problem.overlapping[bestPeriod]) {
+                roomBusy[bestRoom][q] = true;
+            }
+            BitSet neighbours = problem.conflicts.neighbours(next);
+            for (int c = neighbours.nextSetBit(0); c >= 0; c = neighbours.nextSetBit(c + 1)) {
+                if (!done[c]) {
+                    for (int q : problem.overlapping[bestPeriod]) {
+                        if (blocked[c][q]++ == 0) {
+                            saturation[c]++;
+                        }
+                    }
+                }
+            }
+        }
+        return new Placement(attempt, periodOf, roomOf, unplaced, waste);
+    }
+
+    private static Timetable toTimetable(Semester semester, Problem problem, Placement placement, int attempts) {
+        Map<String, CourseSchedule> schedules = new TreeMap<>();
+        List<String> unscheduled = new ArrayList<>();
+        for (int c = 0; c < problem.courses.size(); c++) {
+            String code = problem.courses.get(c).getCode();
+            if (placement.periodOf[c] == UNPLACED) {
+                unscheduled.add(code);
+            } else {
+                schedules.put(code, new CourseSchedule(problem.rooms.get(placement.roomOf[c]).getName(),
+                        problem.periods.get(placement.periodOf[c])));
+            }
+        }
+        return new Timetable(semester, schedules, unscheduled, problem.conflicts.edgeCount(), attempts);
+    }
+
+    /**
+     * Everything a placement reads, shared by all attempts and never changed by them.
+     */
+    private static class Problem {
+        final List<Course> courses;
+        final List<Room> rooms; // Smallest first
+        final List<List<MeetingSlot>> periods;
+        final int[][] overlapping; // For each period, the periods it overlaps, itself included
+        final int[] demand; // The seats each course needs
+        final int[] degree;
+        final ConflictGraph conflicts;
+
+        Problem(List<Course> courses, List<Room> rooms, List<List<MeetingSlot>> periods, ConflictGraph conflicts) {
+            this.courses = courses;
+            this.rooms = new ArrayList<>(rooms);
+            this.rooms.sort(Comparator.comparingInt(Room::getCapacity));
+            this.periods = periods;
+            this.conflicts = conflicts;
+            this.overlapping = new int[periods.size()][];
+            for (int p = 0; p < periods.size(); p++) {
+                int[] overlaps = new int[periods.size()];
+                int count = 0;
+                for (int q = 0; q < periods.size(); q++) {
+                    if (overlap(periods.get(p), periods.get(q))) {
+                        overlaps[count++] = q;
+                    }
+                }
+                overlapping[p] = Arrays.copyOf(overlaps, count);
+            }
+            this.demand = new int[courses.size()];
+            this.degree = new int[courses.size()];
+            for (int c = 0; c < courses.size(); c++) {
+                Course course = courses.get(c);
+                demand[c] = course.getCapacity() > 0 ? course.getCapacity() : Math.max(1, course.getSeatsTaken());
+                degree[c] = conflicts.neighbours(c).cardinality();
+            }
+        }
+
+        /**
+         * @return true if course a should be placed before course b.
+         */
+        boolean isHarder(int a, int b, int[] saturation, int[] tieBreak) {
+            if (saturation[a] != saturation[b]) {
+                return saturation[a] > saturation[b];
+            }
+            if (degree[a] != degree[b]) {
+                return degree[a] > degree[b];
+            }
+            if (demand[a] != demand[b]) {
+                return demand[a] > demand[b];
+            }
+            return tieBreak[a] > tieBreak[b];
+        }
+
+        /**
+         * @return The index of the smallest room seating the course that is free throughout the period, or UNPLACED.
+         */
+        int smallestFreeRoom(int course, int period, boolean[][] roomBusy) {
+            for (int r = 0; r < rooms.size(); r++) {
+                if (rooms.get(r).getCapacity() >= demand[course] && !roomBusy[r][period]) {
+                    return r;
+                }
+            }
+            return UNPLACED;
+        }
+
+        private static boolean overlap(List<MeetingSlot> a, List<MeetingSlot> b) {
+            for (MeetingSlot meeting : a) {
+                for (MeetingSlot other : b) {
+                    if (meeting.overlaps(other)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Which courses must not meet at the same time, as one bit set of neighbours per course.
+     * Not thread-safe: each stream task fills its own, and they are merged afterwards.
+     */
+    private static class ConflictGraph {
+        private final BitSet[] neighbours;
+
+        ConflictGraph(int courseCount) {
+            neighbours = new BitSet[courseCount];
+            for (int c = 0; c < courseCount; c++) {
+                neighbours[c] = new BitSet();
+            }
+        }
+
+        /**
+         * Makes each of the first count courses a neighbour of all the others.
+         */
+        void addClique(int[] courses, int count) {
+            for (int i = 0; i < count; i++) {
+                for (int j = i + 1; j < count; j++) {
+                    if (courses[i] != courses[j]) {
+                        neighbours[courses[i]].set(courses[j]);
+                        neighbours[courses[j]].set(courses[i]);
+                    }
+                }
+            }
+        }
+
+        void addAll(ConflictGraph other) {
+            for (int c = 0; c < neighbours.length; c++) {
+                neighbours[c].or(other.neighbours[c]);
+            }
+        }
+
+        BitSet neighbours(int course) {
+            return neighbours[course];
+        }
+
+        int edgeCount() {
+            int ends = 0;
+            for (BitSet set : neighbours) {
+                ends += set.cardinality();
+            }
+            return ends / 2;
+        }
+    }
+
+    /**
+     * The outcome of one attempt: the period and room index of each course, UNPLACED if none.
+     */
+    private static class Placement {
+        static final Comparator<Placement> BEST_FIRST = Comparator.comparingInt((Placement p) -> p.unplaced)
+                .thenComparingLong(p -> p.waste)
+                .thenComparingInt(p -> p.attempt);
+
+        final int attempt;
+        final int[] periodOf;
+        final int[] roomOf;
+        final int unplaced;
+        final long waste;
+
+        Placement(int attempt, int[] periodOf, int[] roomOf, int unplaced, long waste) {
+            this.attempt = attempt;
+            this.periodOf = periodOf;
+            this.roomOf = roomOf;
+            this.unplaced = unplaced;
+            this.waste = waste;
+        }
+    }
+}
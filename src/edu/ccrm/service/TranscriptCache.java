@@ -0,0 +1,157 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Student;
+import edu.ccrm.metrics.Counter;
+import edu.ccrm.metrics.Metrics;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rendered transcripts by student ID, evicting the least recently used once either
+ * the entry count or the total number of characters goes over its limit.
+ *
+ * An entry is only returned for the same Student object at the same revision it
+ * was rendered from (see Student.getRevision()), so any change to the student's
+ * profile, enrollments or grades makes it stale at once, with no invalidation
+ * messages to miss or race with. The revision must be read before rendering: a
+ * change made while rendering then leaves the entry stale rather than wrong.
+ *
+ * The cache is split into segments by student ID, each an access-ordered
+ * LinkedHashMap under its own lock with an equal share of both limits, so reads
+ * for different students rarely wait for each other.
+ */
+class TranscriptCache {
+
+    private static final int SEGMENTS = 16;
+    private static final Counter HITS = Metrics.counter("transcript.cache.hits");
+    private static final Counter MISSES = Metrics.counter("transcript.cache.misses");
+    private static final Counter EVICTIONS = Metrics.counter("transcript.cache.evictions");
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * @param maxEntries The most transcripts to keep; 0 disables the cache.
+     * @param maxChars The most characters to keep over all transcripts.
+     */
+    TranscriptCache(int maxEntries, long maxChars) {
+        int entriesPerSegment = (maxEntries + SEGMENTS - 1) / SEGMENTS;
+        long charsPerSegment = (maxChars + SEGMENTS - 1) / SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(entriesPerSegment, charsPerSegment);
+        }
+    }
+
+    /**
+     * @return The cached transcript, or null if there is none for this student at this revision.
+     */
+    String get(Student student, int revision) {
+        String transcript = segmentFor(student.getId()).get(student, revision);
+        if (transcript == null) {
+            MISSES.increment();
+        } else {
+            HITS.increment();
+        }
+        return transcript;
+    }
+
+    /**
+     * Caches a transcript rendered from the student at the given revision.
+     * Transcripts longer than a segment's share of the characters are not cached.
+     */
+    void put(Student student, int revision, String transcript) {
+        segmentFor(student.getId()).put(student, revision, transcript);
+    }
+
+    /**
+     * @return The number of cached transcripts.
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return The number of characters held by the cached transcripts.
+     */
+    long chars() {
+        long chars = 0;
+        for (Segment segment : segments) {
+            chars += segment.chars();
+        }
+        return chars;
+    }
+
+    private Segment segmentFor(long studentId) {
+        long h = studentId * 0x9E3779B97F4A7C15L;
+        return segments[(int) (h >>> 60)]; // The top 4 bits pick one of the 16 segments
+    }
+
+    private static class Entry {
+        final Student student;
+        final int revision;
+        final String transcript;
+
+        Entry(Student student, int revision, String transcript) {
+            this.student = student;
+            this.revision = revision;
+            this.transcript = transcript;
+        }
+    }
+
+    private static class Segment {
+        private final int maxEntries;
+        private final long maxChars;
+        private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long chars;
+
+        Segment(int maxEntries, long maxChars) {
+            this.maxEntries = maxEntries;
+            this.maxChars = maxChars;
+        }
+
+        synchronized String get(Student student, int revision) {
+            Entry entry = entries.get(student.getId());
+            if (entry == null) {
+                return null;
+            }
+            if (entry.student != student || entry.revision != revision) {
+                // Stale: free it now rather than waiting for it to be evicted.
+                entries.remove(student.getId());
+                chars -= entry.transcript.length();
+                return null;
+            }
+            return entry.transcript;
+        }
+
+        synchronized void put(Student student, int revision, String transcript) {
+            if (maxEntries == 0 || transcript.length() > maxChars) {
+                return;
+            }
+            Entry previous = entries.put(student.getId(), new Entry(student, revision, transcript));
+            if (previous != null) {
+                chars -= previous.transcript.length();
+            }
+            chars += transcript.length();
+            Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxEntries || chars > maxChars) {
+                Entry evicted = eldest.next().getValue();
+                eldest.remove();
+                chars -= evicted.transcript.length();
+                EVICTIONS.increment();
+            }
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized long chars() {
+            return chars;
+        }
+    }
+}
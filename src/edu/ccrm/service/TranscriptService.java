@@ -1,78 +1,389 @@
 package edu.ccrm.service;
 
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.Course;
 import edu.ccrm.domain.EnrollmentRecord;
 import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
 import edu.ccrm.domain.Student;
+import edu.ccrm.log.EventLogger;
+import edu.ccrm.log.Level;
+import edu.ccrm.log.Log;
+import edu.ccrm.log.Outcome;
+import edu.ccrm.metrics.LatencyHistogram;
+import edu.ccrm.metrics.Metrics;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.OptionalDouble;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 /**
  * Manages academic records, grade recording, and transcript generation.
+ * Grades are stored in EnrollmentRecords indexed by (studentId, courseCode).
+ * Credit-weighted grade-point sums are kept per student and per semester as
+ * grades are recorded, so GPA and CGPA queries don't re-read every record.
+ * Likewise each course's grade counts, which AnalyticsService reports from.
+ * A grade belongs to the enrollment: dropping the course takes the grade out again.
+ * Rendered transcripts are cached until the student's profile, enrollments or grades change.
  */
 public class TranscriptService {
 
-    // Maps a Student ID to a list of their enrollment records.
-    private final Map<Long, List<EnrollmentRecord>> academicRecords = new HashMap<>();
+    // One slot per Semester, plus a last slot for courses with no semester set.
+    private static final int UNSCHEDULED_SLOT = Semester.values().length;
+    private static final LatencyHistogram RECORD_GRADE_LATENCY = Metrics.histogram("transcript.recordGrade");
+    private static final LatencyHistogram TRANSCRIPT_LATENCY = Metrics.histogram("transcript.generateTranscript");
+    private static final EventLogger LOG = Log.logger("transcript");
+
+    // Maps a Student ID to their academic record.
+    private final LongKeyedStore<AcademicRecord> academicRecords = new LongKeyedStore<>();
+    // How many students hold each grade, by course code.
+    private final Map<String, CourseGradeCounts> gradeCountsByCourse = new ConcurrentHashMap<>();
     private final StudentService studentService;
+    private final ChangeNotifier changeNotifier = new ChangeNotifier();
+    private final TranscriptCache transcriptCache;
 
     public TranscriptService(StudentService studentService) {
         this.studentService = studentService;
+        AppConfig config = AppConfig.getInstance();
+        this.transcriptCache = new TranscriptCache(config.getTranscriptCacheEntries(), config.getTranscriptCacheMaxChars());
+        Metrics.gauge("transcript.cache.entries", transcriptCache::size);
+        Metrics.gauge("transcript.cache.chars", transcriptCache::chars);
+        studentService.addDropObserver(this::removeGrade);
     }
 
     /**
      * Records a grade for a student in a specific course they are enrolled in.
+     * Recording a new grade for the same course replaces the old one.
      */
     public void recordGrade(long studentId, String courseCode, Grade grade) {
+        long start = Metrics.startTimer();
+        try {
+            setGrade(studentId, courseCode, grade);
+        } finally {
+            RECORD_GRADE_LATENCY.recordSince(start);
+        }
+    }
+
+    private void setGrade(long studentId, String courseCode, Grade grade) {
         Student student = studentService.findStudentById(studentId);
         if (student == null) {
-            System.out.println("ERROR: Cannot record grade. Student not found.");
+            LOG.at(Level.INFO, Outcome.STUDENT_NOT_FOUND).with("studentId", studentId).with("courseCode", courseCode)
+                    .log("ERROR: Cannot record grade. Student not found.");
             return;
         }
+        Course course = storeGrade(student, courseCode, grade);
+        if (course == null) {
+            LOG.at(Level.INFO, Outcome.NOT_ENROLLED).with("studentId", studentId).with("courseCode", courseCode)
+                    .log(() -> "ERROR: Cannot record grade. " + student.getFullName() + " is not enrolled in " + courseCode + ".");
+            return;
+        }
+        LOG.at(Level.INFO, Outcome.GRADE_RECORDED).with("studentId", studentId).with("courseCode", courseCode).with("grade", grade)
+                .log(() -> "SUCCESS: Grade " + grade + " recorded for " + student.getFullName() + " in " + course.getTitle());
+        changeNotifier.fire(listener -> listener.gradeRecorded(studentId, courseCode, grade));
+    }
 
-        // Find the specific enrollment record for this student and course
-        student.getEnrolledCourses().stream()
-            .filter(course -> course.getCode().equals(courseCode))
-            .findFirst()
-            .ifPresent(course -> {
-                // For simplicity, we assume one enrollment record per student-course pair.
-                // A more robust system would manage these records more explicitly.
-                System.out.println("SUCCESS: Grade " + grade + " recorded for " + student.getFullName() + " in " + course.getTitle());
-                // In a full implementation, you would store this grade in an EnrollmentRecord object.
-            });
+    /**
+     * Registers a listener to be told about changes made through this service.
+     */
+    public void addChangeListener(DataChangeListener listener) {
+        changeNotifier.add(listener);
+    }
+
+    public void removeChangeListener(DataChangeListener listener) {
+        changeNotifier.remove(listener);
+    }
+
+    /**
+     * Restores a grade from a data file without raising an event.
+     * @return false if the student does not exist or is not enrolled in the course.
+     */
+    public boolean loadGrade(long studentId, String courseCode, Grade grade) {
+        Student student = studentService.findStudentById(studentId);
+        return student != null && storeGrade(student, courseCode, grade) != null;
+    }
+
+    /**
+     * Records the grade in the student's academic record, the course's grade counts and
+     * the enrollment table. Done under the student's lock, so the course cannot be
+     * dropped between the enrollment check and the update.
+     * @return The course, or null if the student is not enrolled in it.
+     */
+    private Course storeGrade(Student student, String courseCode, Grade grade) {
+        long studentId = student.getId();
+        synchronized (studentService.lockFor(studentId)) {
+            Course course = student.getEnrolledCourse(courseCode);
+            if (course == null) {
+                return null;
+            }
+            countGrade(courseCode, recordFor(studentId).setGrade(student, course, grade), grade);
+            student.markRevised();
+            studentService.getEnrollmentTable().setGrade(studentId, courseCode, grade);
+            return course;
+        }
+    }
+
+    /**
+     * Takes a dropped course's grade out of the student's record and GPA sums, and out
+     * of the course's grade counts, so a later re-enrollment starts ungraded. Runs under
+     * the student's lock, from the drop.
+     */
+    private void removeGrade(String courseCode, long studentId) {
+        AcademicRecord record = academicRecords.get(studentId);
+        Grade removed = record == null ? null : record.removeGrade(courseCode);
+        if (removed == null) {
+            return;
+        }
+        countGrade(courseCode, removed, null);
+        Student student = studentService.findStudentById(studentId);
+        if (student != null) {
+            student.markRevised();
+        }
+    }
+
+    /**
+     * @return The recorded grade, or null if none has been recorded.
+     */
+    public Grade getGrade(long studentId, String courseCode) {
+        AcademicRecord record = academicRecords.get(studentId);
+        return record == null ? null : record.getGrade(courseCode);
+    }
+
+    /**
+     * @return A copy of the student's graded enrollment records, in the order they were first graded.
+     */
+    public List<EnrollmentRecord> getEnrollmentRecords(long studentId) {
+        AcademicRecord record = academicRecords.get(studentId);
+        return record == null ? new ArrayList<>() : record.getRecords();
+    }
+
+    /**
+     * @return The credit-weighted GPA for one semester, or empty if nothing has been graded in it.
+     */
+    public OptionalDouble getGpa(long studentId, Semester semester) {
+        AcademicRecord record = academicRecords.get(studentId);
+        return record == null ? OptionalDouble.empty() : record.getGpa(slotOf(semester));
+    }
+
+    /**
+     * @return The credit-weighted cumulative GPA over all graded courses, or empty if none are graded.
+     */
+    public OptionalDouble getCgpa(long studentId) {
+        AcademicRecord record = academicRecords.get(studentId);
+        return record == null ? OptionalDouble.empty() : record.getCgpa();
     }
 
     /**
      * Generates a formatted transcript string for a student, including their GPA.
+     * A transcript is rendered once and then served from the cache until something on it changes.
      */
     public String generateTranscript(long studentId) {
+        long start = Metrics.startTimer();
+        try {
+            Student student = studentService.findStudentById(studentId);
+            if (student == null) {
+                return "Cannot generate transcript: Student not found.";
+            }
+            // Read before rendering, so a change made meanwhile leaves the cached copy stale, not wrong.
+            int revision = student.getRevision();
+            String cached = transcriptCache.get(student, revision);
+            if (cached != null) {
+                return cached;
+            }
+            StringBuilder transcript = new StringBuilder();
+            appendTranscript(student, transcript);
+            String rendered = transcript.toString();
+            transcriptCache.put(student, revision, rendered);
+            return rendered;
+        } finally {
+            TRANSCRIPT_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Appends a student's transcript to the given buffer, so batch exports can reuse one buffer
+     * for many students instead of creating a String per transcript.
+     * @return false (and appends nothing) if the student does not exist.
+     */
+    public boolean appendTranscript(long studentId, StringBuilder transcript) {
         Student student = studentService.findStudentById(studentId);
         if (student == null) {
-            return "Cannot generate transcript: Student not found.";
-        }
-        
-        // This is a simplified version. A full implementation would use EnrollmentRecord objects.
-        // For now, let's assume some grades have been magically assigned for the GPA calculation.
-        // You would replace this with real data from your academicRecords map.
-        
-        StringBuilder transcript = new StringBuilder();
+            return false;
+        }
+        appendTranscript(student, transcript);
+        return true;
+    }
+
+    private void appendTranscript(Student student, StringBuilder transcript) {
+        long studentId = student.getId();
+        // Copied under the student's lock, as enrollments may change while the transcript is rendered.
+        List<Course> courses;
+        synchronized (studentService.lockFor(studentId)) {
+            courses = new ArrayList<>(student.getEnrolledCoursesView());
+        }
         transcript.append("--- ACADEMIC TRANSCRIPT ---\n");
         transcript.append(student.getDetails()).append("\n\n");
         transcript.append("Courses Enrolled:\n");
 
-        if (student.getEnrolledCourses().isEmpty()) {
+        if (courses.isEmpty()) {
             transcript.append("  No courses enrolled.\n");
         } else {
-            student.getEnrolledCourses().forEach(course ->
-                transcript.append("  - ").append(course.getCode()).append(": ").append(course.getTitle()).append("\n")
-            );
+            courses.forEach(course -> {
+                Grade grade = getGrade(studentId, course.getCode());
+                transcript.append("  - ").append(course.getCode()).append(": ").append(course.getTitle())
+                        .append(" (").append(course.getCredits()).append(" credits) - ")
+                        .append(grade == null ? "In progress" : grade.name()).append("\n");
+            });
+        }
+
+        transcript.append("\n");
+        for (Semester semester : Semester.values()) {
+            OptionalDouble gpa = getGpa(studentId, semester);
+            if (gpa.isPresent()) {
+                transcript.append("GPA (").append(semester.getDisplayName()).append("): ");
+                appendTwoDecimals(transcript, gpa.getAsDouble()).append("\n");
+            }
+        }
+        OptionalDouble cgpa = getCgpa(studentId);
+        transcript.append("CGPA: ");
+        if (cgpa.isPresent()) {
+            appendTwoDecimals(transcript, cgpa.getAsDouble()).append("\n");
+        } else {
+            transcript.append("N/A\n");
+        }
+    }
+
+    /**
+     * Appends a non-negative value rounded to two decimals, without String.format.
+     */
+    private static StringBuilder appendTwoDecimals(StringBuilder out, double value) {
+        long hundredths = Math.round(value * 100);
+        out.append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            out.append('0');
+        }
+        return out.append(fraction);
+    }
+
+    /**
+     * @return A weakly consistent parallel stream over every student's academic record.
+     */
+    Stream<AcademicRecord> parallelRecords() {
+        return academicRecords.parallelValues();
+    }
+
+    /**
+     * @return The grade counts of every course with a grade, by course code.
+     */
+    Map<String, CourseGradeCounts> getGradeCountsByCourse() {
+        return Collections.unmodifiableMap(gradeCountsByCourse);
+    }
+
+    private AcademicRecord recordFor(long studentId) {
+        return academicRecords.computeIfAbsent(studentId, AcademicRecord::new);
+    }
+
+    private void countGrade(String courseCode, Grade previous, Grade grade) {
+        gradeCountsByCourse.computeIfAbsent(courseCode, code -> new CourseGradeCounts()).replace(previous, grade);
+    }
+
+    private static int slotOf(Semester semester) {
+        return semester == null ? UNSCHEDULED_SLOT : semester.ordinal();
+    }
+
+    /**
+     * One student's graded enrollments and their running grade-point sums.
+     */
+    static class AcademicRecord {
+        private final long studentId;
+        private final Map<String, EnrollmentRecord> recordsByCourse = new LinkedHashMap<>();
+        private final double[] pointsBySemester = new double[UNSCHEDULED_SLOT + 1];
+        private final int[] creditsBySemester = new int[UNSCHEDULED_SLOT + 1];
+        private double totalPoints;
+        private int totalCredits;
+
+        AcademicRecord(long studentId) {
+            this.studentId = studentId;
+        }
+
+        long getStudentId() {
+            return studentId;
         }
 
-        // GPA Calculation would go here, using a list of real grades.
+        /**
+         * @return The grade this one replaces, or null if the course had none.
+         */
+        synchronized Grade setGrade(Student student, Course course, Grade grade) {
+            EnrollmentRecord record = recordsByCourse.get(course.getCode());
+            Grade previous = null;
+            if (record == null) {
+                record = new EnrollmentRecord(student, course);
+                recordsByCourse.put(course.getCode(), record);
+            } else if (record.getGrade() != null) {
+                // Take the old grade out of the sums before adding the new one.
+                previous = record.getGrade();
+                add(record.getCourse(), previous, -1);
+            }
+            record.setGrade(grade);
+            add(record.getCourse(), grade, 1);
+            return previous;
+        }
 
-        return transcript.toString();
+        /**
+         * Removes the course's record and takes its grade out of the sums.
+         * @return The grade removed, or null if the course had none.
+         */
+        synchronized Grade removeGrade(String courseCode) {
+            EnrollmentRecord record = recordsByCourse.remove(courseCode);
+            if (record == null || record.getGrade() == null) {
+                return null;
+            }
+            add(record.getCourse(), record.getGrade(), -1);
+            return record.getGrade();
+        }
+
+        /**
+         * Adds one to counts[slot * gradeCount + grade ordinal] for each graded course,
+         * where slot is the course's semester ordinal, or UNSCHEDULED_SLOT.
+         */
+        synchronized void countGrades(long[] counts, int gradeCount) {
+            for (EnrollmentRecord record : recordsByCourse.values()) {
+                if (record.getGrade() != null) {
+                    counts[slotOf(record.getCourse().getSemester()) * gradeCount + record.getGrade().ordinal()]++;
+                }
+            }
+        }
+
+        private void add(Course course, Grade grade, int sign) {
+            int slot = slotOf(course.getSemester());
+            double points = grade.getGradePoints() * course.getCredits();
+            pointsBySemester[slot] += sign * points;
+            creditsBySemester[slot] += sign * course.getCredits();
+            totalPoints += sign * points;
+            totalCredits += sign * course.getCredits();
+        }
+
+        synchronized Grade getGrade(String courseCode) {
+            EnrollmentRecord record = recordsByCourse.get(courseCode);
+            return record == null ? null : record.getGrade();
+        }
+
+        synchronized List<EnrollmentRecord> getRecords() {
+            return new ArrayList<>(recordsByCourse.values());
+        }
+
+        synchronized OptionalDouble getGpa(int slot) {
+            int credits = creditsBySemester[slot];
+            return credits == 0 ? OptionalDouble.empty() : OptionalDouble.of(pointsBySemester[slot] / credits);
+        }
+
+        synchronized OptionalDouble getCgpa() {
+            return totalCredits == 0 ? OptionalDouble.empty() : OptionalDouble.of(totalPoints / totalCredits);
+        }
     }
 }
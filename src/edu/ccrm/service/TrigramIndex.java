@@ -0,0 +1,166 @@
+package edu.ccrm.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An inverted index from three-character substrings (trigrams) of a text to the keys
+ * whose text contains them, used for fast case-insensitive substring search.
+ * A query is answered by intersecting the posting sets of its trigrams, starting with
+ * the smallest, and then confirming each candidate with a real substring check.
+ * Reads are lock-free; updates are serialized, since they are much rarer than searches.
+ */
+class TrigramIndex {
+
+    private static final int N = 3;
+
+    // Lowercased text per key, so searches never lowercase the indexed texts again.
+    private final Map<String, String> normalizedTexts = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Indexes (or re-indexes) the text for a key.
+     */
+    synchronized void put(String key, String text) {
+        remove(key);
+        String normalized = normalize(text);
+        normalizedTexts.put(key, normalized);
+        for (String trigram : trigramsOf(normalized)) {
+            postings.computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    synchronized void remove(String key) {
+        String old = normalizedTexts.remove(key);
+        if (old == null) {
+            return;
+        }
+        for (String trigram : trigramsOf(old)) {
+            Set<String> keys = postings.get(trigram);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the keys whose text contains the query, ignoring case, best matches first.
+     * A match at the start of the text ranks highest, then one at the start of a word,
+     * then earlier matches, then shorter texts.
+     * @param query The text to look for.
+     * @param limit The maximum number of keys to return.
+     */
+    List<String> search(String query, int limit) {
+        String needle = normalize(query);
+        // Keeps the best `limit` matches, with the worst of them at the head.
+        PriorityQueue<Match> matches = new PriorityQueue<>(Match.BEST_FIRST.reversed());
+        if (needle.length() < N) {
+            // Too short to have a trigram; scan the pre-lowercased texts instead.
+            for (Map.Entry<String, String> entry : normalizedTexts.entrySet()) {
+                addIfMatches(matches, limit, entry.getKey(), entry.getValue(), needle);
+            }
+        } else {
+            for (String key : candidates(needle)) {
+                String text = normalizedTexts.get(key);
+                if (text != null) {
+                    addIfMatches(matches, limit, key, text, needle);
+                }
+            }
+        }
+        List<Match> best = new ArrayList<>(matches);
+        best.sort(Match.BEST_FIRST);
+        List<String> keys = new ArrayList<>(best.size());
+        for (Match match : best) {
+            keys.add(match.key);
+        }
+        return keys;
+    }
+
+    /**
+     * Intersects the posting sets of the query's trigrams, smallest first.
+     * The result may contain false positives, which search() filters out.
+     */
+    private List<String> candidates(String needle) {
+        List<Set<String>> sets = new ArrayList<>();
+        for (String trigram : trigramsOf(needle)) {
+            Set<String> keys = postings.get(trigram);
+            if (keys == null) {
+                return new ArrayList<>();
+            }
+            sets.add(keys);
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+        List<String> result = new ArrayList<>();
+        Set<String> smallest = sets.get(0);
+        for (String key : smallest) {
+            boolean inAll = true;
+            for (int i = 1; i < sets.size() && inAll; i++) {
+                inAll = sets.get(i).contains(key);
+            }
+            if (inAll) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    private static void addIfMatches(PriorityQueue<Match> matches, int limit, String key, String text, String needle) {
+        if (limit <= 0) {
+            return;
+        }
+        int position = text.indexOf(needle);
+        if (position >= 0) {
+            boolean wordStart = position == 0 || !Character.isLetterOrDigit(text.charAt(position - 1));
+            int rank = position == 0 ? 0 : (wordStart ? 1 : 2);
+            Match match = new Match(key, rank, position, text.length());
+            if (matches.size() < limit) {
+                matches.add(match);
+            } else if (Match.BEST_FIRST.compare(match, matches.peek()) < 0) {
+                matches.poll();
+                matches.add(match);
+            }
+        }
+    }
+
+    private static Set<String> trigramsOf(String text) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + N <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + N));
+        }
+        return trigrams;
+    }
+
+    private static class Match {
+        static final Comparator<Match> BEST_FIRST = Comparator
+                .comparingInt((Match m) -> m.rank)
+                .thenComparingInt(m -> m.position)
+                .thenComparingInt(m -> m.length)
+                .thenComparing(m -> m.key);
+
+        final String key;
+        final int rank;
+        final int position;
+        final int length;
+
+        Match(String key, int rank, int position, int length) {
+            this.key = key;
+            this.rank = rank;
+            this.position = position;
+            this.length = length;
+        }
+    }
+}
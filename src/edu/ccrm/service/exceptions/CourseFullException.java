@@ -0,0 +1,7 @@
+package edu.ccrm.service.exceptions;
+
+public class CourseFullException extends Exception {
+    public CourseFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package edu.ccrm.service.exceptions;
+
+public class ScheduleConflictException extends Exception {
+    public ScheduleConflictException(String message) {
+        super(message);
+    }
+}